@@ -0,0 +1,59 @@
+package ru.yofujitsu.url_shortener.benchmark;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yofujitsu.url_shortener.UrlShortenerApplication;
+import ru.yofujitsu.url_shortener.benchmark.RedirectLoadTest.Result;
+import ru.yofujitsu.url_shortener.service.ShortLinkService;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Сравнивает редирект с обращением к БД на платформенных потоках без контроля допуска и с адаптивным пределом
+ * параллелизма ({@code app.admission.concurrency}). Бюджеты частоты подняты, чтобы все запросы с одного адреса
+ * проходили ограничение частоты и сбрасывал только предел параллелизма. Нагрузка — как в {@link RedirectLoadTest};
+ * задержки считаются только по успешным редиректам, сброшенные (429/503) запросы выводятся отдельно от остальных ошибок.
+ */
+public class AdmissionLoadTest {
+
+    private static final int[] CONCURRENCY = {200, 800, 2000, 5000};
+    private static final int LINKS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        run(false);
+        run(true);
+    }
+
+    private static void run(boolean admission) throws Exception {
+        String mode = admission ? "admission" : "off";
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(UrlShortenerApplication.class)
+                .run("--server.port=0", "--logging.level.root=WARN", "--spring.main.banner-mode=off",
+                        "--spring.jpa.show-sql=false", "--app.admission.enabled=" + admission,
+                        "--app.admission.redirect.rate-per-s=1000000", "--app.admission.redirect.burst=1000000");
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            ShortLinkService shortLinkService = context.getBean(ShortLinkService.class);
+            UUID userId = UUID.randomUUID();
+            List<URI> uris = new ArrayList<>(LINKS);
+            for (int i = 0; i < LINKS; i++) {
+                String code = shortLinkService.createLink(userId, ApplicationState.TARGET_URL, Integer.MAX_VALUE).getCode();
+                uris.add(URI.create("http://localhost:" + port + "/" + code));
+            }
+
+            System.out.printf("%n%-9s %11s %12s %10s %10s %8s %8s%n",
+                    mode, "concurrency", "ok req/s", "p50, ms", "p99, ms", "shed", "errors");
+            for (int concurrency : CONCURRENCY) {
+                Result result = RedirectLoadTest.load(uris, concurrency);
+                System.out.printf("%-9s %11d %12.0f %10.2f %10.2f %7.2f%% %7.2f%%%n", mode, concurrency,
+                        result.throughput(), result.p50Ms(), result.p99Ms(), result.shedRate() * 100,
+                        (result.errorRate() - result.shedRate()) * 100);
+            }
+        } finally {
+            context.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yofujitsu.url_shortener.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yofujitsu.url_shortener.UrlShortenerApplication;
+import ru.yofujitsu.url_shortener.model.entity.Link;
+import ru.yofujitsu.url_shortener.repository.LinkRepository;
+import ru.yofujitsu.url_shortener.service.ShortLinkService;
+import ru.yofujitsu.url_shortener.utils.CodeGenerator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Поднимает приложение целиком (H2 в памяти, встроенный Tomcat на случайном порту) один раз на форк
+ * и готовит ссылки для сценариев редиректа.
+ * Истёкшая ссылка и ссылка с исчерпанным лимитом деактивируются первым же переходом, поэтому для этих сценариев
+ * каждый вызов получает свежую ссылку ({@link #expiredLink()}, {@link #exhaustedLink()}); повторный переход
+ * по уже деактивированной ссылке измеряется отдельно на {@code inactiveCode}.
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+    public static final String TARGET_URL = "https://example.com/landing";
+
+    ConfigurableApplicationContext context;
+    ShortLinkService shortLinkService;
+    LinkRepository linkRepository;
+    CodeGenerator codeGenerator;
+    UUID userId;
+    String hitCode;
+    String missCode;
+    String inactiveCode;
+    int port;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(UrlShortenerApplication.class)
+                .run("--server.port=0", "--logging.level.root=WARN", "--spring.main.banner-mode=off", "--spring.jpa.show-sql=false",
+                        "--app.admission.enabled=false");
+        shortLinkService = context.getBean(ShortLinkService.class);
+        linkRepository = context.getBean(LinkRepository.class);
+        codeGenerator = context.getBean(CodeGenerator.class);
+        port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        userId = UUID.randomUUID();
+        hitCode = shortLinkService.createLink(userId, TARGET_URL, 0).getCode();
+        missCode = "zzzzzzzzzz";
+        inactiveCode = shortLinkService.createLink(userId, TARGET_URL, 1).getCode();
+        shortLinkService.handleRedirect(inactiveCode);
+        shortLinkService.handleRedirect(inactiveCode);
+    }
+
+    /**
+     * @return Код новой активной ссылки, срок действия которой уже истёк.
+     */
+    String expiredLink() {
+        return linkRepository.save(Link.builder()
+                .code(codeGenerator.nextCode())
+                .originalUrl(TARGET_URL)
+                .userId(userId)
+                .maxClicks(0)
+                .expiresAt(Instant.now().minus(Duration.ofMinutes(1)))
+                .build()).getCode();
+    }
+
+    /**
+     * @return Код новой ещё активной ссылки, все переходы которой уже засчитаны.
+     */
+    String exhaustedLink() {
+        return linkRepository.save(Link.builder()
+                .code(codeGenerator.nextCode())
+                .originalUrl(TARGET_URL)
+                .userId(userId)
+                .maxClicks(1)
+                .clicks(new AtomicInteger(1))
+                .expiresAt(Instant.now().plus(Duration.ofHours(1)))
+                .build()).getCode();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
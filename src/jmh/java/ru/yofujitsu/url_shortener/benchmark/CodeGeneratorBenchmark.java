@@ -0,0 +1,140 @@
+package ru.yofujitsu.url_shortener.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yofujitsu.url_shortener.repository.CodeBlockRepository;
+import ru.yofujitsu.url_shortener.utils.BlockCodeGenerator;
+import ru.yofujitsu.url_shortener.utils.RandomCodeGenerator;
+import ru.yofujitsu.url_shortener.utils.ShortCodeGenerator;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сравнивает прежнюю генерацию кодов ({@code SecureRandom} + проверка существования в БД)
+ * со стратегиями {@code CodeGenerator}: чистую генерацию и генерацию вместе со вставкой в H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodeGeneratorBenchmark {
+
+    private RandomCodeGenerator randomGenerator;
+    private BlockCodeGenerator blockGenerator;
+
+    @Setup
+    public void setUp() {
+        randomGenerator = new RandomCodeGenerator(6);
+        blockGenerator = new BlockCodeGenerator(new InMemoryCodeBlocks(), 6, 1000, 42L);
+    }
+
+    @Benchmark
+    public String legacySecureRandom() {
+        return ShortCodeGenerator.generateShortCode(6);
+    }
+
+    @Benchmark
+    public String threadLocalRandom() {
+        return randomGenerator.nextCode();
+    }
+
+    @Benchmark
+    public String blockFeistel() {
+        return blockGenerator.nextCode();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String legacySecureRandom_4threads() {
+        return ShortCodeGenerator.generateShortCode(6);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String threadLocalRandom_4threads() {
+        return randomGenerator.nextCode();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String blockFeistel_4threads() {
+        return blockGenerator.nextCode();
+    }
+
+    /**
+     * Прежний путь создания: проверка существования кода отдельным запросом и вставка.
+     */
+    @Benchmark
+    public int legacyCreateWithExistenceCheck(Database db) throws SQLException {
+        String code;
+        do {
+            code = ShortCodeGenerator.generateShortCode(6);
+        } while (db.exists(code));
+        return db.insert(code);
+    }
+
+    /**
+     * Новый путь создания: код без коллизий и одна вставка без предварительных запросов.
+     */
+    @Benchmark
+    public int blockCreate(Database db) throws SQLException {
+        return db.insert(blockGenerator.nextCode());
+    }
+
+    @State(Scope.Thread)
+    public static class Database {
+        private static final AtomicLong DB_IDS = new AtomicLong();
+
+        private Connection connection;
+        private PreparedStatement exists;
+        private PreparedStatement insert;
+
+        @Setup(Level.Trial)
+        public void open() throws SQLException {
+            connection = DriverManager.getConnection("jdbc:h2:mem:codes" + DB_IDS.incrementAndGet());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE links (id BIGINT AUTO_INCREMENT PRIMARY KEY, code VARCHAR(16) NOT NULL UNIQUE)");
+            }
+            exists = connection.prepareStatement("SELECT 1 FROM links WHERE code = ?");
+            insert = connection.prepareStatement("INSERT INTO links (code) VALUES (?)");
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            connection.close();
+        }
+
+        boolean exists(String code) throws SQLException {
+            exists.setString(1, code);
+            try (ResultSet resultSet = exists.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+
+        int insert(String code) throws SQLException {
+            insert.setString(1, code);
+            return insert.executeUpdate();
+        }
+    }
+
+    private static class InMemoryCodeBlocks extends CodeBlockRepository {
+        private final AtomicLong blocks = new AtomicLong();
+
+        InMemoryCodeBlocks() {
+            super(null);
+        }
+
+        @Override
+        public long nextBlock() {
+            return blocks.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yofujitsu.url_shortener.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yofujitsu.url_shortener.UrlShortenerApplication;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkRequestDto;
+import ru.yofujitsu.url_shortener.model.entity.Link;
+import ru.yofujitsu.url_shortener.service.ShortLinkService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Редирект при перекошенной нагрузке: коды {@value #LINKS} ссылок без лимита запрашиваются по закону Ципфа
+ * (показатель {@code skew}), так что несколько кодов получают большую часть переходов.
+ * Сравнивается работа с горячим ярусом ({@code hot=true}) и без него. Ярус заполняется фоновым пересчётом
+ * {@code HotLinkDetector} во время прогрева.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HotLinkBenchmark {
+
+    private static final int LINKS = 10_000;
+    private static final int SAMPLES = 1 << 16;
+
+    @Param({"true", "false"})
+    public boolean hot;
+
+    @Param({"1.1"})
+    public double skew;
+
+    private ConfigurableApplicationContext context;
+    private ShortLinkService shortLinkService;
+    private String[] requests;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int position = ThreadLocalRandom.current().nextInt(SAMPLES);
+    }
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(UrlShortenerApplication.class)
+                .run("--server.port=0", "--logging.level.root=WARN", "--spring.main.banner-mode=off",
+                        "--spring.jpa.show-sql=false", "--app.admission.enabled=false", "--app.hot.enabled=" + hot);
+        shortLinkService = context.getBean(ShortLinkService.class);
+        UUID userId = UUID.randomUUID();
+        List<String> codes = new ArrayList<>(LINKS);
+        List<ShortLinkRequestDto> chunk = Collections.nCopies(1000, new ShortLinkRequestDto(ApplicationState.TARGET_URL, 0));
+        while (codes.size() < LINKS) {
+            shortLinkService.createLinks(userId, chunk).stream().map(Link::getCode).forEach(codes::add);
+        }
+        requests = zipf(codes, skew);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<String> redirectZipf(Cursor cursor) {
+        return shortLinkService.handleRedirect(requests[cursor.position++ & (SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<String> redirectZipf_8threads(Cursor cursor) {
+        return shortLinkService.handleRedirect(requests[cursor.position++ & (SAMPLES - 1)]);
+    }
+
+    /**
+     * Заранее разыгрывает последовательность запросов: код ранга {@code r} выпадает с вероятностью,
+     * пропорциональной {@code 1 / r^skew}.
+     */
+    private static String[] zipf(List<String> codes, double skew) {
+        double[] cdf = new double[codes.size()];
+        double sum = 0;
+        for (int rank = 0; rank < cdf.length; rank++) {
+            sum += 1 / Math.pow(rank + 1, skew);
+            cdf[rank] = sum;
+        }
+        Random random = new Random(42);
+        String[] requests = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            int rank = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            requests[i] = codes.get(rank < 0 ? -rank - 1 : rank);
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yofujitsu.url_shortener.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Сквозной редирект через {@code LinkController}: через MockMvc (диспетчеризация Spring MVC без сети)
+ * и через встроенный Tomcat по HTTP.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkControllerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Clients {
+        MockMvc mockMvc;
+        HttpClient httpClient;
+        HttpRequest hitRequest;
+
+        @Setup(Level.Trial)
+        public void setUp(ApplicationState app) {
+            mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) app.context).build();
+            httpClient = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+            hitRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + app.port + "/" + app.hitCode)).GET().build();
+        }
+    }
+
+    @Benchmark
+    public int mockMvcRedirect(ApplicationState app, Clients clients) throws Exception {
+        return clients.mockMvc.perform(get("/{code}", app.hitCode)).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int mockMvcRedirect_8threads(ApplicationState app, Clients clients) throws Exception {
+        return clients.mockMvc.perform(get("/{code}", app.hitCode)).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int httpRedirect(Clients clients) throws IOException, InterruptedException {
+        return clients.httpClient.send(clients.hitRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int httpRedirect_8threads(Clients clients) throws IOException, InterruptedException {
+        return clients.httpClient.send(clients.hitRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yofujitsu.url_shortener.benchmark;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ru.yofujitsu.url_shortener.cache.RedirectIndex;
+import ru.yofujitsu.url_shortener.model.entity.Link;
+import ru.yofujitsu.url_shortener.model.projection.LinkTarget;
+import ru.yofujitsu.url_shortener.utils.Base62;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Сравнивает память на одну ссылку для трёх вариантов хранения на пути редиректа:
+ * Caffeine с сущностями {@link Link}, Caffeine с проекциями {@link LinkTarget} и {@link RedirectIndex}.
+ * Для каждого варианта заполняет структуру {@code N} ссылками (по умолчанию 1 000 000, первый аргумент)
+ * и измеряет прирост heap после сборки мусора; для индекса отдельно выводится внеheap-память арены URL.
+ */
+public class RedirectIndexFootprint {
+
+    private static final String URL_PREFIX = "https://example.com/articles/2024/";
+
+    public static void main(String[] args) {
+        int links = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+
+        System.out.printf("%-22s %14s %14s %14s%n", "variant", "heap B/link", "off-heap B/link", "total B/link");
+        report("caffeine<Link>", links, n -> {
+            Cache<String, Link> cache = Caffeine.newBuilder().maximumSize(n).build();
+            for (int i = 0; i < n; i++) {
+                String code = Base62.encode(i, 6);
+                cache.put(code, Link.builder()
+                        .id((long) i)
+                        .code(code)
+                        .originalUrl(URL_PREFIX + i)
+                        .userId(UUID.randomUUID())
+                        .clicks(new AtomicInteger())
+                        .maxClicks(0)
+                        .createdAt(Instant.now())
+                        .expiresAt(expiresAt)
+                        .build());
+            }
+            return new Holder(cache, 0);
+        });
+        report("caffeine<LinkTarget>", links, n -> {
+            Cache<String, LinkTarget> cache = Caffeine.newBuilder().maximumSize(n).build();
+            for (int i = 0; i < n; i++) {
+                String code = Base62.encode(i, 6);
+                cache.put(code, new LinkTarget((long) i, UUID.randomUUID(), code, URL_PREFIX + i, 0, expiresAt, true));
+            }
+            return new Holder(cache, 0);
+        });
+        report("RedirectIndex", links, n -> {
+            RedirectIndex index = new RedirectIndex(null, null, n, 16 * 1024 * 1024, Integer.MAX_VALUE);
+            for (int i = 0; i < n; i++) {
+                index.put(new LinkTarget((long) i, UUID.randomUUID(), Base62.encode(i, 6), URL_PREFIX + i, 0, expiresAt, true));
+            }
+            return new Holder(index, index.offHeapBytes());
+        });
+    }
+
+    private static void report(String variant, int links, IntFunction<Holder> fill) {
+        long before = usedHeap();
+        Holder holder = fill.apply(links);
+        long heap = usedHeap() - before;
+        System.out.printf("%-22s %14.1f %14.1f %14.1f%n", variant,
+                (double) heap / links, (double) holder.offHeapBytes() / links,
+                (double) (heap + holder.offHeapBytes()) / links);
+        if (holder.structure() == null) throw new IllegalStateException();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private record Holder(Object structure, long offHeapBytes) {
+    }
+}
@@ -0,0 +1,153 @@
+package ru.yofujitsu.url_shortener.benchmark;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yofujitsu.url_shortener.UrlShortenerApplication;
+import ru.yofujitsu.url_shortener.service.ShortLinkService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный тест редиректа на платформенных и виртуальных потоках и в реактивном варианте (WebFlux + R2DBC).
+ * Поднимает приложение трижды ({@code spring.threads.virtual.enabled=false}, {@code true} и профиль {@code reactive})
+ * и для каждого
+ * уровня параллелизма держит замкнутый цикл из N одновременных запросов {@code GET /{code}} в течение
+ * {@link #DURATION}. Ссылки создаются с лимитом переходов, поэтому каждый редирект выполняет условный
+ * {@code UPDATE} в БД и блокируется на JDBC. Печатает пропускную способность, p50/p99 и долю ошибок;
+ * максимальный параллелизм режима — наибольший уровень, на котором ошибок меньше {@link #MAX_ERROR_RATE}.
+ * Виртуальный режим пропускается на JDK младше 21.
+ */
+public class RedirectLoadTest {
+
+    private static final int[] CONCURRENCY = {50, 200, 800, 2000, 5000};
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+    private static final Duration DURATION = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+    private static final double MAX_ERROR_RATE = 0.01;
+    private static final int LINKS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        List<String> summary = new ArrayList<>();
+        summary.add(run("platform"));
+        if (Runtime.version().feature() >= 21) {
+            summary.add(run("virtual"));
+        } else {
+            summary.add("virtual: пропущено, нужна JDK 21 (текущая " + Runtime.version() + ")");
+        }
+        summary.add(run("reactive"));
+        System.out.println();
+        summary.forEach(System.out::println);
+    }
+
+    private static String run(String mode) throws Exception {
+        boolean virtual = mode.equals("virtual");
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(UrlShortenerApplication.class);
+        if (!mode.equals("platform")) builder.profiles(mode);
+        ConfigurableApplicationContext context = builder.run("--server.port=0", "--logging.level.root=WARN",
+                "--spring.main.banner-mode=off", "--spring.jpa.show-sql=false", "--spring.threads.virtual.enabled=" + virtual,
+                "--app.admission.enabled=false");
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            ShortLinkService shortLinkService = context.getBean(ShortLinkService.class);
+            UUID userId = UUID.randomUUID();
+            List<URI> uris = new ArrayList<>(LINKS);
+            for (int i = 0; i < LINKS; i++) {
+                String code = shortLinkService.createLink(userId, ApplicationState.TARGET_URL, Integer.MAX_VALUE).getCode();
+                uris.add(URI.create("http://localhost:" + port + "/" + code));
+            }
+
+            System.out.printf("%n%-8s %11s %12s %10s %10s %8s%n", mode, "concurrency", "req/s", "p50, ms", "p99, ms", "errors");
+            int maxConcurrency = 0;
+            for (int concurrency : CONCURRENCY) {
+                Result result = load(uris, concurrency);
+                System.out.printf("%-8s %11d %12.0f %10.2f %10.2f %7.2f%%%n", mode, concurrency, result.throughput(),
+                        result.p50Ms(), result.p99Ms(), result.errorRate() * 100);
+                if (result.errorRate() < MAX_ERROR_RATE) maxConcurrency = concurrency;
+            }
+            return mode + ": максимальный параллелизм без ошибок — " + maxConcurrency;
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Держит замкнутый цикл из {@code concurrency} запросов по {@code uris} в течение {@link #DURATION}.
+     * Ответы 429 и 503 считаются ошибками и дополнительно учитываются как сброшенные контролем допуска.
+     */
+    static Result load(List<URI> uris, int concurrency) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+        Recorder recorder = new Recorder(3);
+        LongAdder completed = new LongAdder();
+        LongAdder errors = new LongAdder();
+        LongAdder shed = new LongAdder();
+        AtomicBoolean measuring = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger(concurrency);
+
+        Runnable[] loop = new Runnable[1];
+        loop[0] = () -> {
+            if (!running.get()) {
+                inFlight.decrementAndGet();
+                return;
+            }
+            URI uri = uris.get(Math.floorMod(next.getAndIncrement(), uris.size()));
+            HttpRequest request = HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT).GET().build();
+            long start = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                if (measuring.get()) {
+                    if (error == null && response.statusCode() == 302) {
+                        recorder.recordValue(System.nanoTime() - start);
+                        completed.increment();
+                    } else {
+                        errors.increment();
+                        if (error == null && (response.statusCode() == 429 || response.statusCode() == 503)) shed.increment();
+                    }
+                }
+                loop[0].run();
+            });
+        };
+        for (int i = 0; i < concurrency; i++) {
+            loop[0].run();
+        }
+
+        Thread.sleep(WARMUP.toMillis());
+        measuring.set(true);
+        long started = System.nanoTime();
+        Thread.sleep(DURATION.toMillis());
+        measuring.set(false);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        running.set(false);
+        while (inFlight.get() > 0) {
+            Thread.sleep(10);
+        }
+
+        Histogram histogram = recorder.getIntervalHistogram();
+        long ok = completed.sum();
+        long failed = errors.sum();
+        return new Result(ok / seconds,
+                histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6,
+                ok + failed == 0 ? 1.0 : (double) failed / (ok + failed),
+                ok + failed == 0 ? 0.0 : (double) shed.sum() / (ok + failed));
+    }
+
+    record Result(double throughput, double p50Ms, double p99Ms, double errorRate, double shedRate) {
+    }
+}
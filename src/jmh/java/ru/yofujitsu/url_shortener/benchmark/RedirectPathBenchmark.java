@@ -0,0 +1,79 @@
+package ru.yofujitsu.url_shortener.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.DefaultMockMvcBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import ru.yofujitsu.url_shortener.UrlShortenerApplication;
+import ru.yofujitsu.url_shortener.controller.RedirectFilter;
+import ru.yofujitsu.url_shortener.service.ShortLinkService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Накладные расходы HTTP-слоя на редирект: обработка {@code GET /{code}} через Spring MVC ({@code path=mvc},
+ * {@code app.redirect.fast-path=false}) и сервлет-фильтром {@link RedirectFilter} ({@code path=filter}).
+ * Логика сервиса в обоих случаях одинакова (попадание в индекс, ссылка без лимита), поэтому разница —
+ * стоимость диспетчеризации MVC. Измеряется в процессе через MockMvc и по сети через встроенный Tomcat.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedirectPathBenchmark {
+
+    @Param({"mvc", "filter"})
+    public String path;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private HttpClient httpClient;
+    private HttpRequest hitRequest;
+    private String hitCode;
+
+    @Setup(Level.Trial)
+    public void start() {
+        boolean fastPath = path.equals("filter");
+        context = new SpringApplicationBuilder(UrlShortenerApplication.class)
+                .run("--server.port=0", "--logging.level.root=WARN", "--spring.main.banner-mode=off",
+                        "--spring.jpa.show-sql=false", "--app.redirect.fast-path=" + fastPath,
+                        "--app.admission.enabled=false");
+        hitCode = context.getBean(ShortLinkService.class)
+                .createLink(UUID.randomUUID(), ApplicationState.TARGET_URL, 0).getCode();
+        DefaultMockMvcBuilder builder = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context);
+        if (fastPath) builder.addFilters(context.getBean(RedirectFilter.class));
+        mockMvc = builder.build();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        httpClient = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+        hitRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/" + hitCode)).GET().build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public int mockMvcRedirect() throws Exception {
+        return mockMvc.perform(get("/" + hitCode)).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int httpRedirect() throws IOException, InterruptedException {
+        return httpClient.send(hitRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yofujitsu.url_shortener.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkRequestDto;
+import ru.yofujitsu.url_shortener.model.entity.Link;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути {@code ShortLinkService}: создание ссылки и редирект в сценариях
+ * попадания, промаха, истёкшей ссылки и исчерпанного лимита.
+ * Варианты с {@code @Threads} показывают конкуренцию за один популярный код.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShortLinkServiceBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @State(Scope.Benchmark)
+    public static class BatchState {
+        List<ShortLinkRequestDto> requests = Collections.nCopies(BATCH_SIZE,
+                new ShortLinkRequestDto(ApplicationState.TARGET_URL, 0));
+    }
+
+    @Benchmark
+    public Link createLink(ApplicationState app) {
+        return app.shortLinkService.createLink(app.userId, ApplicationState.TARGET_URL, 0);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Link createLink_8threads(ApplicationState app) {
+        return app.shortLinkService.createLink(app.userId, ApplicationState.TARGET_URL, 0);
+    }
+
+    /**
+     * Пакетное создание 1000 ссылок; результат нормирован на одну ссылку для сравнения с {@link #createLink}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<Link> createLinks_batch(ApplicationState app, BatchState batch) {
+        return app.shortLinkService.createLinks(app.userId, batch.requests);
+    }
+
+    @Benchmark
+    public Optional<String> redirectHit(ApplicationState app) {
+        return app.shortLinkService.handleRedirect(app.hitCode);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<String> redirectHit_8threads(ApplicationState app) {
+        return app.shortLinkService.handleRedirect(app.hitCode);
+    }
+
+    @Benchmark
+    public Optional<String> redirectMiss(ApplicationState app) {
+        return app.shortLinkService.handleRedirect(app.missCode);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<String> redirectMiss_8threads(ApplicationState app) {
+        return app.shortLinkService.handleRedirect(app.missCode);
+    }
+
+    /**
+     * Свежие ссылки для сценариев, которые деактивируют ссылку первым же переходом.
+     * Подготовка выполняется вне замера перед каждым вызовом.
+     */
+    @State(Scope.Thread)
+    public static class FreshLinks {
+        String expiredCode;
+        String exhaustedCode;
+
+        @Setup(Level.Invocation)
+        public void prepare(ApplicationState app) {
+            expiredCode = app.expiredLink();
+            exhaustedCode = app.exhaustedLink();
+        }
+    }
+
+    /**
+     * Первый переход по истёкшей ссылке: деактивация и уведомление.
+     */
+    @Benchmark
+    public Optional<String> redirectExpired(ApplicationState app, FreshLinks links) {
+        return app.shortLinkService.handleRedirect(links.expiredCode);
+    }
+
+    /**
+     * Первый переход по ссылке с исчерпанным лимитом: два условных UPDATE, деактивация и уведомление.
+     */
+    @Benchmark
+    public Optional<String> redirectLimitReached(ApplicationState app, FreshLinks links) {
+        return app.shortLinkService.handleRedirect(links.exhaustedCode);
+    }
+
+    /**
+     * Повторный переход по уже деактивированной ссылке.
+     */
+    @Benchmark
+    public Optional<String> redirectInactive(ApplicationState app) {
+        return app.shortLinkService.handleRedirect(app.inactiveCode);
+    }
+}
@@ -0,0 +1,255 @@
+package ru.yofujitsu.url_shortener.benchmark;
+
+import ru.yofujitsu.url_shortener.UrlShortenerApplication;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Время старта, время до первого редиректа и RSS процесса. Каждый запуск — отдельная JVM;
+ * время отсчитывается от запуска процесса до готовности ({@code /actuator/health/readiness} отвечает 200,
+ * то есть фаза прогрева завершена) и до первого ответа 302 на {@code GET /{code}}, RSS снимается сразу после него.
+ * <p>
+ * Сравниваются профиль по умолчанию (H2 в памяти, перед первым редиректом ссылку нужно создать)
+ * и профиль {@code prod}, который перезапускается над файлом БД, заранее заполненным {@code links} ссылками.
+ * Если собран быстрый старт ({@code mvn -Pfast-start package}), те же режимы запускаются ещё и из распакованного jar
+ * с профилем {@code fast}, AOT и архивом AppCDS.
+ * Аргументы: число перезапусков каждого режима (по умолчанию 3), число ссылок в БД (по умолчанию 100 000)
+ * и каталог быстрого старта (по умолчанию {@code target/fast-start}).
+ */
+public class StartupBenchmark {
+
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(3);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+    private static final int SEED_CHUNK = 10_000;
+    private static final Pattern SHORT_CODE = Pattern.compile("\"shortCode\":\"([^\"]+)\"");
+
+    private static final HttpClient client = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        int restarts = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int links = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        Path fastStartDir = Path.of(args.length > 2 ? args[2] : "target/fast-start");
+        List<Launcher> launchers = new ArrayList<>(List.of(Launcher.classpath()));
+        if (Files.isRegularFile(fastStartDir.resolve(Launcher.ARCHIVE))) {
+            launchers.add(Launcher.fastStart(fastStartDir));
+        } else {
+            System.out.printf("Нет %s, режимы fast пропущены (нужна сборка mvn -Pfast-start package)%n",
+                    fastStartDir.resolve(Launcher.ARCHIVE));
+        }
+        Path dataDir = Files.createTempDirectory("shortlink-startup");
+        try {
+            String code = seed(dataDir, links);
+            System.out.printf("%n%-12s %8s %8s %12s %16s %10s%n", "profile", "links", "run", "ready, ms", "first 302, ms", "RSS, MB");
+            for (Launcher launcher : launchers) {
+                for (int run = 1; run <= restarts; run++) {
+                    print(launcher.name("memory"), 0, run, start(launcher, null, dataDir, null));
+                }
+            }
+            for (Launcher launcher : launchers) {
+                for (int run = 1; run <= restarts; run++) {
+                    print(launcher.name("prod"), links, run, start(launcher, "prod", dataDir, code));
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dataDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Запускает приложение в профиле {@code prod} над пустым каталогом, создаёт {@code links} ссылок
+     * пакетами через {@code POST /shorten/batch} и останавливает его.
+     *
+     * @return Код одной из созданных ссылок.
+     */
+    private static String seed(Path dataDir, int links) throws Exception {
+        int port = freePort();
+        Process process = launch(Launcher.classpath(), "prod", dataDir, port);
+        try {
+            awaitReady(port, System.nanoTime());
+            String code = null;
+            for (int created = 0; created < links; created += SEED_CHUNK) {
+                int chunk = Math.min(SEED_CHUNK, links - created);
+                StringBuilder body = new StringBuilder("[");
+                for (int i = 0; i < chunk; i++) {
+                    if (i > 0) body.append(',');
+                    body.append("{\"originalUrl\":\"").append(ApplicationState.TARGET_URL).append(created + i)
+                            .append("\",\"maxClicks\":0}");
+                }
+                body.append(']');
+                String response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/shorten/batch"))
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                                .build(),
+                        HttpResponse.BodyHandlers.ofString()).body();
+                Matcher matcher = SHORT_CODE.matcher(response);
+                if (code == null && matcher.find()) code = matcher.group(1);
+            }
+            if (code == null) throw new IllegalStateException("Не удалось создать ссылки для прогрева");
+            System.out.printf("Создано %d ссылок в %s%n", links, dataDir);
+            return code;
+        } finally {
+            stop(process);
+        }
+    }
+
+    /**
+     * Запускает приложение и измеряет время до готовности и до первого редиректа.
+     * Если {@code code} не задан, ссылка создаётся после готовности, и это время входит во время до первого редиректа.
+     */
+    private static Timing start(Launcher launcher, String profile, Path dataDir, String code) throws Exception {
+        int port = freePort();
+        long started = System.nanoTime();
+        Process process = launch(launcher, profile, dataDir, port);
+        try {
+            long ready = awaitReady(port, started);
+            if (code == null) code = create(port);
+            URI uri = URI.create("http://localhost:" + port + "/" + code);
+            while (client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding())
+                    .statusCode() != 302) {
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+            return new Timing(ready, System.nanoTime() - started, rssKb(process));
+        } finally {
+            stop(process);
+        }
+    }
+
+    private static Process launch(Launcher launcher, String profile, Path dataDir, int port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(launcher.jvmArgs());
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--app.data-dir=" + dataDir,
+                "--logging.level.root=WARN",
+                "--spring.main.banner-mode=off",
+                "--spring.jpa.show-sql=false",
+                "--app.admission.enabled=false",
+                "--app.code.secret=1"));
+        String profiles = Stream.of(profile, launcher.profile()).filter(Objects::nonNull).collect(Collectors.joining(","));
+        if (!profiles.isEmpty()) command.add("--spring.profiles.active=" + profiles);
+        return new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    private static long awaitReady(int port, long started) throws Exception {
+        URI uri = URI.create("http://localhost:" + port + "/actuator/health/readiness");
+        long deadline = started + START_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding())
+                        .statusCode() == 200) {
+                    return System.nanoTime() - started;
+                }
+            } catch (IOException e) {
+                // Порт ещё не открыт.
+            }
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        }
+        throw new IllegalStateException("Приложение не стало готовым за " + START_TIMEOUT);
+    }
+
+    private static String create(int port) throws Exception {
+        String response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/shorten"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"originalUrl\":\"" + ApplicationState.TARGET_URL + "\",\"maxClicks\":0}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Matcher matcher = SHORT_CODE.matcher(response);
+        if (!matcher.find()) throw new IllegalStateException("Неожиданный ответ: " + response);
+        return matcher.group(1);
+    }
+
+    /**
+     * @return Resident set size процесса в килобайтах по {@code /proc/<pid>/status} или -1, если он недоступен.
+     */
+    private static long rssKb(Process process) {
+        try (Stream<String> lines = Files.lines(Path.of("/proc", Long.toString(process.pid()), "status"))) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                    .findFirst()
+                    .orElse(-1L);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void print(String profile, int links, int run, Timing timing) {
+        System.out.printf("%-12s %8d %8d %12d %16d %10d%n", profile, links, run,
+                TimeUnit.NANOSECONDS.toMillis(timing.readyNanos()), TimeUnit.NANOSECONDS.toMillis(timing.firstRedirectNanos()),
+                timing.rssKb() < 0 ? -1 : timing.rssKb() / 1024);
+    }
+
+    /**
+     * Способ запуска JVM: с classpath бенчмарка или из распакованного jar быстрого старта.
+     *
+     * @param jvmArgs Аргументы JVM до аргументов приложения, включая главный класс или {@code -jar}.
+     * @param profile Дополнительный профиль Spring или null.
+     */
+    private record Launcher(List<String> jvmArgs, String profile) {
+
+        static final String ARCHIVE = "application.jsa";
+
+        static Launcher classpath() {
+            return new Launcher(List.of("-cp", System.getProperty("java.class.path"), UrlShortenerApplication.class.getName()), null);
+        }
+
+        static Launcher fastStart(Path dir) throws IOException {
+            Path jar;
+            try (Stream<Path> files = Files.list(dir)) {
+                jar = files.filter(path -> path.getFileName().toString().endsWith(".jar"))
+                        .findFirst()
+                        .orElseThrow(() -> new IllegalStateException("В " + dir + " нет jar"));
+            }
+            return new Launcher(List.of(
+                    "-XX:SharedArchiveFile=" + dir.resolve(ARCHIVE),
+                    "-Dspring.aot.enabled=true",
+                    "-jar", jar.toString()), "fast");
+        }
+
+        String name(String mode) {
+            return profile == null ? mode : mode + "+" + profile;
+        }
+    }
+
+    private record Timing(long readyNanos, long firstRedirectNanos, long rssKb) {
+    }
+}
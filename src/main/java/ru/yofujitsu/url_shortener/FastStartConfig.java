@@ -0,0 +1,22 @@
+package ru.yofujitsu.url_shortener;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Профиль {@code fast}: при {@code spring.main.lazy-initialization: true} бины приложения всё равно создаются
+ * при старте. Иначе задачи {@code @Scheduled} и метрики бинов, на которые никто не ссылается, не были бы
+ * зарегистрированы, а первый запрос оплачивал бы создание пути редиректа.
+ */
+@Configuration
+@Profile("fast")
+public class FastStartConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter applicationBeansEager() {
+        String applicationPackage = UrlShortenerApplication.class.getPackageName();
+        return (beanName, beanDefinition, beanType) -> beanType.getPackageName().startsWith(applicationPackage);
+    }
+}
@@ -0,0 +1,451 @@
+package ru.yofujitsu.url_shortener.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yofujitsu.url_shortener.repository.LinkRepository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+/**
+ * Фильтр существующих кодов для быстрого отказа по неизвестным кодам без обращения к БД.
+ * Реализован как cuckoo-фильтр (корзины по 4 отпечатка по 16 бит), поэтому поддерживает удаление
+ * кодов просроченных ссылок. Ответ «кода нет» точен; ответ «код, возможно, есть» ошибочен
+ * с вероятностью около {@code 8 / 65536} при полном заполнении.
+ * <p>
+ * Фильтр перестраивается из БД при старте и раз в {@code app.code-filter.rebuild-interval-ms}; это подбирает коды,
+ * созданные другими узлами. До первой загрузки, а также если вставка не удалась из-за переполнения,
+ * фильтр пропускает все коды.
+ * <p>
+ * Изменения во время перестроения применяются и к текущему, и к строящемуся фильтру. Коды читаются из БД
+ * в порядке возрастания, поэтому по последнему прочитанному коду известно, попал ли код в новый фильтр:
+ * удаление уже прочитанного кода снимается с нового фильтра сразу, ещё не прочитанный код пропускается при чтении.
+ * Отпечаток никогда не удаляется из фильтра, в который код не добавлялся, — иначе можно удалить совпадающий
+ * отпечаток другого кода и получить ложноотрицательный ответ.
+ */
+@Component
+@Slf4j
+public class CodeFilter implements MeterBinder {
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int MAX_KICKS = 500;
+    private static final double MAX_LOAD = 0.95;
+    private static final int MAX_RECENTLY_DELETED = 100_000;
+
+    private final LinkRepository linkRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final long configuredCapacity;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final ReentrantLock mergeLock = new ReentrantLock();
+    private final Set<String> addedDuringRebuild = new HashSet<>();
+    private final Set<String> removedDuringRebuild = new HashSet<>();
+    private final Cache<String, Boolean> recentlyDeleted;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    private volatile Table table;
+    private volatile boolean ready;
+    private volatile boolean rebuilding;
+    private Table building;
+    private String lastStreamed;
+
+    public CodeFilter(LinkRepository linkRepository,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${app.code-filter.enabled}") boolean enabled,
+                      @Value("${app.code-filter.capacity}") long capacity,
+                      @Value("${app.code-filter.rebuild-interval-ms}") long rebuildIntervalMs) {
+        this.linkRepository = linkRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.configuredCapacity = capacity;
+        this.table = new Table(capacity);
+        this.recentlyDeleted = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(rebuildIntervalMs))
+                .maximumSize(MAX_RECENTLY_DELETED)
+                .build();
+    }
+
+    /**
+     * @param code Короткий код.
+     * @return false, если кода точно нет среди существующих ссылок; true, если код, возможно, существует.
+     */
+    public boolean mightContain(String code) {
+        if (!enabled || !ready) return true;
+        Table current = table;
+        if (current.saturated || current.contains(hash(code))) return true;
+        rejected.increment();
+        return false;
+    }
+
+    public void add(String code) {
+        if (!enabled) return;
+        if (rebuilding) {
+            mergeLock.lock();
+            try {
+                if (building != null && building != table) {
+                    if (streamed(code)) {
+                        building.add(hash(code));
+                    } else {
+                        addedDuringRebuild.add(code);
+                    }
+                }
+            } finally {
+                mergeLock.unlock();
+            }
+        }
+        table.add(hash(code));
+    }
+
+    /**
+     * Удаляет коды удалённых из БД ссылок. Вызывается только для кодов, которые были добавлены в фильтр.
+     */
+    public void removeAll(Collection<String> codes) {
+        if (!enabled) return;
+        markDeleted(codes);
+        if (!rebuilding) {
+            Table current = table;
+            for (String code : codes) {
+                current.remove(hash(code));
+            }
+            return;
+        }
+        mergeLock.lock();
+        try {
+            Table current = table;
+            for (String code : codes) {
+                current.remove(hash(code));
+                if (building == null || building == current) continue;
+                if (addedDuringRebuild.remove(code)) continue;
+                if (streamed(code)) {
+                    building.remove(hash(code));
+                } else {
+                    removedDuringRebuild.add(code);
+                }
+            }
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    /**
+     * Запоминает коды удаляемых ссылок на один интервал перестроения, чтобы переход по такому коду
+     * не учитывался как ложноположительный ответ. Вызывается до фиксации удаления в БД,
+     * а также для удалений, сделанных другими узлами.
+     */
+    public void markDeleted(Collection<String> codes) {
+        if (!enabled) return;
+        for (String code : codes) {
+            recentlyDeleted.put(code, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Учитывает ложноположительный ответ: фильтр пропустил код, которого не оказалось в БД.
+     * Коды недавно удалённых ссылок не учитываются: их отпечаток мог остаться в фильтре законно.
+     *
+     * @param code Код, не найденный в БД.
+     */
+    public void recordFalsePositive(String code) {
+        if (!enabled || !ready || recentlyDeleted.getIfPresent(code) != null) return;
+        Table current = table;
+        if (current.saturated || current.contains(hash(code))) falsePositives.increment();
+    }
+
+    /**
+     * Перестраивает фильтр из БД: в фазе прогрева при старте и периодически.
+     * Новый фильтр строится рядом с текущим и подменяет его целиком; размер выбирается по числу кодов,
+     * но не меньше {@code app.code-filter.capacity}. Добавления и удаления во время перестроения переносятся в новый фильтр.
+     */
+    @Scheduled(initialDelayString = "${app.code-filter.rebuild-interval-ms}",
+            fixedDelayString = "${app.code-filter.rebuild-interval-ms}")
+    public void rebuild() {
+        if (!enabled) return;
+        rebuildLock.lock();
+        try {
+            long count = linkRepository.count();
+            Table rebuilt = new Table(Math.max(configuredCapacity, (long) (count * 1.25)));
+            startMerge(rebuilt);
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    try (Stream<String> codes = linkRepository.streamCodes()) {
+                        codes.forEach(code -> addStreamed(rebuilt, code));
+                    }
+                });
+                finishMerge(rebuilt);
+            } finally {
+                stopMerge();
+            }
+            ready = true;
+            log.info("Фильтр кодов перестроен: {} кодов, {} КиБ", rebuilt.count(), rebuilt.bytes() / 1024);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void startMerge(Table rebuilt) {
+        mergeLock.lock();
+        try {
+            building = rebuilt;
+            lastStreamed = null;
+            addedDuringRebuild.clear();
+            removedDuringRebuild.clear();
+            rebuilding = true;
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    private void addStreamed(Table rebuilt, String code) {
+        mergeLock.lock();
+        try {
+            lastStreamed = code;
+            if (!removedDuringRebuild.remove(code)) rebuilt.add(hash(code));
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    /**
+     * Подменяет текущий фильтр новым и добавляет в него коды, созданные во время перестроения
+     * и не попавшие в уже прочитанную часть.
+     */
+    private void finishMerge(Table rebuilt) {
+        mergeLock.lock();
+        try {
+            for (String code : addedDuringRebuild) {
+                rebuilt.add(hash(code));
+            }
+            table = rebuilt;
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    private void stopMerge() {
+        mergeLock.lock();
+        try {
+            rebuilding = false;
+            building = null;
+            lastStreamed = null;
+            addedDuringRebuild.clear();
+            removedDuringRebuild.clear();
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    /**
+     * @return true, если код уже пройден чтением из БД при перестроении. Вызывается под {@code mergeLock}.
+     */
+    private boolean streamed(String code) {
+        return lastStreamed != null && code.compareTo(lastStreamed) <= 0;
+    }
+
+    /**
+     * @return Ожидаемая доля ложноположительных ответов при текущем заполнении фильтра.
+     */
+    public double expectedFalsePositiveRate() {
+        Table current = table;
+        return current.saturated ? 1.0 : 2.0 * BUCKET_SIZE * current.load() / 65536.0;
+    }
+
+    /**
+     * @return Наблюдаемая доля ложноположительных ответов среди запросов к несуществующим кодам.
+     */
+    public double observedFalsePositiveRate() {
+        double fp = falsePositives.sum();
+        double negatives = fp + rejected.sum();
+        return negatives == 0 ? 0 : fp / negatives;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("shortlink.code.filter.fpp", this, CodeFilter::expectedFalsePositiveRate)
+                .description("Ожидаемая доля ложноположительных ответов фильтра кодов")
+                .tag("kind", "expected")
+                .register(registry);
+        Gauge.builder("shortlink.code.filter.fpp", this, CodeFilter::observedFalsePositiveRate)
+                .description("Наблюдаемая доля ложноположительных ответов фильтра кодов")
+                .tag("kind", "observed")
+                .register(registry);
+        Gauge.builder("shortlink.code.filter.size", this, filter -> filter.table.count())
+                .description("Количество кодов в фильтре")
+                .register(registry);
+        FunctionCounter.builder("shortlink.code.filter.rejected", rejected, LongAdder::sum)
+                .description("Запросы, отклонённые фильтром без обращения к БД")
+                .register(registry);
+        FunctionCounter.builder("shortlink.code.filter.false.positives", falsePositives, LongAdder::sum)
+                .description("Коды, пропущенные фильтром, но не найденные в БД")
+                .register(registry);
+    }
+
+    /**
+     * 64-битный хеш кода: FNV-1a по символам и финальное перемешивание fmix64.
+     */
+    static long hash(String code) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < code.length(); i++) {
+            h ^= code.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Таблица cuckoo-фильтра: {@code buckets} корзин по {@value BUCKET_SIZE} отпечатка, число корзин — степень двойки,
+     * поэтому альтернативная корзина {@code i ^ hash(fp)} вычисляется в обе стороны одинаково.
+     * Пустая ячейка — отпечаток 0. Чтение выполняется оптимистично через {@link StampedLock}.
+     */
+    static final class Table {
+        private final short[] slots;
+        private final int mask;
+        private final StampedLock lock = new StampedLock();
+        private volatile boolean saturated;
+        private int count;
+
+        Table(long capacity) {
+            long buckets = Math.max(2, (long) Math.ceil(capacity / (BUCKET_SIZE * MAX_LOAD)));
+            int size = (int) Math.min(1 << 30, Long.highestOneBit(buckets - 1) << 1);
+            this.slots = new short[size * BUCKET_SIZE];
+            this.mask = size - 1;
+        }
+
+        boolean contains(long hash) {
+            short fp = fingerprint(hash);
+            int i1 = index(hash);
+            int i2 = alternate(i1, fp);
+            long stamp = lock.tryOptimisticRead();
+            boolean found = inBucket(i1, fp) || inBucket(i2, fp);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    found = inBucket(i1, fp) || inBucket(i2, fp);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return found;
+        }
+
+        void add(long hash) {
+            short fp = fingerprint(hash);
+            int i = index(hash);
+            long stamp = lock.writeLock();
+            try {
+                if (saturated) return;
+                if (put(i, fp) || put(alternate(i, fp), fp)) {
+                    count++;
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                if (random.nextBoolean()) i = alternate(i, fp);
+                for (int kick = 0; kick < MAX_KICKS; kick++) {
+                    int slot = i * BUCKET_SIZE + random.nextInt(BUCKET_SIZE);
+                    short evicted = slots[slot];
+                    slots[slot] = fp;
+                    fp = evicted;
+                    i = alternate(i, fp);
+                    if (put(i, fp)) {
+                        count++;
+                        return;
+                    }
+                }
+                saturated = true;
+                log.warn("Фильтр кодов переполнен, отказ по неизвестным кодам отключён до перестроения");
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void remove(long hash) {
+            short fp = fingerprint(hash);
+            int i1 = index(hash);
+            long stamp = lock.writeLock();
+            try {
+                if (delete(i1, fp) || delete(alternate(i1, fp), fp)) count--;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int count() {
+            return count;
+        }
+
+        double load() {
+            return (double) count / slots.length;
+        }
+
+        long bytes() {
+            return (long) slots.length * Short.BYTES;
+        }
+
+        private boolean inBucket(int bucket, short fp) {
+            int base = bucket * BUCKET_SIZE;
+            for (int j = 0; j < BUCKET_SIZE; j++) {
+                if (slots[base + j] == fp) return true;
+            }
+            return false;
+        }
+
+        private boolean put(int bucket, short fp) {
+            int base = bucket * BUCKET_SIZE;
+            for (int j = 0; j < BUCKET_SIZE; j++) {
+                if (slots[base + j] == 0) {
+                    slots[base + j] = fp;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean delete(int bucket, short fp) {
+            int base = bucket * BUCKET_SIZE;
+            for (int j = 0; j < BUCKET_SIZE; j++) {
+                if (slots[base + j] == fp) {
+                    slots[base + j] = 0;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int index(long hash) {
+            return (int) hash & mask;
+        }
+
+        private int alternate(int bucket, short fp) {
+            int h = (fp & 0xFFFF) * 0x5bd1e995;
+            return (bucket ^ h ^ (h >>> 15)) & mask;
+        }
+
+        private static short fingerprint(long hash) {
+            short fp = (short) (hash >>> 48);
+            return fp == 0 ? 1 : fp;
+        }
+    }
+}
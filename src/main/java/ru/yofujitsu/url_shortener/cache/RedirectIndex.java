@@ -0,0 +1,549 @@
+package ru.yofujitsu.url_shortener.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yofujitsu.url_shortener.model.projection.LinkTarget;
+import ru.yofujitsu.url_shortener.repository.LinkRepository;
+import ru.yofujitsu.url_shortener.utils.Base62;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+/**
+ * Компактный индекс «код → ссылка» для пути редиректа. Источником истины остаётся таблица {@code links}:
+ * индекс заполняется при старте, при создании ссылок и при промахе, а отсутствие кода в индексе означает
+ * только то, что его нужно прочитать из БД.
+ * <p>
+ * Коды упаковываются в {@code long} ({@link Base62#pack(String)}) и служат ключами хеш-таблицы с открытой
+ * адресацией и линейным пробированием. Состояние ссылки хранится в параллельных массивах примитивов,
+ * URL — в UTF-8 во внеheap-арене из прямых {@link ByteBuffer}. На одну ссылку в heap приходится около
+ * 60 байт без объектов, поэтому индекс не нагружает сборщик мусора даже на миллионах ссылок.
+ * <p>
+ * Чтение выполняется без блокировки (оптимистичное чтение {@link StampedLock}), изменения — под
+ * эксклюзивной блокировкой.
+ * <p>
+ * Размер индекса ограничен {@code app.index.max-entries}. При добавлении сверх лимита вытесняется одна ссылка
+ * по алгоритму CLOCK: чтение помечает ячейку, стрелка обходит таблицу, снимает пометки и вытесняет первую
+ * непомеченную ссылку. Ссылки горячего яруса не вытесняются. Вытесненная ссылка при следующем переходе
+ * читается из БД и возвращается в индекс.
+ * <p>
+ * Самые популярные коды ({@link #promote(Collection)}) дополнительно держатся в горячем ярусе — неизменяемой
+ * карте «код → готовая ссылка», которая подменяется целиком. Чтение из яруса не упаковывает код, не пробирует
+ * таблицу и не копирует URL из арены. Изменения горячей ссылки переносятся в ярус под той же блокировкой,
+ * что и изменения таблицы, поэтому ярус не расходится с индексом.
+ */
+@Component
+@Slf4j
+public class RedirectIndex implements MeterBinder {
+
+    private static final long EMPTY = 0;
+    private static final double LOAD_FACTOR = 0.7;
+
+    private final LinkRepository linkRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final StampedLock lock = new StampedLock();
+    private final int segmentBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder hotHits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final int maxEntries;
+
+    private volatile Map<String, LinkTarget> hot = Map.of();
+    private Set<Long> hotKeys = Set.of();
+
+    private long[] keys;
+    private long[] ids;
+    private long[] userMsb;
+    private long[] userLsb;
+    private long[] expiresAt;
+    private int[] maxClicks;
+    private boolean[] active;
+    private boolean[] referenced;
+    private long[] urlRefs;
+    private int[] urlLengths;
+    private UrlArena arena;
+    private int size;
+    private long garbageBytes;
+    private int clockHand;
+
+    public RedirectIndex(LinkRepository linkRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.index.initial-capacity}") int initialCapacity,
+                         @Value("${app.index.segment-bytes}") int segmentBytes,
+                         @Value("${app.index.max-entries}") int maxEntries) {
+        this.linkRepository = linkRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.segmentBytes = segmentBytes;
+        this.maxEntries = maxEntries;
+        this.arena = new UrlArena(segmentBytes);
+        allocate(tableSize(Math.min(initialCapacity, maxEntries)));
+    }
+
+    /**
+     * Возвращает ссылку из индекса.
+     *
+     * @param code Короткий код ссылки.
+     * @return Optional со ссылкой или Optional.empty(), если кода нет в индексе.
+     */
+    public Optional<LinkTarget> get(String code) {
+        LinkTarget hotTarget = hot.get(code);
+        if (hotTarget != null) {
+            hotHits.increment();
+            return Optional.of(hotTarget);
+        }
+        long key = Base62.pack(code);
+        if (key <= 0) return Optional.empty();
+        long stamp = lock.tryOptimisticRead();
+        LinkTarget target;
+        try {
+            target = read(key, code);
+        } catch (IndexOutOfBoundsException e) {
+            target = null;
+            stamp = 0;
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                target = read(key, code);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        (target == null ? misses : hits).increment();
+        return Optional.ofNullable(target);
+    }
+
+    /**
+     * Добавляет или обновляет ссылку. URL кода неизменен, поэтому при обновлении переписывается
+     * только состояние ссылки. Если индекс заполнен до {@code app.index.max-entries}, новая ссылка
+     * вытесняет одну из давно не читавшихся.
+     *
+     * @param link Сохранённая в БД ссылка.
+     */
+    public void put(LinkTarget link) {
+        long key = Base62.pack(link.code());
+        if (key <= 0 || link.id() == null) return;
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(key);
+            if (keys[slot] == EMPTY) {
+                if (size >= maxEntries && evictOne()) {
+                    compactIfNeeded();
+                    slot = find(key);
+                }
+                if (size + 1 > keys.length * LOAD_FACTOR) {
+                    allocate(keys.length * 2);
+                    slot = find(key);
+                }
+                byte[] url = link.originalUrl().getBytes(StandardCharsets.UTF_8);
+                keys[slot] = key;
+                urlRefs[slot] = arena.append(url);
+                urlLengths[slot] = url.length;
+                size++;
+            }
+            ids[slot] = link.id();
+            userMsb[slot] = link.userId() == null ? 0 : link.userId().getMostSignificantBits();
+            userLsb[slot] = link.userId() == null ? 0 : link.userId().getLeastSignificantBits();
+            expiresAt[slot] = link.expiresAt().toEpochMilli();
+            maxClicks[slot] = link.maxClicks() == null ? 0 : link.maxClicks();
+            active[slot] = link.active();
+            referenced[slot] = true;
+            refreshHot(link.code(), key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Помечает ссылку неактивной, не удаляя её: повторные переходы отвечают из индекса без обращения к БД.
+     *
+     * @param code Короткий код ссылки.
+     */
+    public void deactivate(String code) {
+        long key = Base62.pack(code);
+        if (key <= 0) return;
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(key);
+            if (keys[slot] == key) active[slot] = false;
+            refreshHot(code, key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Удаляет ссылки из индекса. Вызывается при удалении ссылок из БД.
+     *
+     * @param codes Короткие коды ссылок.
+     */
+    public void removeAll(Collection<String> codes) {
+        long stamp = lock.writeLock();
+        try {
+            for (String code : codes) {
+                long key = Base62.pack(code);
+                if (key > 0) {
+                    delete(key);
+                    refreshHot(code, key);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Заменяет горячий ярус ссылками с заданными кодами. Коды, которых нет в индексе, и неактивные ссылки пропускаются.
+     *
+     * @param codes Короткие коды популярных ссылок.
+     * @return Коды, попавшие в ярус.
+     */
+    public Set<String> promote(Collection<String> codes) {
+        long stamp = lock.writeLock();
+        try {
+            Map<String, LinkTarget> next = new HashMap<>();
+            for (String code : codes) {
+                long key = Base62.pack(code);
+                if (key <= 0) continue;
+                LinkTarget target = read(key, code);
+                if (target != null && target.active()) next.put(code, target);
+            }
+            setHot(next);
+            return hot.keySet();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return Коды ссылок в горячем ярусе.
+     */
+    public Set<String> hotCodes() {
+        return hot.keySet();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Количество ссылок, вытесненных из индекса при достижении {@code app.index.max-entries}.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return Объём внеheap-памяти, занятой ареной URL, в байтах.
+     */
+    public long offHeapBytes() {
+        return arena.capacityBytes();
+    }
+
+    /**
+     * @return Объём heap-памяти, занятой массивами индекса, в байтах (без заголовков массивов).
+     */
+    public long heapBytes() {
+        return (long) keys.length * (Long.BYTES * 6 + Integer.BYTES * 2 + 2);
+    }
+
+    /**
+     * Заполняет индекс из БД, потоково читая ссылки, но не больше {@code app.index.max-entries}.
+     * Вызывается фазой прогрева при старте.
+     */
+    public void rebuild() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<LinkTarget> targets = linkRepository.streamTargets()) {
+                targets.limit(maxEntries).forEach(this::put);
+            }
+        });
+        log.info("Индекс редиректов загружен: {} ссылок, {} КиБ вне heap", size, offHeapBytes() / 1024);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("shortlink.index.size", this, RedirectIndex::size)
+                .description("Количество ссылок в индексе редиректов")
+                .register(registry);
+        Gauge.builder("shortlink.index.offheap", this, RedirectIndex::offHeapBytes)
+                .description("Внеheap-память арены URL")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("shortlink.index.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("shortlink.index.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("shortlink.index.requests", hotHits, LongAdder::sum)
+                .tag("result", "hot")
+                .register(registry);
+        FunctionCounter.builder("shortlink.index.evictions", evictions, LongAdder::sum)
+                .description("Ссылки, вытесненные из индекса редиректов по лимиту размера")
+                .register(registry);
+        Gauge.builder("shortlink.index.hot", this, index -> index.hot.size())
+                .description("Количество ссылок в горячем ярусе индекса")
+                .register(registry);
+    }
+
+    private LinkTarget read(long key, String code) {
+        long[] keys = this.keys;
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        for (int probes = 0; probes <= mask; probes++) {
+            long current = keys[slot];
+            if (current == EMPTY) return null;
+            if (current == key) {
+                referenced[slot] = true;
+                long msb = userMsb[slot];
+                long lsb = userLsb[slot];
+                return new LinkTarget(
+                        ids[slot],
+                        msb == 0 && lsb == 0 ? null : new UUID(msb, lsb),
+                        code,
+                        new String(arena.read(urlRefs[slot], urlLengths[slot]), StandardCharsets.UTF_8),
+                        maxClicks[slot],
+                        Instant.ofEpochMilli(expiresAt[slot]),
+                        active[slot]);
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Переносит текущее состояние ссылки в горячий ярус, если код в нём есть: удалённая или деактивированная ссылка
+     * убирается из яруса. Вызывается под эксклюзивной блокировкой.
+     */
+    private void refreshHot(String code, long key) {
+        Map<String, LinkTarget> current = hot;
+        if (!current.containsKey(code)) return;
+        Map<String, LinkTarget> next = new HashMap<>(current);
+        LinkTarget target = read(key, code);
+        if (target != null && target.active()) {
+            next.put(code, target);
+        } else {
+            next.remove(code);
+        }
+        setHot(next);
+    }
+
+    private void setHot(Map<String, LinkTarget> next) {
+        hot = Map.copyOf(next);
+        Set<Long> nextKeys = new HashSet<>();
+        for (String code : next.keySet()) {
+            nextKeys.add(Base62.pack(code));
+        }
+        hotKeys = nextKeys;
+    }
+
+    /**
+     * Вытесняет одну ссылку по алгоритму CLOCK. Вызывается под эксклюзивной блокировкой.
+     *
+     * @return {@code false}, если вытеснить нечего (все ссылки в горячем ярусе).
+     */
+    private boolean evictOne() {
+        int mask = keys.length - 1;
+        for (int scanned = 0; scanned <= 2 * keys.length; scanned++) {
+            int slot = clockHand & mask;
+            clockHand = slot + 1;
+            long key = keys[slot];
+            if (key == EMPTY || hotKeys.contains(key)) continue;
+            if (referenced[slot]) {
+                referenced[slot] = false;
+                continue;
+            }
+            delete(key);
+            evictions.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private void compactIfNeeded() {
+        if (garbageBytes > segmentBytes && garbageBytes > arena.usedBytes() / 2) compact();
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Удаление с обратным сдвигом: следующие записи кластера переносятся в освободившуюся ячейку,
+     * поэтому таблице не нужны маркеры удалённых записей.
+     */
+    private void delete(long key) {
+        int mask = keys.length - 1;
+        int slot = find(key);
+        if (keys[slot] == EMPTY) return;
+        garbageBytes += urlLengths[slot];
+        size--;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = slot(keys[next], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                move(next, hole);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        ids[to] = ids[from];
+        userMsb[to] = userMsb[from];
+        userLsb[to] = userLsb[from];
+        expiresAt[to] = expiresAt[from];
+        maxClicks[to] = maxClicks[from];
+        active[to] = active[from];
+        referenced[to] = referenced[from];
+        urlRefs[to] = urlRefs[from];
+        urlLengths[to] = urlLengths[from];
+    }
+
+    /**
+     * Создаёт таблицу заданного размера и переносит в неё текущие записи.
+     */
+    private void allocate(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldIds = ids;
+        long[] oldUserMsb = userMsb;
+        long[] oldUserLsb = userLsb;
+        long[] oldExpiresAt = expiresAt;
+        int[] oldMaxClicks = maxClicks;
+        boolean[] oldActive = active;
+        boolean[] oldReferenced = referenced;
+        long[] oldUrlRefs = urlRefs;
+        int[] oldUrlLengths = urlLengths;
+
+        keys = new long[capacity];
+        ids = new long[capacity];
+        userMsb = new long[capacity];
+        userLsb = new long[capacity];
+        expiresAt = new long[capacity];
+        maxClicks = new int[capacity];
+        active = new boolean[capacity];
+        referenced = new boolean[capacity];
+        urlRefs = new long[capacity];
+        urlLengths = new int[capacity];
+        if (oldKeys == null) return;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = find(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            ids[slot] = oldIds[i];
+            userMsb[slot] = oldUserMsb[i];
+            userLsb[slot] = oldUserLsb[i];
+            expiresAt[slot] = oldExpiresAt[i];
+            maxClicks[slot] = oldMaxClicks[i];
+            active[slot] = oldActive[i];
+            referenced[slot] = oldReferenced[i];
+            urlRefs[slot] = oldUrlRefs[i];
+            urlLengths[slot] = oldUrlLengths[i];
+        }
+    }
+
+    /**
+     * Переписывает URL живых ссылок в новую арену, освобождая место удалённых.
+     */
+    private void compact() {
+        UrlArena compacted = new UrlArena(segmentBytes);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == EMPTY) continue;
+            urlRefs[i] = compacted.append(arena.read(urlRefs[i], urlLengths[i]));
+        }
+        arena = compacted;
+        garbageBytes = 0;
+    }
+
+    private static int tableSize(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) Math.ceil(expected / LOAD_FACTOR)) - 1) << 1;
+        return Math.max(16, capacity);
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Арена URL из прямых буферов фиксированного размера. Память выделяется последовательно и не освобождается
+     * по одной записи; место удалённых URL возвращается сжатием всего индекса.
+     * Ссылка на URL — номер сегмента в старших 32 битах и смещение в младших.
+     */
+    private static final class UrlArena {
+        private final int segmentBytes;
+        private volatile ByteBuffer[] segments = new ByteBuffer[0];
+        private int position;
+        private long used;
+
+        UrlArena(int segmentBytes) {
+            this.segmentBytes = segmentBytes;
+        }
+
+        long append(byte[] bytes) {
+            ByteBuffer[] current = segments;
+            if (current.length == 0 || position + bytes.length > current[current.length - 1].capacity()) {
+                current = Arrays.copyOf(current, current.length + 1);
+                current[current.length - 1] = ByteBuffer.allocateDirect(Math.max(segmentBytes, bytes.length));
+                segments = current;
+                position = 0;
+            }
+            int segment = current.length - 1;
+            current[segment].put(position, bytes);
+            long ref = ((long) segment << 32) | position;
+            position += bytes.length;
+            used += bytes.length;
+            return ref;
+        }
+
+        byte[] read(long ref, int length) {
+            byte[] bytes = new byte[length];
+            segments[(int) (ref >>> 32)].get((int) ref, bytes);
+            return bytes;
+        }
+
+        long usedBytes() {
+            return used;
+        }
+
+        long capacityBytes() {
+            long capacity = 0;
+            for (ByteBuffer segment : segments) {
+                capacity += segment.capacity();
+            }
+            return capacity;
+        }
+    }
+}
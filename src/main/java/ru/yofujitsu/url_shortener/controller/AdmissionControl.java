@@ -0,0 +1,177 @@
+package ru.yofujitsu.url_shortener.controller;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import ru.yofujitsu.url_shortener.utils.GradientConcurrencyLimiter;
+import ru.yofujitsu.url_shortener.utils.TokenBucketLimiter;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Допуск запросов к {@code POST /shorten}, {@code POST /shorten/batch} и {@code GET /{code}}; общий для
+ * сервлетного ({@link AdmissionFilter}) и реактивного ({@link ReactiveAdmissionFilter}) HTTP-слоя.
+ * <p>
+ * Сначала проверяется частота: у каждой операции свой бюджет {@code app.admission.<operation>.rate-per-s}
+ * и {@code burst}, который применяется отдельно к клиенту по {@code X-User-ID} (если заголовок передан) и по IP,
+ * поэтому смена {@code X-User-ID} не обходит ограничение с одного адреса; токен расходуется, только если он есть
+ * в обеих корзинах. Превышение — {@code 429} с {@code Retry-After}. Пакетное создание расходует бюджет создания.
+ * Затем запрос занимает место в адаптивном пределе параллелизма операции ({@link GradientConcurrencyLimiter});
+ * у одиночного и пакетного создания пределы раздельные, чтобы долгие пакеты не сдвигали базовую задержку одиночных.
+ * Если мест нет, запрос сбрасывается с {@code 503} до того, как рост очереди обрушит задержку остальных.
+ */
+@Component
+public class AdmissionControl implements MeterBinder {
+
+    /**
+     * Операция, для которой действует отдельный бюджет.
+     */
+    public enum Operation {
+        CREATE,
+        CREATE_BATCH,
+        REDIRECT;
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * @return Операция, бюджет частоты которой расходует эта.
+         */
+        Operation rateBudget() {
+            return this == CREATE_BATCH ? CREATE : this;
+        }
+    }
+
+    /**
+     * Причина отказа; значение тега {@code reason} метрики {@code shortlink.admission.rejected}.
+     */
+    enum Rejection {
+        RATE_LIMIT,
+        CONCURRENCY
+    }
+
+    private final boolean enabled;
+    private final boolean concurrencyEnabled;
+    private final Map<Operation, TokenBucketLimiter> rateLimiters = new EnumMap<>(Operation.class);
+    private final Map<Operation, GradientConcurrencyLimiter> concurrencyLimiters = new EnumMap<>(Operation.class);
+    private final Map<Operation, Map<Rejection, LongAdder>> rejected = new EnumMap<>(Operation.class);
+
+    public AdmissionControl(@Value("${app.admission.enabled}") boolean enabled,
+                            @Value("${app.admission.create.rate-per-s}") double createRate,
+                            @Value("${app.admission.create.burst}") int createBurst,
+                            @Value("${app.admission.redirect.rate-per-s}") double redirectRate,
+                            @Value("${app.admission.redirect.burst}") int redirectBurst,
+                            @Value("${app.admission.idle-timeout-s}") long idleTimeoutSeconds,
+                            @Value("${app.admission.maximum-keys}") long maximumKeys,
+                            @Value("${app.admission.concurrency.enabled}") boolean concurrencyEnabled,
+                            @Value("${app.admission.concurrency.initial-limit}") int initialLimit,
+                            @Value("${app.admission.concurrency.min-limit}") int minLimit,
+                            @Value("${app.admission.concurrency.max-limit}") int maxLimit,
+                            @Value("${app.admission.concurrency.tolerance}") double tolerance,
+                            @Value("${app.admission.concurrency.smoothing}") double smoothing) {
+        this.enabled = enabled;
+        this.concurrencyEnabled = concurrencyEnabled;
+        Duration idleTimeout = Duration.ofSeconds(idleTimeoutSeconds);
+        rateLimiters.put(Operation.CREATE, new TokenBucketLimiter(createRate, createBurst, idleTimeout, maximumKeys));
+        rateLimiters.put(Operation.REDIRECT, new TokenBucketLimiter(redirectRate, redirectBurst, idleTimeout, maximumKeys));
+        for (Operation operation : Operation.values()) {
+            concurrencyLimiters.put(operation,
+                    new GradientConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance, smoothing));
+            Map<Rejection, LongAdder> counters = new EnumMap<>(Rejection.class);
+            for (Rejection rejection : Rejection.values()) {
+                counters.put(rejection, new LongAdder());
+            }
+            rejected.put(operation, counters);
+        }
+    }
+
+    /**
+     * @return Операция, к которой относится запрос, или null, если допуск к нему не применяется.
+     */
+    public Operation operation(String method, String path) {
+        if (!enabled) return null;
+        if (HttpMethod.POST.matches(method) && path.equals("/shorten")) return Operation.CREATE;
+        if (HttpMethod.POST.matches(method) && path.equals("/shorten/batch")) return Operation.CREATE_BATCH;
+        if (HttpMethod.GET.matches(method) && RedirectFilter.code(path) != null) return Operation.REDIRECT;
+        return null;
+    }
+
+    /**
+     * Проверяет бюджет частоты операции для клиента.
+     *
+     * @param userId   Значение {@code X-User-ID} или null.
+     * @param clientIp Адрес клиента.
+     * @return 0, если запрос допущен; иначе время в наносекундах, через которое стоит повторить запрос.
+     */
+    public long checkRate(Operation operation, String userId, String clientIp) {
+        TokenBucketLimiter limiter = rateLimiters.get(operation.rateBudget());
+        long wait = userId != null
+                ? limiter.tryAcquire("user:" + userId, "ip:" + clientIp)
+                : limiter.tryAcquire("ip:" + clientIp);
+        if (wait > 0) rejected.get(operation).get(Rejection.RATE_LIMIT).increment();
+        return wait;
+    }
+
+    /**
+     * Занимает место в пределе параллелизма операции.
+     *
+     * @return true, если запрос допущен; тогда по завершении нужно вызвать {@link #release(Operation, long)}.
+     */
+    public boolean tryAcquire(Operation operation) {
+        if (!concurrencyEnabled || concurrencyLimiters.get(operation).tryAcquire()) return true;
+        rejected.get(operation).get(Rejection.CONCURRENCY).increment();
+        return false;
+    }
+
+    /**
+     * Освобождает место, занятое {@link #tryAcquire(Operation)}.
+     *
+     * @param startNanos Значение {@link System#nanoTime()} в момент допуска.
+     */
+    public void release(Operation operation, long startNanos) {
+        if (concurrencyEnabled) concurrencyLimiters.get(operation).release(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return Значение заголовка {@code Retry-After} в секундах для ожидания {@code waitNanos}.
+     */
+    static String retryAfter(long waitNanos) {
+        return Long.toString(Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Operation operation : Operation.values()) {
+            for (Rejection rejection : Rejection.values()) {
+                FunctionCounter.builder("shortlink.admission.rejected", rejected.get(operation).get(rejection), LongAdder::sum)
+                        .description("Запросы, отклонённые контролем допуска")
+                        .tag("operation", operation.key())
+                        .tag("reason", rejection.name().toLowerCase(Locale.ROOT))
+                        .register(registry);
+            }
+            GradientConcurrencyLimiter concurrency = concurrencyLimiters.get(operation);
+            Gauge.builder("shortlink.admission.limit", concurrency, GradientConcurrencyLimiter::limit)
+                    .description("Текущий адаптивный предел параллелизма")
+                    .tag("operation", operation.key())
+                    .register(registry);
+            Gauge.builder("shortlink.admission.inflight", concurrency, GradientConcurrencyLimiter::inflight)
+                    .description("Выполняемые запросы")
+                    .tag("operation", operation.key())
+                    .register(registry);
+            if (operation.rateBudget() != operation) continue;
+            Gauge.builder("shortlink.admission.buckets", rateLimiters.get(operation), TokenBucketLimiter::size)
+                    .description("Отслеживаемые клиенты ограничения частоты")
+                    .tag("operation", operation.key())
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yofujitsu.url_shortener.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yofujitsu.url_shortener.controller.AdmissionControl.Operation;
+
+import java.io.IOException;
+
+/**
+ * Контроль допуска ({@link AdmissionControl}) для сервлетного стека. Выполняется раньше {@link RedirectFilter}
+ * и Spring MVC, но после фильтра наблюдения Spring Boot, поэтому отказы попадают в {@code http.server.requests}.
+ * Адрес клиента берётся из {@link HttpServletRequest#getRemoteAddr()}; за прокси нужна настройка
+ * {@code server.forward-headers-strategy}.
+ */
+@Component
+@Profile("!reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 100)
+@RequiredArgsConstructor
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final AdmissionControl admissionControl;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Operation operation = admissionControl.operation(request.getMethod(), request.getRequestURI());
+        if (operation == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long wait = admissionControl.checkRate(operation, request.getHeader("X-User-ID"), request.getRemoteAddr());
+        if (wait > 0) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, AdmissionControl.retryAfter(wait));
+            return;
+        }
+        if (!admissionControl.tryAcquire(operation)) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, "1");
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            admissionControl.release(operation, start);
+        }
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, String retryAfter) {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yofujitsu.url_shortener.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkRequestDto;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkResponseDto;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Ответы {@code POST /shorten} по заголовку {@value #HEADER}, общие для сервлетного и реактивного HTTP-слоя.
+ * Ключ действует в пределах пользователя ({@code X-User-ID} или cookie, выданной сервером) в течение
+ * {@code app.idempotency.ttl-s}; запрос без известного пользователя ключ не использует, иначе разные анонимные
+ * клиенты с одинаковым ключом получали бы чужие ссылки. Повтор с тем же ключом получает сохранённый ответ без создания ссылки;
+ * повтор, пришедший во время выполнения первого запроса, дожидается его результата.
+ * Повтор с тем же ключом, но другим телом отклоняется с {@code 422}. Неуспешный запрос ключ не занимает.
+ */
+@Component
+public class IdempotencyCache {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final Cache<Key, Entry> entries;
+
+    public IdempotencyCache(@Value("${app.idempotency.ttl-s}") long ttlSeconds,
+                            @Value("${app.idempotency.maximum-size}") long maximumSize) {
+        this.entries = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Выполняет создание ссылки не больше одного раза на ключ.
+     *
+     * @param userId  Пользователь из {@code X-User-ID} или cookie.
+     * @param key     Значение заголовка {@value #HEADER}.
+     * @param request Тело запроса.
+     * @param action  Создание ссылки.
+     * @return Ответ первого запроса с этим ключом.
+     */
+    public ShortLinkResponseDto execute(UUID userId, String key, ShortLinkRequestDto request,
+                                        Supplier<ShortLinkResponseDto> action) {
+        CompletableFuture<ShortLinkResponseDto> created = new CompletableFuture<>();
+        Key cacheKey = new Key(userId, key);
+        Entry existing = claim(cacheKey, request, created);
+        if (existing != null) return await(existing.response());
+        try {
+            ShortLinkResponseDto response = action.get();
+            created.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            release(cacheKey, created, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Реактивный вариант {@link #execute(UUID, String, ShortLinkRequestDto, Supplier)}.
+     */
+    public Mono<ShortLinkResponseDto> execute(UUID userId, String key, ShortLinkRequestDto request,
+                                              Mono<ShortLinkResponseDto> action) {
+        return Mono.defer(() -> {
+            CompletableFuture<ShortLinkResponseDto> created = new CompletableFuture<>();
+            Key cacheKey = new Key(userId, key);
+            Entry existing = claim(cacheKey, request, created);
+            if (existing != null) return Mono.fromFuture(existing.response(), true);
+            return action
+                    .doOnNext(created::complete)
+                    .doOnError(e -> release(cacheKey, created, e))
+                    .doOnCancel(() -> release(cacheKey, created, new CancellationException()));
+        });
+    }
+
+    private Entry claim(Key key, ShortLinkRequestDto request, CompletableFuture<ShortLinkResponseDto> created) {
+        if (key.key().isEmpty() || key.key().length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    HEADER + " должен содержать от 1 до " + MAX_KEY_LENGTH + " символов");
+        }
+        Entry existing = entries.asMap().putIfAbsent(key, new Entry(request, created));
+        if (existing != null && !existing.request().equals(request)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " уже использован с другим телом запроса");
+        }
+        return existing;
+    }
+
+    private void release(Key key, CompletableFuture<ShortLinkResponseDto> created, Throwable error) {
+        entries.asMap().computeIfPresent(key, (k, entry) -> entry.response() == created ? null : entry);
+        created.completeExceptionally(error);
+    }
+
+    private static ShortLinkResponseDto await(CompletableFuture<ShortLinkResponseDto> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private record Key(UUID userId, String key) {
+    }
+
+    private record Entry(ShortLinkRequestDto request, CompletableFuture<ShortLinkResponseDto> response) {
+    }
+}
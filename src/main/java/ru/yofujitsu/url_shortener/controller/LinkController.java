@@ -1,50 +1,212 @@
 package ru.yofujitsu.url_shortener.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import ru.yofujitsu.url_shortener.model.dto.ArchivedLinkDto;
+import ru.yofujitsu.url_shortener.model.dto.HotLinkDto;
+import ru.yofujitsu.url_shortener.model.dto.LinkStatsDto;
 import ru.yofujitsu.url_shortener.model.dto.ShortLinkRequestDto;
 import ru.yofujitsu.url_shortener.model.dto.ShortLinkResponseDto;
 import ru.yofujitsu.url_shortener.model.entity.Link;
 import ru.yofujitsu.url_shortener.service.ShortLinkService;
 
 import java.io.IOException;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
+@Profile("!reactive")
 @RequiredArgsConstructor
 public class LinkController {
+    static final String USER_COOKIE = "SHORTLINK_USER";
+
     private final ShortLinkService shortLinkService;
+    private final ObjectMapper objectMapper;
+    private final RedirectResponder redirectResponder;
+    private final IdempotencyCache idempotencyCache;
     @Value("${app.base-url}")
     private String baseUrl;
+    @Value("${app.batch.chunk-size}")
+    private int batchChunkSize;
 
+    /**
+     * Создание ссылки. С заголовком {@value IdempotencyCache#HEADER} повтор запроса возвращает первый ответ
+     * (см. {@link IdempotencyCache}). Ключ учитывается только для известного пользователя — из {@code X-User-ID}
+     * или cookie {@value #USER_COOKIE}: запрос без них получает новый идентификатор и создаёт ссылку без ключа,
+     * а cookie выставляется только при выдаче нового идентификатора, а не из сохранённого ответа.
+     * Некорректные параметры ({@link ShortLinkRequestDto#violation()}) отклоняются с {@code 400}.
+     */
     @PostMapping("/shorten")
     public ResponseEntity<?> createShort(@RequestHeader(value = "X-User-ID", required = false) UUID userId,
+                                         @CookieValue(value = USER_COOKIE, required = false) String userCookie,
+                                         @RequestHeader(value = IdempotencyCache.HEADER, required = false) String idempotencyKey,
                                          @RequestBody ShortLinkRequestDto shortLinkRequestDto,
                                          HttpServletResponse response) {
-        if (userId == null) {
-            userId = UUID.randomUUID();
-            Cookie cookie = new Cookie("SHORTLINK_USER", userId.toString());
-            cookie.setPath("/");
-            cookie.setMaxAge(60 * 60 * 24 * 365);
-            response.addCookie(cookie);
+        String violation = shortLinkRequestDto.violation();
+        if (violation != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, violation);
+        }
+        UUID knownUser = knownUserId(userId, userCookie);
+        UUID owner = resolveUserId(knownUser, response);
+        ShortLinkResponseDto created = idempotencyKey == null || knownUser == null
+                ? create(owner, shortLinkRequestDto)
+                : idempotencyCache.execute(owner, idempotencyKey, shortLinkRequestDto, () -> create(owner, shortLinkRequestDto));
+        return ResponseEntity.ok(created);
+    }
+
+    /**
+     * Пакетное создание ссылок. Тело запроса — JSON-массив {@link ShortLinkRequestDto}, который читается потоково
+     * и обрабатывается порциями по {@code app.batch.chunk-size}; ответ — JSON-массив {@link ShortLinkResponseDto}
+     * в том же порядке, записываемый по мере сохранения порций.
+     * Элемент, не являющийся объектом или с некорректными параметрами ({@link ShortLinkRequestDto#violation()}),
+     * и незакрытый массив отклоняются с {@code 400} и номером элемента ещё до сохранения его порции. Если к этому
+     * моменту часть ответа уже отправлена, статус изменить нельзя: ответ обрывается без закрывающей скобки массива,
+     * чтобы клиент не принял его за полный.
+     */
+    @PostMapping(value = "/shorten/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void createShortBatch(@RequestHeader(value = "X-User-ID", required = false) UUID userId,
+                                 @CookieValue(value = USER_COOKIE, required = false) String userCookie,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(request.getInputStream())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ожидается JSON-массив ссылок");
+            }
+            UUID owner = resolveUserId(knownUserId(userId, userCookie), response);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            JsonGenerator generator = null;
+            try {
+                List<ShortLinkRequestDto> chunk = new ArrayList<>(batchChunkSize);
+                int index = 0;
+                for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken(), index++) {
+                    if (token != JsonToken.START_OBJECT) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, token == null
+                                ? "Массив ссылок не закрыт, получено элементов: " + index
+                                : "Элемент " + index + " не является объектом ссылки");
+                    }
+                    ShortLinkRequestDto element = objectMapper.readValue(parser, ShortLinkRequestDto.class);
+                    String violation = element.violation();
+                    if (violation != null) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Элемент " + index + ": " + violation);
+                    }
+                    chunk.add(element);
+                    if (chunk.size() == batchChunkSize) {
+                        generator = writeChunk(owner, chunk, generator, response);
+                        chunk.clear();
+                    }
+                }
+                generator = writeChunk(owner, chunk, generator, response);
+                generator.writeEndArray();
+            } finally {
+                if (generator != null) generator.close();
+            }
         }
-        Link link = shortLinkService.createLink(userId, shortLinkRequestDto.originalUrl(), shortLinkRequestDto.maxClicks());
-        return ResponseEntity.ok(new ShortLinkResponseDto(link.getCode(), baseUrl + link.getCode(), userId));
     }
 
+    /**
+     * Редирект по короткому коду; ответ формирует {@link RedirectResponder}.
+     * При включённом быстром пути ({@code app.redirect.fast-path}) переходы обрабатывает {@link RedirectFilter},
+     * а сюда попадают только коды, для которых фильтр уже не нашёл ссылку.
+     */
     @GetMapping("/{code}")
-    public void redirect(@PathVariable String code, HttpServletResponse response) throws IOException {
-        Optional<String> target = shortLinkService.handleRedirect(code);
-        if (target.isPresent()) {
-            response.sendRedirect(target.get());
-        } else {
-            response.sendError(HttpStatus.NOT_FOUND.value(), "Ссылка не доступна");
+    public void redirect(@PathVariable String code, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (request.getAttribute(RedirectFilter.NOT_FOUND_ATTRIBUTE) != null) {
+            redirectResponder.notFound(response);
+            return;
+        }
+        redirectResponder.redirect(code, request, response);
+    }
+
+    /**
+     * Статистика переходов по ссылке: поминутные и почасовые счётчики, частые referrer'ы и оценка числа уникальных User-Agent.
+     */
+    @GetMapping("/links/{code}/stats")
+    public LinkStatsDto stats(@PathVariable String code) {
+        return shortLinkService.getStats(code)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Ссылка не найдена"));
+    }
+
+    /**
+     * Удалённая просроченная ссылка из архива (при {@code app.archive.enabled}).
+     */
+    @GetMapping("/archive/{code}")
+    public ArchivedLinkDto archived(@PathVariable String code) {
+        return shortLinkService.getArchived(code)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Ссылки нет в архиве"));
+    }
+
+    /**
+     * Популярные ссылки по убыванию оценки недавних переходов и признак их нахождения в горячем ярусе.
+     */
+    @GetMapping("/admin/hot-links")
+    public List<HotLinkDto> hotLinks() {
+        return shortLinkService.getHotLinks();
+    }
+
+    private ShortLinkResponseDto create(UUID owner, ShortLinkRequestDto request) {
+        Link link = shortLinkService.createLink(owner, request.originalUrl(), request.maxClicks());
+        return new ShortLinkResponseDto(link.getCode(), baseUrl + link.getCode(), owner);
+    }
+
+    /**
+     * @return Пользователь из {@code X-User-ID}, иначе из cookie {@value #USER_COOKIE}; null, если его нет
+     * или cookie не содержит UUID.
+     */
+    private static UUID knownUserId(UUID userId, String userCookie) {
+        if (userId != null || userCookie == null) return userId;
+        try {
+            return UUID.fromString(userCookie);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static UUID resolveUserId(UUID knownUser, HttpServletResponse response) {
+        if (knownUser != null) return knownUser;
+        UUID userId = UUID.randomUUID();
+        addUserCookie(userId, response);
+        return userId;
+    }
+
+    private static void addUserCookie(UUID userId, HttpServletResponse response) {
+        Cookie cookie = new Cookie(USER_COOKIE, userId.toString());
+        cookie.setPath("/");
+        cookie.setMaxAge(60 * 60 * 24 * 365);
+        response.addCookie(cookie);
+    }
+
+    /**
+     * Сохраняет порцию и дописывает её в ответ. Генератор создаётся при первой записи, чтобы ошибка во входных данных
+     * до первой порции ещё могла вернуть {@code 400}.
+     */
+    private JsonGenerator writeChunk(UUID userId, List<ShortLinkRequestDto> chunk, JsonGenerator generator,
+                                     HttpServletResponse response) throws IOException {
+        if (generator == null) {
+            generator = objectMapper.createGenerator(response.getOutputStream())
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartArray();
+        }
+        if (chunk.isEmpty()) return generator;
+        for (Link link : shortLinkService.createLinks(userId, chunk)) {
+            generator.writeObject(new ShortLinkResponseDto(link.getCode(), baseUrl + link.getCode(), userId));
         }
+        generator.flush();
+        return generator;
     }
 }
@@ -0,0 +1,56 @@
+package ru.yofujitsu.url_shortener.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import ru.yofujitsu.url_shortener.controller.AdmissionControl.Operation;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Контроль допуска ({@link AdmissionControl}) для профиля {@code reactive}; повторяет {@link AdmissionFilter}.
+ * Место в пределе параллелизма освобождается по завершении, ошибке или отмене обработки.
+ */
+@Component
+@Profile("reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 100)
+public class ReactiveAdmissionFilter implements WebFilter {
+
+    private final AdmissionControl admissionControl;
+
+    public ReactiveAdmissionFilter(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        Operation operation = admissionControl.operation(request.getMethod().name(), request.getPath().value());
+        if (operation == null) return chain.filter(exchange);
+        InetSocketAddress remote = request.getRemoteAddress();
+        String clientIp = remote != null ? remote.getHostString() : "unknown";
+        long wait = admissionControl.checkRate(operation, request.getHeaders().getFirst("X-User-ID"), clientIp);
+        if (wait > 0) return reject(exchange.getResponse(), HttpStatus.TOO_MANY_REQUESTS, AdmissionControl.retryAfter(wait));
+        if (!admissionControl.tryAcquire(operation)) {
+            return reject(exchange.getResponse(), HttpStatus.SERVICE_UNAVAILABLE, "1");
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> admissionControl.release(operation, start));
+    }
+
+    private static Mono<Void> reject(ServerHttpResponse response, HttpStatus status, String retryAfter) {
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.getHeaders().setCacheControl("no-store");
+        return response.setComplete();
+    }
+}
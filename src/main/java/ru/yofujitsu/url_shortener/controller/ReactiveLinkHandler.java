@@ -0,0 +1,186 @@
+package ru.yofujitsu.url_shortener.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yofujitsu.url_shortener.cache.CodeFilter;
+import ru.yofujitsu.url_shortener.controller.RedirectPolicy.Decision;
+import ru.yofujitsu.url_shortener.model.dto.LinkStatsDto;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkRequestDto;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkResponseDto;
+import ru.yofujitsu.url_shortener.service.ReactiveShortLinkService;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Обработчики WebFlux для профиля {@code reactive}; повторяют эндпоинты {@link LinkController}.
+ * Маршруты объявлены в {@link ReactiveWebConfig}.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveLinkHandler {
+
+    private static final String USER_COOKIE = LinkController.USER_COOKIE;
+
+    private final ReactiveShortLinkService shortLinkService;
+    private final CodeFilter codeFilter;
+    private final RedirectPolicy redirectPolicy;
+    private final IdempotencyCache idempotencyCache;
+    private final String baseUrl;
+    private final int batchChunkSize;
+
+    public ReactiveLinkHandler(ReactiveShortLinkService shortLinkService,
+                               CodeFilter codeFilter,
+                               RedirectPolicy redirectPolicy,
+                               IdempotencyCache idempotencyCache,
+                               @Value("${app.base-url}") String baseUrl,
+                               @Value("${app.batch.chunk-size}") int batchChunkSize) {
+        this.shortLinkService = shortLinkService;
+        this.codeFilter = codeFilter;
+        this.redirectPolicy = redirectPolicy;
+        this.idempotencyCache = idempotencyCache;
+        this.baseUrl = baseUrl;
+        this.batchChunkSize = batchChunkSize;
+    }
+
+    /**
+     * Создание ссылки; заголовок {@value IdempotencyCache#HEADER} и cookie пользователя обрабатываются так же,
+     * как в {@link LinkController}; некорректные параметры отклоняются с {@code 400}.
+     */
+    public Mono<ServerResponse> createShort(ServerRequest request) {
+        UUID knownUser = knownUserId(request);
+        UUID userId = knownUser != null ? knownUser : UUID.randomUUID();
+        String idempotencyKey = request.headers().firstHeader(IdempotencyCache.HEADER);
+        return request.bodyToMono(ShortLinkRequestDto.class)
+                .flatMap(dto -> {
+                    String violation = dto.violation();
+                    if (violation != null) {
+                        return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, violation));
+                    }
+                    Mono<ShortLinkResponseDto> create = shortLinkService.createLink(userId, dto.originalUrl(), dto.maxClicks())
+                            .map(link -> new ShortLinkResponseDto(link.getCode(), baseUrl + link.getCode(), userId));
+                    return idempotencyKey == null || knownUser == null
+                            ? create
+                            : idempotencyCache.execute(userId, idempotencyKey, dto, create);
+                })
+                .flatMap(created -> withUserCookie(ServerResponse.ok(), knownUser, userId).bodyValue(created));
+    }
+
+    /**
+     * Пакетное создание ссылок: элементы JSON-массива декодируются потоково и сохраняются порциями
+     * по {@code app.batch.chunk-size}. Элемент с некорректными параметрами обрывает поток с {@code 400}
+     * и номером элемента до сохранения его порции.
+     */
+    public Mono<ServerResponse> createShortBatch(ServerRequest request) {
+        UUID knownUser = knownUserId(request);
+        UUID userId = knownUser != null ? knownUser : UUID.randomUUID();
+        Flux<ShortLinkResponseDto> created = request.bodyToFlux(ShortLinkRequestDto.class)
+                .index()
+                .map(element -> {
+                    String violation = element.getT2().violation();
+                    if (violation != null) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Элемент " + element.getT1() + ": " + violation);
+                    }
+                    return element.getT2();
+                })
+                .buffer(batchChunkSize)
+                .concatMap(chunk -> shortLinkService.createLinks(userId, chunk))
+                .flatMapIterable(links -> links)
+                .map(link -> new ShortLinkResponseDto(link.getCode(), baseUrl + link.getCode(), userId));
+        return withUserCookie(ServerResponse.ok(), knownUser, userId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(created, ShortLinkResponseDto.class);
+    }
+
+    /**
+     * Редирект по короткому коду; код ответа и кеширование выбирает {@link RedirectPolicy}.
+     */
+    public Mono<ServerResponse> redirect(ServerRequest request) {
+        String code = request.pathVariable("code");
+        if (!codeFilter.mightContain(code)) return notFound();
+        HttpHeaders headers = request.headers().asHttpHeaders();
+        return shortLinkService.resolveRedirect(code, headers.getFirst(HttpHeaders.REFERER), headers.getFirst(HttpHeaders.USER_AGENT))
+                .flatMap(redirect -> {
+                    if (redirect.link() == null) return notFound();
+                    Decision decision = redirectPolicy.decide(redirect.link());
+                    if (decision.etag() != null && headers.getIfNoneMatch().contains(decision.etag())) {
+                        return ServerResponse.status(HttpStatus.NOT_MODIFIED)
+                                .header(HttpHeaders.CACHE_CONTROL, decision.cacheControl())
+                                .eTag(decision.etag())
+                                .build();
+                    }
+                    ServerResponse.BodyBuilder response = ServerResponse.status(decision.status())
+                            .location(URI.create(redirect.url()))
+                            .header(HttpHeaders.CACHE_CONTROL, decision.cacheControl());
+                    if (decision.etag() != null) response.eTag(decision.etag());
+                    return response.build();
+                });
+    }
+
+    public Mono<ServerResponse> stats(ServerRequest request) {
+        return shortLinkService.getStats(request.pathVariable("code"))
+                .flatMap(stats -> ServerResponse.ok().bodyValue(stats))
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build()));
+    }
+
+    public Mono<ServerResponse> hotLinks(ServerRequest request) {
+        return shortLinkService.getHotLinks().flatMap(links -> ServerResponse.ok().bodyValue(links));
+    }
+
+    public Mono<ServerResponse> archived(ServerRequest request) {
+        return shortLinkService.getArchived(request.pathVariable("code"))
+                .flatMap(link -> ServerResponse.ok().bodyValue(link))
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build()));
+    }
+
+    private static Mono<ServerResponse> notFound() {
+        return ServerResponse.status(HttpStatus.NOT_FOUND).header(HttpHeaders.CACHE_CONTROL, "no-store").build();
+    }
+
+    /**
+     * @return Пользователь из {@code X-User-ID}, иначе из cookie {@value #USER_COOKIE}; null, если его нет
+     * или cookie не содержит UUID.
+     */
+    private static UUID knownUserId(ServerRequest request) {
+        String header = request.headers().firstHeader("X-User-ID");
+        if (header != null) {
+            try {
+                return UUID.fromString(header);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный X-User-ID: " + header);
+            }
+        }
+        HttpCookie cookie = request.cookies().getFirst(USER_COOKIE);
+        if (cookie == null) return null;
+        try {
+            return UUID.fromString(cookie.getValue());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Выставляет cookie только при выдаче нового идентификатора ({@code knownUser == null}).
+     */
+    private static ServerResponse.BodyBuilder withUserCookie(ServerResponse.BodyBuilder response, UUID knownUser, UUID userId) {
+        if (knownUser == null) {
+            response.cookie(ResponseCookie.from(USER_COOKIE, userId.toString())
+                    .path("/")
+                    .maxAge(Duration.ofDays(365))
+                    .build());
+        }
+        return response;
+    }
+}
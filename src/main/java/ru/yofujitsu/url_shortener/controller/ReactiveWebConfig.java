@@ -0,0 +1,39 @@
+package ru.yofujitsu.url_shortener.controller;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Веб-слой профиля {@code reactive}: сервер Netty и маршруты {@link ReactiveLinkHandler}.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveWebConfig {
+
+    /**
+     * Tomcat остаётся в classpath ради сервлетного варианта и без явной фабрики был бы выбран и для WebFlux;
+     * Netty обслуживает все соединения несколькими потоками event loop.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> linkRoutes(ReactiveLinkHandler handler) {
+        return route(POST("/shorten/batch"), handler::createShortBatch)
+                .andRoute(POST("/shorten"), handler::createShort)
+                .andRoute(GET("/links/{code}/stats"), handler::stats)
+                .andRoute(GET("/archive/{code}"), handler::archived)
+                .andRoute(GET("/admin/hot-links"), handler::hotLinks)
+                .andRoute(GET("/{code}"), handler::redirect);
+    }
+}
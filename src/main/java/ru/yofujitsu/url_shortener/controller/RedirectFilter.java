@@ -0,0 +1,75 @@
+package ru.yofujitsu.url_shortener.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yofujitsu.url_shortener.cache.CodeFilter;
+import ru.yofujitsu.url_shortener.service.ShortLinkMetrics.RedirectOutcome;
+import ru.yofujitsu.url_shortener.service.ShortLinkService.Redirect;
+
+import java.io.IOException;
+
+/**
+ * Быстрый путь редиректа: обрабатывает {@code GET /{code}} на уровне сервлет-фильтра, минуя диспетчеризацию
+ * Spring MVC, поиск обработчика и связывание {@code @PathVariable}.
+ * <p>
+ * Обрабатываются только пути из одного сегмента из символов base62. Если код отклонён {@link CodeFilter}
+ * или ссылки нет, запрос передаётся дальше по цепочке: одноимённые эндпоинты ({@code /actuator}, {@code /error})
+ * продолжают работать, а для неизвестных кодов 404 отвечает {@link LinkController} без повторной обработки.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "app.redirect.fast-path", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class RedirectFilter extends OncePerRequestFilter {
+
+    /**
+     * Атрибут запроса: код уже обработан фильтром, и ссылки с ним нет.
+     */
+    static final String NOT_FOUND_ATTRIBUTE = RedirectFilter.class.getName() + ".NOT_FOUND";
+
+    private final RedirectResponder redirectResponder;
+    private final CodeFilter codeFilter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod()) || code(request.getRequestURI()) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String code = code(request.getRequestURI());
+        if (!codeFilter.mightContain(code)) {
+            request.setAttribute(NOT_FOUND_ATTRIBUTE, Boolean.TRUE);
+            chain.doFilter(request, response);
+            return;
+        }
+        Redirect redirect = redirectResponder.resolve(code, request);
+        if (redirect.outcome() == RedirectOutcome.NOT_FOUND) {
+            request.setAttribute(NOT_FOUND_ATTRIBUTE, Boolean.TRUE);
+            chain.doFilter(request, response);
+            return;
+        }
+        redirectResponder.write(redirect, request, response);
+    }
+
+    /**
+     * @return Код из пути вида {@code /aB3xY9} или null, если путь другой формы.
+     */
+    static String code(String uri) {
+        if (uri.length() < 2 || uri.charAt(0) != '/') return null;
+        for (int i = 1; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z')) return null;
+        }
+        return uri.substring(1);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yofujitsu.url_shortener.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yofujitsu.url_shortener.model.projection.LinkTarget;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Выбор кода ответа и заголовков кеширования для редиректа; общий для сервлетного ({@link RedirectResponder})
+ * и реактивного ({@link ReactiveLinkHandler}) HTTP-слоя.
+ * <p>
+ * В режиме {@code app.redirect.mode=cacheable} переход по ссылке без лимита, которой осталось жить не меньше
+ * {@code app.redirect.min-cacheable-ttl-s}, отдаётся постоянным редиректом ({@code app.redirect.permanent-status})
+ * с {@code Cache-Control: public, max-age} не дольше оставшегося срока и {@code ETag} для условных запросов.
+ * Остальные переходы, в том числе по ссылкам с лимитом, где важен каждый клик, и все переходы в режиме
+ * {@code temporary} отдаются временным редиректом ({@code app.redirect.temporary-status}) с {@code Cache-Control: no-store}.
+ */
+@Component
+public class RedirectPolicy {
+
+    /**
+     * Режим кеширования редиректов.
+     */
+    public enum Mode {
+        /** Только временные редиректы без кеширования. */
+        TEMPORARY,
+        /** Постоянные кешируемые редиректы для ссылок без лимита. */
+        CACHEABLE
+    }
+
+    private final Mode mode;
+    private final int permanentStatus;
+    private final int temporaryStatus;
+    private final long maxAgeSeconds;
+    private final long minCacheableTtlSeconds;
+
+    public RedirectPolicy(@Value("${app.redirect.mode}") Mode mode,
+                          @Value("${app.redirect.permanent-status}") int permanentStatus,
+                          @Value("${app.redirect.temporary-status}") int temporaryStatus,
+                          @Value("${app.redirect.max-age-s}") long maxAgeSeconds,
+                          @Value("${app.redirect.min-cacheable-ttl-s}") long minCacheableTtlSeconds) {
+        if (!Set.of(301, 308).contains(permanentStatus)) {
+            throw new IllegalArgumentException("app.redirect.permanent-status должен быть 301 или 308: " + permanentStatus);
+        }
+        if (!Set.of(302, 307).contains(temporaryStatus)) {
+            throw new IllegalArgumentException("app.redirect.temporary-status должен быть 302 или 307: " + temporaryStatus);
+        }
+        this.mode = mode;
+        this.permanentStatus = permanentStatus;
+        this.temporaryStatus = temporaryStatus;
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.minCacheableTtlSeconds = minCacheableTtlSeconds;
+    }
+
+    /**
+     * @param link Ссылка, по которой выполняется переход.
+     * @return Код ответа, значение {@code Cache-Control} и {@code ETag} (null для некешируемого ответа).
+     */
+    public Decision decide(LinkTarget link) {
+        long ttl = Duration.between(Instant.now(), link.expiresAt()).toSeconds();
+        if (mode == Mode.CACHEABLE && !link.limited() && ttl >= minCacheableTtlSeconds) {
+            return new Decision(permanentStatus, "public, max-age=" + Math.min(maxAgeSeconds, ttl), etag(link));
+        }
+        return new Decision(temporaryStatus, "no-store", null);
+    }
+
+    /**
+     * Тег меняется вместе с адресом или сроком действия ссылки.
+     */
+    private static String etag(LinkTarget link) {
+        return "\"" + Integer.toHexString(link.originalUrl().hashCode()) + "-"
+                + Long.toHexString(link.expiresAt().getEpochSecond()) + "\"";
+    }
+
+    public record Decision(int status, String cacheControl, String etag) {
+    }
+}
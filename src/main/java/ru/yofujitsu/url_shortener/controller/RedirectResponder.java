@@ -0,0 +1,67 @@
+package ru.yofujitsu.url_shortener.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.yofujitsu.url_shortener.cache.CodeFilter;
+import ru.yofujitsu.url_shortener.controller.RedirectPolicy.Decision;
+import ru.yofujitsu.url_shortener.service.ShortLinkService;
+import ru.yofujitsu.url_shortener.service.ShortLinkService.Redirect;
+
+import java.io.IOException;
+
+/**
+ * Формирует HTTP-ответ редиректа; используется и {@link LinkController}, и {@link RedirectFilter}.
+ * Код ответа и кеширование выбирает {@link RedirectPolicy}; на {@code If-None-Match} с тегом кешируемого
+ * редиректа отвечает 304.
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class RedirectResponder {
+
+    private static final String NOT_AVAILABLE = "Ссылка не доступна";
+
+    private final ShortLinkService shortLinkService;
+    private final CodeFilter codeFilter;
+    private final RedirectPolicy redirectPolicy;
+
+    /**
+     * Обрабатывает переход по коду. Коды, которых точно нет ({@link CodeFilter}), отклоняются с 404
+     * без обращения к сервису и БД.
+     */
+    public void redirect(String code, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!codeFilter.mightContain(code)) {
+            notFound(response);
+            return;
+        }
+        write(resolve(code, request), request, response);
+    }
+
+    Redirect resolve(String code, HttpServletRequest request) {
+        return shortLinkService.resolveRedirect(code,
+                request.getHeader(HttpHeaders.REFERER), request.getHeader(HttpHeaders.USER_AGENT));
+    }
+
+    void write(Redirect redirect, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (redirect.link() == null) {
+            notFound(response);
+            return;
+        }
+        Decision decision = redirectPolicy.decide(redirect.link());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, decision.cacheControl());
+        if (decision.etag() != null && new ServletWebRequest(request, response).checkNotModified(decision.etag())) return;
+        response.setStatus(decision.status());
+        response.setHeader(HttpHeaders.LOCATION, redirect.url());
+    }
+
+    void notFound(HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.sendError(HttpStatus.NOT_FOUND.value(), NOT_AVAILABLE);
+    }
+}
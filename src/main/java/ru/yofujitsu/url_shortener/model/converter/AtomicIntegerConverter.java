@@ -0,0 +1,24 @@
+package ru.yofujitsu.url_shortener.model.converter;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Хранит {@link AtomicInteger} в обычной целочисленной колонке,
+ * чтобы счётчик можно было изменять SQL-выражениями вида {@code clicks = clicks + ?}.
+ */
+@Converter
+public class AtomicIntegerConverter implements AttributeConverter<AtomicInteger, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(AtomicInteger attribute) {
+        return attribute == null ? 0 : attribute.get();
+    }
+
+    @Override
+    public AtomicInteger convertToEntityAttribute(Integer dbData) {
+        return new AtomicInteger(dbData == null ? 0 : dbData);
+    }
+}
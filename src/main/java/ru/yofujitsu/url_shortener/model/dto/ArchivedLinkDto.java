@@ -0,0 +1,21 @@
+package ru.yofujitsu.url_shortener.model.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Просроченная ссылка из архива ({@code GET /archive/{code}}): состояние строки {@code links} на момент удаления.
+ */
+public record ArchivedLinkDto(
+        long id,
+        String code,
+        String originalUrl,
+        UUID userId,
+        int maxClicks,
+        int clicks,
+        Instant createdAt,
+        Instant expiresAt,
+        boolean active,
+        Instant archivedAt
+) {
+}
@@ -0,0 +1,13 @@
+package ru.yofujitsu.url_shortener.model.dto;
+
+/**
+ * Популярная ссылка ({@code GET /admin/hot-links}). Оценки числа переходов относятся к скользящему окну
+ * детектора и пересчитаны с учётом выборки: {@code hits} — оценка сверху, {@code guaranteedHits} — снизу.
+ */
+public record HotLinkDto(
+        String code,
+        long hits,
+        long guaranteedHits,
+        boolean promoted
+) {
+}
@@ -0,0 +1,19 @@
+package ru.yofujitsu.url_shortener.model.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public record LinkStatsDto(
+        String code,
+        long clicks,
+        long uniqueAgents,
+        List<Bucket> minutes,
+        List<Bucket> hours,
+        List<ReferrerClicks> topReferrers
+) {
+    public record Bucket(Instant start, long clicks) {
+    }
+
+    public record ReferrerClicks(String referrer, long clicks) {
+    }
+}
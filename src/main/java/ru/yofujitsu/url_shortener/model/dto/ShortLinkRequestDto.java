@@ -4,4 +4,19 @@ public record ShortLinkRequestDto(
         String originalUrl,
         int maxClicks
 ) {
+
+    /** Максимальная длина URL, совпадает с размером столбца {@code links.original_url}. */
+    public static final int MAX_URL_LENGTH = 2048;
+
+    /**
+     * Проверяет параметры ссылки до сохранения.
+     *
+     * @return описание ошибки или {@code null}, если параметры корректны
+     */
+    public String violation() {
+        if (originalUrl == null || originalUrl.isBlank()) return "не указан originalUrl";
+        if (originalUrl.length() > MAX_URL_LENGTH) return "originalUrl длиннее " + MAX_URL_LENGTH + " символов";
+        if (maxClicks < 0) return "maxClicks не может быть отрицательным";
+        return null;
+    }
 }
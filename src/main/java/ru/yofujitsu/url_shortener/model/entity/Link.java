@@ -3,15 +3,16 @@ package ru.yofujitsu.url_shortener.model.entity;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import ru.yofujitsu.url_shortener.model.converter.AtomicIntegerConverter;
 
 import java.time.Instant;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Entity
-@Table(name = "links", indexes = {
-        @Index(columnList = "code"),
-        @Index(columnList = "user_id")
+@Table(name = "links", uniqueConstraints = @UniqueConstraint(name = "uk_links_code", columnNames = "code"), indexes = {
+        @Index(columnList = "user_id, url_hash"),
+        @Index(columnList = "expires_at")
 })
 @Getter
 @Setter
@@ -22,15 +23,19 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class Link {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "links_seq")
+    @SequenceGenerator(name = "links_seq", sequenceName = "links_seq", allocationSize = 50)
     private Long id;
     private UUID userId;
-    @Column(nullable = false, unique = true)
-    private String code;
     @Column(nullable = false)
+    private String code;
+    @Column(nullable = false, length = 2048)
     private String originalUrl;
+    private Long urlHash; // UrlHash.of(originalUrl)
     private Integer maxClicks; // 0 = unlimited
     @Builder.Default
+    @Convert(converter = AtomicIntegerConverter.class)
+    @Column(nullable = false)
     private AtomicInteger clicks = new AtomicInteger(0);
     @CreationTimestamp
     private Instant createdAt;
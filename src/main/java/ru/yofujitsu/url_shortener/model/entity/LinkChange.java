@@ -0,0 +1,43 @@
+package ru.yofujitsu.url_shortener.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Запись журнала изменений ссылок ({@code link_changes}), по которому узлы обновляют локальные кеши.
+ * Пишется и читается через {@link ru.yofujitsu.url_shortener.repository.LinkChangeLog}.
+ */
+@Entity
+@Table(name = "link_changes", indexes = @Index(columnList = "created_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LinkChange {
+
+    /**
+     * Вид изменения.
+     */
+    public enum Kind {
+        CREATED,
+        DEACTIVATED,
+        DELETED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private UUID node;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Kind kind;
+    @Column(nullable = false)
+    private String code;
+    @Column(nullable = false)
+    private Instant createdAt;
+}
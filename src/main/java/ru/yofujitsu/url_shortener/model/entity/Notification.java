@@ -9,7 +9,7 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = @Index(columnList = "user_id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,10 +18,13 @@ import java.util.UUID;
 public class Notification {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notifications_seq")
+    @SequenceGenerator(name = "notifications_seq", sequenceName = "notifications_seq", allocationSize = 50)
     private Long id;
     private UUID userId;
     private String message;
+    @Builder.Default
+    private boolean viewed = false;
     @Column(nullable = false)
     @CreationTimestamp
     private Instant createdAt;
@@ -0,0 +1,14 @@
+package ru.yofujitsu.url_shortener.model.projection;
+
+import java.util.UUID;
+
+/**
+ * Минимальные данные просроченной ссылки, необходимые для её удаления и уведомления владельца.
+ */
+public record ExpiredLink(
+        Long id,
+        UUID userId,
+        String code,
+        boolean active
+) {
+}
@@ -0,0 +1,9 @@
+package ru.yofujitsu.url_shortener.model.projection;
+
+import java.time.Instant;
+
+public record LinkExpiry(
+        Long id,
+        Instant expiresAt
+) {
+}
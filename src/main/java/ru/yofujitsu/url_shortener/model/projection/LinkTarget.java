@@ -0,0 +1,29 @@
+package ru.yofujitsu.url_shortener.model.projection;
+
+import ru.yofujitsu.url_shortener.model.entity.Link;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Облегчённое неизменяемое представление ссылки для пути редиректа.
+ * Не содержит счётчика кликов: он изменяется только SQL-выражениями в БД.
+ */
+public record LinkTarget(
+        Long id,
+        UUID userId,
+        String code,
+        String originalUrl,
+        Integer maxClicks,
+        Instant expiresAt,
+        boolean active
+) {
+    public static LinkTarget of(Link link) {
+        return new LinkTarget(link.getId(), link.getUserId(), link.getCode(), link.getOriginalUrl(),
+                link.getMaxClicks(), link.getExpiresAt(), link.isActive());
+    }
+
+    public boolean limited() {
+        return maxClicks != null && maxClicks > 0;
+    }
+}
@@ -0,0 +1,407 @@
+package ru.yofujitsu.url_shortener.repository;
+
+import ru.yofujitsu.url_shortener.model.dto.ArchivedLinkDto;
+import ru.yofujitsu.url_shortener.utils.Base62;
+import ru.yofujitsu.url_shortener.utils.UrlHash;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Формат блока архива ссылок ({@link LinkArchive}). Блок — порция строк, записанная одной операцией:
+ * <pre>
+ * заголовок  MAGIC, длина групп, длина индекса, CRC32 индекса, CRC32 групп и индекса (по 4 байта)
+ * группы     до {@value #GROUP_ROWS} строк, отсортированных по ключу кода, каждая сжата Deflate
+ * индекс     число строк; по каждой группе первый ключ, смещение, длина и длина без сжатия;
+ *            фильтр Блума по ключам кодов
+ * </pre>
+ * Внутри группы данные лежат по столбцам: флаги, ключи, коды, идентификаторы, владельцы, URL, лимиты, клики,
+ * время создания, истечения и архивации. Ключи, идентификаторы и время (в микросекундах) записываются
+ * разностями с предыдущей строкой в varint, поэтому соседние строки порции занимают по нескольку байт.
+ * <p>
+ * CRC индекса проверяется перед его разбором, CRC всего блока — при открытии сегмента: страницы файла могут
+ * попасть на диск не по порядку, и после сбоя целый индекс ещё не означает целые группы.
+ * <p>
+ * Индекс разреженный: поиск проверяет фильтр Блума, бинарным поиском по первым ключам выбирает одну группу
+ * и распаковывает только её.
+ */
+final class ArchiveBlock {
+
+    static final int MAGIC = 0x4C4E4B41;
+    static final int HEADER_BYTES = 20;
+    static final int GROUP_ROWS = 128;
+
+    private static final int BLOOM_BITS_PER_ROW = 10;
+    private static final int BLOOM_HASHES = 7;
+    private static final int GROUP_INDEX_BYTES = 8 + 4 + 4 + 4;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    private static final int FLAG_ACTIVE = 1;
+    private static final int FLAG_USER = 2;
+
+    private ArchiveBlock() {
+    }
+
+    /**
+     * Ключ сортировки и поиска: упакованный код ({@link Base62#pack(String)}) или, если код не упаковывается, его хеш.
+     * Совпадение ключа проверяется сравнением самих кодов.
+     */
+    static long key(String code) {
+        long packed = Base62.pack(code);
+        return packed > 0 ? packed : UrlHash.of(code);
+    }
+
+    /**
+     * Кодирует строки в блок, см. формат в описании класса.
+     */
+    static byte[] encode(List<ArchivedLinkDto> links) {
+        List<ArchivedLinkDto> sorted = new ArrayList<>(links);
+        sorted.sort(Comparator.comparingLong((ArchivedLinkDto link) -> key(link.code())).thenComparing(ArchivedLinkDto::code));
+        int groupCount = (sorted.size() + GROUP_ROWS - 1) / GROUP_ROWS;
+        ByteArrayOutputStream groups = new ByteArrayOutputStream();
+        ByteBuffer index = ByteBuffer.allocate(8 + groupCount * GROUP_INDEX_BYTES + 4 + bloomWords(sorted.size()) * 8);
+        index.putInt(sorted.size()).putInt(groupCount);
+        long[] bloom = new long[bloomWords(sorted.size())];
+        Deflater deflater = new Deflater();
+        try {
+            for (int from = 0; from < sorted.size(); from += GROUP_ROWS) {
+                List<ArchivedLinkDto> group = sorted.subList(from, Math.min(from + GROUP_ROWS, sorted.size()));
+                group.forEach(link -> bloomAdd(bloom, key(link.code())));
+                byte[] raw = encodeGroup(group);
+                byte[] compressed = deflate(deflater, raw);
+                index.putLong(key(group.get(0).code())).putInt(groups.size()).putInt(compressed.length).putInt(raw.length);
+                groups.writeBytes(compressed);
+            }
+        } finally {
+            deflater.end();
+        }
+        index.putInt(bloom.length);
+        for (long word : bloom) index.putLong(word);
+        byte[] indexBytes = index.array();
+        byte[] groupBytes = groups.toByteArray();
+        CRC32 indexCrc = new CRC32();
+        indexCrc.update(indexBytes);
+        CRC32 blockCrc = new CRC32();
+        blockCrc.update(groupBytes);
+        blockCrc.update(indexBytes);
+        return ByteBuffer.allocate(HEADER_BYTES + groupBytes.length + indexBytes.length)
+                .putInt(MAGIC).putInt(groupBytes.length).putInt(indexBytes.length)
+                .putInt((int) indexCrc.getValue()).putInt((int) blockCrc.getValue())
+                .put(groupBytes)
+                .put(indexBytes)
+                .array();
+    }
+
+    /**
+     * Разбирает индекс блока.
+     *
+     * @param indexBytes  Байты индекса.
+     * @param groupsStart Позиция первой группы блока в файле сегмента.
+     */
+    static Index parseIndex(ByteBuffer indexBytes, long groupsStart) {
+        int rows = indexBytes.getInt();
+        int groupCount = indexBytes.getInt();
+        long[] firstKeys = new long[groupCount];
+        int[] offsets = new int[groupCount];
+        int[] lengths = new int[groupCount];
+        int[] rawLengths = new int[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            firstKeys[i] = indexBytes.getLong();
+            offsets[i] = indexBytes.getInt();
+            lengths[i] = indexBytes.getInt();
+            rawLengths[i] = indexBytes.getInt();
+        }
+        long[] bloom = new long[indexBytes.getInt()];
+        for (int i = 0; i < bloom.length; i++) bloom[i] = indexBytes.getLong();
+        return new Index(groupsStart, rows, firstKeys, offsets, lengths, rawLengths, bloom);
+    }
+
+    /**
+     * @return CRC32 байтов индекса или блока без заголовка для сверки с заголовком.
+     */
+    static int crc(ByteBuffer bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Индекс блока в памяти: около 20 байт на группу и {@value #BLOOM_BITS_PER_ROW} бит фильтра Блума на строку.
+     */
+    record Index(long groupsStart, int rows, long[] firstKeys, int[] offsets, int[] lengths, int[] rawLengths,
+                 long[] bloom) {
+
+        /**
+         * Ищет строку с кодом в блоке; при повторной архивации одного кода возвращает последнюю.
+         *
+         * @param segment Отображённый в память файл сегмента.
+         */
+        ArchivedLinkDto find(ByteBuffer segment, long key, String code) {
+            if (!bloomMightContain(bloom, key)) return null;
+            int group = Arrays.binarySearch(firstKeys, key);
+            // Группы с равным первым ключом и предыдущая группа могут содержать ключ.
+            if (group < 0) {
+                group = -group - 2;
+            } else {
+                while (group + 1 < firstKeys.length && firstKeys[group + 1] == key) group++;
+            }
+            ArchivedLinkDto found = null;
+            for (int i = group; i >= 0; i--) {
+                for (ArchivedLinkDto link : group(segment, i)) {
+                    if (link.code().equals(code) && (found == null || link.archivedAt().isAfter(found.archivedAt()))) {
+                        found = link;
+                    }
+                }
+                if (firstKeys[i] < key) break;
+            }
+            return found;
+        }
+
+        /**
+         * @return Все строки блока.
+         */
+        List<ArchivedLinkDto> readAll(ByteBuffer segment) {
+            List<ArchivedLinkDto> links = new ArrayList<>(rows);
+            for (int i = 0; i < firstKeys.length; i++) links.addAll(group(segment, i));
+            return links;
+        }
+
+        private List<ArchivedLinkDto> group(ByteBuffer segment, int group) {
+            ByteBuffer compressed = segment.slice(Math.toIntExact(groupsStart + offsets[group]), lengths[group]);
+            return decodeGroup(inflate(compressed, rawLengths[group]));
+        }
+    }
+
+    private static byte[] encodeGroup(List<ArchivedLinkDto> group) {
+        Output out = new Output();
+        out.varInt(group.size());
+        for (ArchivedLinkDto link : group) {
+            out.write((link.active() ? FLAG_ACTIVE : 0) | (link.userId() != null ? FLAG_USER : 0));
+        }
+        long previous = 0;
+        for (ArchivedLinkDto link : group) {
+            long key = key(link.code());
+            out.varLong(zigZag(key - previous));
+            previous = key;
+        }
+        group.forEach(link -> out.string(link.code()));
+        previous = 0;
+        for (ArchivedLinkDto link : group) {
+            out.varLong(zigZag(link.id() - previous));
+            previous = link.id();
+        }
+        for (ArchivedLinkDto link : group) {
+            if (link.userId() == null) continue;
+            out.fixedLong(link.userId().getMostSignificantBits());
+            out.fixedLong(link.userId().getLeastSignificantBits());
+        }
+        group.forEach(link -> out.string(link.originalUrl()));
+        group.forEach(link -> out.varInt(link.maxClicks()));
+        group.forEach(link -> out.varInt(link.clicks()));
+        times(out, group.stream().map(ArchivedLinkDto::createdAt).toList());
+        times(out, group.stream().map(ArchivedLinkDto::expiresAt).toList());
+        times(out, group.stream().map(ArchivedLinkDto::archivedAt).toList());
+        return out.toByteArray();
+    }
+
+    private static List<ArchivedLinkDto> decodeGroup(byte[] raw) {
+        Input in = new Input(raw);
+        int count = in.varInt();
+        int[] flags = new int[count];
+        for (int i = 0; i < count; i++) flags[i] = in.bytes[in.position++];
+        in.skipVarLongs(count);
+        String[] codes = new String[count];
+        for (int i = 0; i < count; i++) codes[i] = in.string();
+        long[] ids = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) ids[i] = previous += unZigZag(in.varLong());
+        UUID[] users = new UUID[count];
+        for (int i = 0; i < count; i++) {
+            if ((flags[i] & FLAG_USER) != 0) users[i] = new UUID(in.fixedLong(), in.fixedLong());
+        }
+        String[] urls = new String[count];
+        for (int i = 0; i < count; i++) urls[i] = in.string();
+        int[] maxClicks = new int[count];
+        for (int i = 0; i < count; i++) maxClicks[i] = in.varInt();
+        int[] clicks = new int[count];
+        for (int i = 0; i < count; i++) clicks[i] = in.varInt();
+        Instant[] createdAt = times(in, count);
+        Instant[] expiresAt = times(in, count);
+        Instant[] archivedAt = times(in, count);
+
+        List<ArchivedLinkDto> links = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            links.add(new ArchivedLinkDto(ids[i], codes[i], urls[i], users[i], maxClicks[i], clicks[i],
+                    createdAt[i], expiresAt[i], (flags[i] & FLAG_ACTIVE) != 0, archivedAt[i]));
+        }
+        return links;
+    }
+
+    private static void times(Output out, List<Instant> times) {
+        long previous = 0;
+        for (Instant time : times) {
+            long micros = time == null ? NULL_TIME : time.getEpochSecond() * 1_000_000 + time.getNano() / 1_000;
+            out.varLong(zigZag(micros - previous));
+            previous = micros;
+        }
+    }
+
+    private static Instant[] times(Input in, int count) {
+        Instant[] times = new Instant[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long micros = previous += unZigZag(in.varLong());
+            times[i] = micros == NULL_TIME ? null : Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000), Math.floorMod(micros, 1_000_000) * 1_000L);
+        }
+        return times;
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(ByteBuffer compressed, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int inflated = inflater.inflate(raw);
+            if (inflated != rawLength || !inflater.finished()) {
+                throw new DataFormatException("Ожидалось " + rawLength + " байт, распаковано " + inflated);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Повреждённая группа архива", e));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int bloomWords(int rows) {
+        return Math.max(1, (rows * BLOOM_BITS_PER_ROW + 63) / 64);
+    }
+
+    private static void bloomAdd(long[] bloom, long key) {
+        long hash = mix(key);
+        long bits = bloom.length * 64L;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = Math.floorMod(hash + i * (hash >>> 32 | 1), bits);
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private static boolean bloomMightContain(long[] bloom, long key) {
+        long hash = mix(key);
+        long bits = bloom.length * 64L;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = Math.floorMod(hash + i * (hash >>> 32 | 1), bits);
+            if ((bloom[(int) (bit >>> 6)] & 1L << bit) == 0) return false;
+        }
+        return true;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        return key ^ key >>> 33;
+    }
+
+    private static long zigZag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static long unZigZag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        void varInt(int value) {
+            varLong(value & 0xFFFFFFFFL);
+        }
+
+        void varLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void fixedLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) write((int) (value >>> shift));
+        }
+
+        void string(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varInt(bytes.length);
+            writeBytes(bytes);
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] bytes;
+        private int position;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int varInt() {
+            return (int) varLong();
+        }
+
+        long varLong() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+        }
+
+        void skipVarLongs(int count) {
+            for (int i = 0; i < count; i++) {
+                while (bytes[position++] < 0) {
+                    // Продолжение varint.
+                }
+            }
+        }
+
+        long fixedLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) value = value << 8 | bytes[position++] & 0xFF;
+            return value;
+        }
+
+        String string() {
+            int length = varInt();
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
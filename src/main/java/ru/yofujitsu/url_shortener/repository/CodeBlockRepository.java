@@ -0,0 +1,22 @@
+package ru.yofujitsu.url_shortener.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@RequiredArgsConstructor
+public class CodeBlockRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Арендует следующий блок счётчика коротких кодов. Последовательность в БД гарантирует,
+     * что разные узлы и перезапуски никогда не получат один и тот же блок.
+     *
+     * @return Номер блока.
+     */
+    public long nextBlock() {
+        return jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR code_block_seq", Long.class);
+    }
+}
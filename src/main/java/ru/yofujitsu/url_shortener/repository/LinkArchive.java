@@ -0,0 +1,382 @@
+package ru.yofujitsu.url_shortener.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import ru.yofujitsu.url_shortener.model.dto.ArchivedLinkDto;
+import ru.yofujitsu.url_shortener.model.entity.Link;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Архив просроченных ссылок в сжатых сегментных файлах на локальном диске ({@code app.archive.dir}).
+ * <p>
+ * Каждая порция, удаляемая {@link ru.yofujitsu.url_shortener.service.LinkExpiryService}, дописывается в конец
+ * активного сегмента {@code segment-<n>.seg} одним блоком ({@link ArchiveBlock}) и сбрасывается на диск до фиксации
+ * удаления в БД. Если транзакция удаления откатится, строки останутся в архиве и будут записаны повторно;
+ * поиск возвращает последнюю запись. Сегмент закрывается для записи по достижении {@code app.archive.segment-bytes}
+ * или {@code app.archive.max-blocks-per-segment} блоков, после чего фоновое уплотнение переписывает его
+ * в {@code segment-<n>.sorted.seg}: строки всего сегмента сортируются по коду и делятся на крупные блоки
+ * с непересекающимися диапазонами ключей, а повторы удаляются. Так число блоков, которые проверяет поиск,
+ * растёт с объёмом архива, а не с числом порций.
+ * <p>
+ * В памяти хранятся только индексы блоков; {@link #find(String)} читает группы строк из файлов, отображённых
+ * в память ({@link MappedByteBuffer}). Активный сегмент отображается для записи один раз и при нехватке места
+ * переотображается с удвоенным размером, блоки пишутся прямо в отображение; при закрытии сегмента файл обрезается
+ * до записанных данных. Недописанный или повреждённый блок в конце сегмента (сбой во время записи, проверка CRC
+ * всего блока) отбрасывается при старте.
+ * <p>
+ * Архив локален для узла. При нескольких узлах с общей БД каждая строка архивируется один раз — узлом, который
+ * захватил и удалил её, — и находится только в его архиве. Общий каталог нескольким узлам указывать нельзя:
+ * нумерация сегментов и уплотнение между процессами не согласуются.
+ */
+@Repository
+@Slf4j
+public class LinkArchive implements MeterBinder {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)(\\.sorted)?\\.seg");
+    private static final int SORTED_BLOCK_ROWS = 65_536;
+    private static final long INITIAL_MAP_BYTES = 1 << 20;
+
+    private final boolean enabled;
+    private final Path dir;
+    private final long segmentBytes;
+    private final int maxBlocksPerSegment;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final LongAdder archivedRows = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+
+    /**
+     * Сегменты от старых к новым; последний несжатый — активный. Список заменяется целиком под {@link #writeLock}.
+     */
+    private volatile List<Segment> segments = List.of();
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeMap;
+
+    public LinkArchive(@Value("${app.archive.enabled}") boolean enabled,
+                       @Value("${app.archive.dir}") Path dir,
+                       @Value("${app.archive.segment-bytes}") long segmentBytes,
+                       @Value("${app.archive.max-blocks-per-segment}") int maxBlocksPerSegment) {
+        if (segmentBytes > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("app.archive.segment-bytes должен быть меньше 1 ГБ");
+        }
+        this.enabled = enabled;
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxBlocksPerSegment = maxBlocksPerSegment;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Загружает индексы блоков всех сегментов.
+     */
+    @PostConstruct
+    void open() throws IOException {
+        if (!enabled) return;
+        Files.createDirectories(dir);
+        TreeMap<Long, Path> files = new TreeMap<>();
+        List<Path> obsolete = new ArrayList<>();
+        try (Stream<Path> list = Files.list(dir)) {
+            for (Path path : list.toList()) {
+                String name = path.getFileName().toString();
+                Matcher matcher = SEGMENT_NAME.matcher(name);
+                if (name.endsWith(".tmp")) {
+                    obsolete.add(path);
+                } else if (matcher.matches()) {
+                    // Уплотнение прервано после переименования: исходный сегмент уже не нужен.
+                    Path previous = files.get(Long.parseLong(matcher.group(1)));
+                    if (previous == null || matcher.group(2) != null) {
+                        files.put(Long.parseLong(matcher.group(1)), path);
+                        if (previous != null) obsolete.add(previous);
+                    } else {
+                        obsolete.add(path);
+                    }
+                }
+            }
+        }
+        for (Path path : obsolete) Files.delete(path);
+        List<Segment> loaded = new ArrayList<>();
+        for (Map.Entry<Long, Path> file : files.entrySet()) {
+            loaded.add(load(file.getKey(), file.getValue()));
+        }
+        segments = List.copyOf(loaded);
+        log.info("Архив ссылок: {} сегментов, {} строк", loaded.size(), loaded.stream().mapToLong(Segment::rows).sum());
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        writeLock.lock();
+        try {
+            sealActive();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Дописывает ссылки в активный сегмент одним блоком и сбрасывает его на диск.
+     * Вызывается до удаления ссылок из БД, в той же транзакции.
+     *
+     * @param archivedAt Момент архивации.
+     */
+    public void append(List<Link> links, Instant archivedAt) {
+        if (!enabled || links.isEmpty()) return;
+        byte[] block = ArchiveBlock.encode(links.stream().map(link -> toDto(link, archivedAt)).toList());
+        writeLock.lock();
+        try {
+            Segment active = active();
+            long position = active.size();
+            MappedByteBuffer map = mapActive(position + block.length);
+            map.put(Math.toIntExact(position), block);
+            map.force(Math.toIntExact(position), block.length);
+            List<ArchiveBlock.Index> blocks = new ArrayList<>(active.blocks());
+            blocks.add(index(ByteBuffer.wrap(block), position));
+            replace(active, new Segment(active.number(), active.path(), false, map, position + block.length,
+                    List.copyOf(blocks)));
+            archivedRows.add(links.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать архив ссылок в " + dir, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Ищет просроченную ссылку в архиве, начиная с новых сегментов.
+     *
+     * @param code Короткий код ссылки.
+     * @return Последняя заархивированная запись с этим кодом или Optional.empty().
+     */
+    public Optional<ArchivedLinkDto> find(String code) {
+        if (!enabled) return Optional.empty();
+        lookups.increment();
+        long key = ArchiveBlock.key(code);
+        List<Segment> current = segments;
+        for (int s = current.size() - 1; s >= 0; s--) {
+            Segment segment = current.get(s);
+            ArchivedLinkDto found = null;
+            for (ArchiveBlock.Index block : segment.blocks()) {
+                ArchivedLinkDto link = block.find(segment.buffer(), key, code);
+                if (link != null && (found == null || link.archivedAt().isAfter(found.archivedAt()))) found = link;
+            }
+            if (found != null) return Optional.of(found);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Уплотняет закрытые для записи сегменты, см. описание класса.
+     */
+    @Scheduled(fixedDelayString = "${app.archive.compact-interval-ms}")
+    public void compact() {
+        if (!enabled) return;
+        List<Segment> current = segments;
+        for (int i = 0; i < current.size() - 1; i++) {
+            if (!current.get(i).sorted()) compact(current.get(i));
+        }
+    }
+
+    private void compact(Segment segment) {
+        long start = System.nanoTime();
+        Map<String, ArchivedLinkDto> latest = new LinkedHashMap<>();
+        for (ArchiveBlock.Index block : segment.blocks()) {
+            for (ArchivedLinkDto link : block.readAll(segment.buffer())) {
+                latest.merge(link.code(), link, (a, b) -> b.archivedAt().isAfter(a.archivedAt()) ? b : a);
+            }
+        }
+        List<ArchivedLinkDto> rows = new ArrayList<>(latest.values());
+        rows.sort(Comparator.comparingLong((ArchivedLinkDto link) -> ArchiveBlock.key(link.code())).thenComparing(ArchivedLinkDto::code));
+        Path sorted = dir.resolve("segment-%06d.sorted.seg".formatted(segment.number()));
+        Path temp = dir.resolve(sorted.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                for (int from = 0; from < rows.size(); from += SORTED_BLOCK_ROWS) {
+                    ByteBuffer block = ByteBuffer.wrap(ArchiveBlock.encode(rows.subList(from, Math.min(from + SORTED_BLOCK_ROWS, rows.size()))));
+                    while (block.hasRemaining()) channel.write(block);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, sorted, StandardCopyOption.ATOMIC_MOVE);
+            Segment compacted = load(segment.number(), sorted);
+            writeLock.lock();
+            try {
+                replace(segment, compacted);
+            } finally {
+                writeLock.unlock();
+            }
+            Files.delete(segment.path());
+            log.info("Сегмент архива {} уплотнён: {} блоков, {} байт -> {} блоков, {} байт за {} мс", segment.number(),
+                    segment.blocks().size(), segment.size(), compacted.blocks().size(), compacted.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.warn("Не удалось уплотнить сегмент архива {}", segment.path(), e);
+        }
+    }
+
+    /**
+     * @return Активный сегмент; при необходимости закрывает текущий и создаёт новый. Вызывается под {@link #writeLock}.
+     */
+    private Segment active() throws IOException {
+        List<Segment> current = segments;
+        Segment last = current.isEmpty() ? null : current.get(current.size() - 1);
+        if (last != null && !last.sorted() && last.size() < segmentBytes && last.blocks().size() < maxBlocksPerSegment) {
+            if (activeChannel == null) {
+                activeChannel = FileChannel.open(last.path(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            return last;
+        }
+        sealActive();
+        long number = last == null ? 1 : last.number() + 1;
+        Path path = dir.resolve("segment-%06d.seg".formatted(number));
+        activeChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(number, path, false, activeChannel.map(FileChannel.MapMode.READ_ONLY, 0, 0), 0, List.of());
+        List<Segment> next = new ArrayList<>(current);
+        next.add(segment);
+        segments = List.copyOf(next);
+        return segment;
+    }
+
+    /**
+     * @return Отображение активного сегмента не короче {@code bytes}. Вызывается под {@link #writeLock}.
+     */
+    private MappedByteBuffer mapActive(long bytes) throws IOException {
+        if (activeMap != null && activeMap.capacity() >= bytes) return activeMap;
+        long capacity = Math.max(bytes, activeMap == null ? INITIAL_MAP_BYTES : 2L * activeMap.capacity());
+        activeMap = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(capacity, Integer.MAX_VALUE));
+        return activeMap;
+    }
+
+    /**
+     * Закрывает активный сегмент для записи: обрезает файл до записанных блоков (отображение для записи
+     * увеличивает его до своей ёмкости) и заменяет отображение на отображение только для чтения.
+     * Вызывается под {@link #writeLock}.
+     */
+    private void sealActive() throws IOException {
+        if (activeChannel == null) return;
+        List<Segment> current = segments;
+        Segment last = current.get(current.size() - 1);
+        activeChannel.truncate(last.size());
+        replace(last, new Segment(last.number(), last.path(), false,
+                activeChannel.map(FileChannel.MapMode.READ_ONLY, 0, last.size()), last.size(), last.blocks()));
+        activeChannel.close();
+        activeChannel = null;
+        activeMap = null;
+    }
+
+    private void replace(Segment old, Segment updated) {
+        List<Segment> next = new ArrayList<>(segments);
+        next.replaceAll(segment -> segment.number() == old.number() ? updated : segment);
+        segments = List.copyOf(next);
+    }
+
+    /**
+     * Читает индексы блоков сегмента, сверяя CRC индекса и всего блока. Хвост после последнего целого блока
+     * обрезается.
+     */
+    private Segment load(long number, Path path) throws IOException {
+        boolean sorted = path.getFileName().toString().endsWith(".sorted.seg");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long position = 0;
+            List<ArchiveBlock.Index> blocks = new ArrayList<>();
+            while (position + ArchiveBlock.HEADER_BYTES <= size) {
+                int at = (int) position;
+                if (file.getInt(at) != ArchiveBlock.MAGIC) break;
+                int groupsLength = file.getInt(at + 4);
+                int indexLength = file.getInt(at + 8);
+                long end = position + ArchiveBlock.HEADER_BYTES + groupsLength + indexLength;
+                if (groupsLength < 0 || indexLength < 0 || end > size) break;
+                int body = at + ArchiveBlock.HEADER_BYTES;
+                ByteBuffer index = file.slice(body + groupsLength, indexLength);
+                if (ArchiveBlock.crc(index) != file.getInt(at + 12)) break;
+                if (ArchiveBlock.crc(file.slice(body, groupsLength + indexLength)) != file.getInt(at + 16)) break;
+                blocks.add(ArchiveBlock.parseIndex(index.rewind(), body));
+                position = end;
+            }
+            if (position < size) {
+                log.warn("Сегмент архива {}: отброшен недописанный хвост {} байт", path, size - position);
+                channel.truncate(position);
+            }
+            return new Segment(number, path, sorted, channel.map(FileChannel.MapMode.READ_ONLY, 0, position), position,
+                    List.copyOf(blocks));
+        }
+    }
+
+    private static ArchiveBlock.Index index(ByteBuffer block, long position) {
+        block.position(4);
+        int groupsLength = block.getInt();
+        int indexLength = block.getInt();
+        ByteBuffer index = block.slice(ArchiveBlock.HEADER_BYTES + groupsLength, indexLength);
+        return ArchiveBlock.parseIndex(index, position + ArchiveBlock.HEADER_BYTES);
+    }
+
+    private static ArchivedLinkDto toDto(Link link, Instant archivedAt) {
+        return new ArchivedLinkDto(link.getId(), link.getCode(), link.getOriginalUrl(), link.getUserId(),
+                link.getMaxClicks() == null ? 0 : link.getMaxClicks(), link.getClicks().get(),
+                link.getCreatedAt(), link.getExpiresAt(), link.isActive(), archivedAt);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("shortlink.archive.rows", archivedRows, LongAdder::sum)
+                .description("Строки, записанные в архив просроченных ссылок")
+                .register(registry);
+        FunctionCounter.builder("shortlink.archive.lookups", lookups, LongAdder::sum)
+                .description("Поиски в архиве просроченных ссылок")
+                .register(registry);
+        Gauge.builder("shortlink.archive.bytes", this, archive -> archive.segments.stream().mapToLong(Segment::size).sum())
+                .description("Размер сегментов архива")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("shortlink.archive.blocks", this, archive -> archive.segments.stream().mapToLong(s -> s.blocks().size()).sum())
+                .description("Блоки архива, которые проверяет поиск")
+                .register(registry);
+    }
+
+    /**
+     * Сегмент архива.
+     *
+     * @param sorted Уплотнённый сегмент, в который больше не пишут.
+     * @param buffer Файл сегмента, отображённый в память не короче {@code size}.
+     */
+    private record Segment(long number, Path path, boolean sorted, MappedByteBuffer buffer, long size,
+                           List<ArchiveBlock.Index> blocks) {
+
+        long rows() {
+            return blocks.stream().mapToLong(ArchiveBlock.Index::rows).sum();
+        }
+    }
+}
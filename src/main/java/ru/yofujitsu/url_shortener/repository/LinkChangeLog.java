@@ -0,0 +1,106 @@
+package ru.yofujitsu.url_shortener.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.yofujitsu.url_shortener.model.entity.LinkChange;
+import ru.yofujitsu.url_shortener.model.entity.LinkChange.Kind;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Журнал изменений ссылок {@code link_changes}: создание, деактивация и удаление.
+ * Запись выполняется через JDBC в транзакции вызывающего кода, поэтому строка журнала фиксируется
+ * вместе с изменением ссылки или не фиксируется вовсе. Каждая запись помечена идентификатором узла,
+ * чтобы узел не применял к своим кешам собственные изменения повторно.
+ * При {@code app.changes.enabled: false} журнал не ведётся.
+ */
+@Repository
+public class LinkChangeLog {
+
+    /**
+     * Вставка записи журнала; параметры — узел, вид, код, время.
+     */
+    public static final String INSERT_SQL = "INSERT INTO link_changes (node, kind, code, created_at) VALUES (?, ?, ?, ?)";
+
+    private static final RowMapper<LinkChange> ROW_MAPPER = (rs, rowNum) -> LinkChange.builder()
+            .id(rs.getLong("id"))
+            .node(rs.getObject("node", UUID.class))
+            .kind(Kind.valueOf(rs.getString("kind")))
+            .code(rs.getString("code"))
+            .createdAt(rs.getTimestamp("created_at").toInstant())
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final boolean enabled;
+    private final UUID node = UUID.randomUUID();
+
+    public LinkChangeLog(JdbcTemplate jdbcTemplate, @Value("${app.changes.enabled}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.enabled = enabled;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * @return Идентификатор этого узла в записях журнала.
+     */
+    public UUID node() {
+        return node;
+    }
+
+    public void append(Kind kind, String code) {
+        append(kind, List.of(code));
+    }
+
+    /**
+     * Добавляет записи пакетной вставкой. Должен вызываться внутри транзакции, изменяющей ссылки.
+     */
+    public void append(Kind kind, Collection<String> codes) {
+        if (!enabled || codes.isEmpty()) return;
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, codes.stream()
+                .map(code -> new Object[]{node, kind.name(), code, now})
+                .toList());
+    }
+
+    /**
+     * @return Наибольший идентификатор записи журнала или 0, если журнал пуст.
+     */
+    public long lastId() {
+        Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM link_changes", Long.class);
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Очередная порция журнала по возрастанию идентификатора.
+     */
+    public List<LinkChange> findAfter(long afterId, int limit) {
+        return jdbcTemplate.query("SELECT * FROM link_changes WHERE id > ? ORDER BY id LIMIT ?", ROW_MAPPER, afterId, limit);
+    }
+
+    public List<LinkChange> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        return namedJdbcTemplate.query("SELECT * FROM link_changes WHERE id IN (:ids) ORDER BY id", Map.of("ids", ids), ROW_MAPPER);
+    }
+
+    /**
+     * Удаляет записи старше {@code time}.
+     *
+     * @return Количество удалённых записей.
+     */
+    public int deleteBefore(Instant time) {
+        return jdbcTemplate.update("DELETE FROM link_changes WHERE created_at < ?", Timestamp.from(time));
+    }
+}
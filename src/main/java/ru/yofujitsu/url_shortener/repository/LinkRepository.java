@@ -1,18 +1,140 @@
 package ru.yofujitsu.url_shortener.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yofujitsu.url_shortener.model.entity.Link;
+import ru.yofujitsu.url_shortener.model.projection.ExpiredLink;
+import ru.yofujitsu.url_shortener.model.projection.LinkExpiry;
+import ru.yofujitsu.url_shortener.model.projection.LinkTarget;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface LinkRepository extends JpaRepository<Link, Long> {
 
     Optional<Link> findByCode(String code);
-    boolean existsByCodeAndUserId(String code, UUID userId);
-    List<Link> findByExpiresAtBefore(Instant time);
+    Optional<LinkTarget> findTargetByCode(String code);
+    long countByExpiresAtBefore(Instant time);
+
+    /**
+     * Активная непросроченная ссылка пользователя на тот же URL с тем же лимитом кликов.
+     * Поиск выполняется по индексу {@code (user_id, url_hash)}; сравнение самого URL отсекает коллизии хеша.
+     */
+    @Query("""
+            select l from Link l
+            where l.userId = :userId and l.urlHash = :urlHash and l.originalUrl = :originalUrl
+              and l.maxClicks = :maxClicks and l.active = true and l.expiresAt > :now
+            """)
+    Optional<Link> findReusable(@Param("userId") UUID userId, @Param("urlHash") long urlHash,
+                                @Param("originalUrl") String originalUrl, @Param("maxClicks") int maxClicks,
+                                @Param("now") Instant now, Limit limit);
+
+    /**
+     * Очередная порция просроченных ссылок с keyset-пагинацией по идентификатору.
+     *
+     * @param time    Момент, до которого ссылки считаются просроченными.
+     * @param afterId Идентификатор последней ссылки предыдущей порции.
+     * @param limit   Размер порции.
+     */
+    @Query("""
+            select new ru.yofujitsu.url_shortener.model.projection.ExpiredLink(l.id, l.userId, l.code, l.active)
+            from Link l where l.expiresAt < :time and l.id > :afterId order by l.id
+            """)
+    List<ExpiredLink> findExpired(@Param("time") Instant time, @Param("afterId") long afterId, Limit limit);
+
+    @Query("""
+            select new ru.yofujitsu.url_shortener.model.projection.ExpiredLink(l.id, l.userId, l.code, l.active)
+            from Link l where l.id in :ids
+            """)
+    List<ExpiredLink> findExpiredByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Захватывает строки ссылок для удаления: блокирует их до конца транзакции, пропуская строки,
+     * уже заблокированные другим узлом. Удалённые другим узлом строки в результат не попадают,
+     * поэтому каждую ссылку удаляет и обрабатывает ровно один узел. Должен вызываться внутри транзакции.
+     *
+     * @param ids Идентификаторы ссылок.
+     * @return Идентификаторы захваченных этим вызовом ссылок.
+     */
+    @Query(value = "SELECT id FROM links WHERE id IN (:ids) FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> claimForDelete(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Потоково читает сроки действия всех ссылок. Должен вызываться внутри транзакции,
+     * поток необходимо закрыть после использования.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new ru.yofujitsu.url_shortener.model.projection.LinkExpiry(l.id, l.expiresAt) from Link l")
+    Stream<LinkExpiry> streamExpiries();
+
+    /**
+     * Потоково читает все ссылки в виде {@link LinkTarget}. Должен вызываться внутри транзакции,
+     * поток необходимо закрыть после использования.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new ru.yofujitsu.url_shortener.model.projection.LinkTarget(" +
+            "l.id, l.userId, l.code, l.originalUrl, l.maxClicks, l.expiresAt, l.active) from Link l")
+    Stream<LinkTarget> streamTargets();
+
+    /**
+     * Потоково читает коды всех ссылок в порядке возрастания (по уникальному индексу кода).
+     * Должен вызываться внутри транзакции, поток необходимо закрыть после использования.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select l.code from Link l order by l.code")
+    Stream<String> streamCodes();
+
+    @Transactional
+    @Modifying
+    @Query("delete from Link l where l.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Деактивирует ссылку, не затрагивая счётчик кликов.
+     *
+     * @return 1, если ссылка была активна и деактивирована этим вызовом, иначе 0.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Link l set l.active = false where l.id = :id and l.active = true")
+    int deactivate(@Param("id") Long id);
+
+    /**
+     * Атомарно засчитывает клик одним SQL-выражением: счётчик увеличивается, только если ссылка
+     * активна, не истекла и после клика у неё останется хотя бы один переход. Исключает гонку
+     * «прочитать-проверить-записать». Последний переход засчитывает {@link #claimLastClick}.
+     *
+     * @return 1, если клик засчитан, иначе 0.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE links SET clicks = clicks + 1
+            WHERE code = :code AND active AND (max_clicks = 0 OR clicks < max_clicks - 1) AND expires_at > :now
+            """, nativeQuery = true)
+    int claimClick(@Param("code") String code, @Param("now") Instant now);
+
+    /**
+     * Засчитывает последний разрешённый клик и в том же выражении деактивирует ссылку.
+     * Вызывается, только если {@link #claimClick} не засчитал клик.
+     *
+     * @return 1 ровно для одного вызова, забравшего последний переход, иначе 0.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE links SET clicks = clicks + 1, active = FALSE
+            WHERE code = :code AND active AND max_clicks > 0 AND clicks = max_clicks - 1 AND expires_at > :now
+            """, nativeQuery = true)
+    int claimLastClick(@Param("code") String code, @Param("now") Instant now);
 }
@@ -0,0 +1,56 @@
+package ru.yofujitsu.url_shortener.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.StringUtils;
+
+/**
+ * JDBC-источник данных для профиля {@code reactive}. Spring Boot не создаёт {@code DataSource}, если в контексте
+ * есть R2DBC {@code ConnectionFactory}, а JPA по-прежнему нужна для создания ссылок и фоновых задач,
+ * поэтому пул Hikari объявляется явно из тех же свойств {@code spring.datasource.*}.
+ * Адрес БД для R2DBC тоже берётся из {@code spring.datasource.url}, чтобы обе части всегда работали с одной БД
+ * (в том числе с файловой в профиле {@code prod}).
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveDataSourceConfig {
+
+    private static final String H2_JDBC_PREFIX = "jdbc:h2:";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Подменяет адрес из {@code spring.r2dbc.url} адресом JDBC-источника: драйвер r2dbc-h2 принимает в опции
+     * {@code url} ту же строку, что идёт после {@code jdbc:h2:}, вместе с параметрами вроде {@code DB_CLOSE_DELAY}.
+     */
+    @Bean
+    public ConnectionFactoryOptionsBuilderCustomizer h2UrlFromDataSource(DataSourceProperties properties) {
+        return builder -> {
+            String url = properties.determineUrl();
+            if (!url.startsWith(H2_JDBC_PREFIX)) {
+                throw new IllegalStateException("Профиль reactive поддерживает только H2, spring.datasource.url: " + url);
+            }
+            builder.option(Option.valueOf("url"), url.substring(H2_JDBC_PREFIX.length()));
+            builder.option(ConnectionFactoryOptions.USER, properties.determineUsername());
+            String password = properties.determinePassword();
+            if (StringUtils.hasText(password)) builder.option(ConnectionFactoryOptions.PASSWORD, password);
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yofujitsu.url_shortener.repository;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import ru.yofujitsu.url_shortener.model.entity.LinkChange.Kind;
+import ru.yofujitsu.url_shortener.model.projection.LinkTarget;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Неблокирующий аналог {@link LinkRepository} для пути редиректа в профиле {@code reactive}:
+ * те же запросы к таблице {@code links}, выполняемые через R2DBC.
+ * Деактивация при включённом {@link LinkChangeLog} записывается в журнал в той же транзакции R2DBC.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveLinkRepository {
+
+    private final DatabaseClient databaseClient;
+    private final LinkChangeLog linkChangeLog;
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactiveLinkRepository(DatabaseClient databaseClient,
+                                  ConnectionFactory connectionFactory,
+                                  LinkChangeLog linkChangeLog) {
+        this.databaseClient = databaseClient;
+        this.linkChangeLog = linkChangeLog;
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+
+    public Mono<LinkTarget> findTargetByCode(String code) {
+        return databaseClient.sql("""
+                        SELECT id, user_id, code, original_url, max_clicks, expires_at, active
+                        FROM links WHERE code = :code
+                        """)
+                .bind("code", code)
+                .map(ReactiveLinkRepository::toTarget)
+                .one();
+    }
+
+    /**
+     * Деактивирует ссылку, не затрагивая счётчик кликов.
+     *
+     * @return 1, если ссылка была активна и деактивирована этим вызовом, иначе 0.
+     */
+    public Mono<Long> deactivate(Long id, String code) {
+        return deactivated(databaseClient.sql("UPDATE links SET active = FALSE WHERE id = :id AND active")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated(), code);
+    }
+
+    /**
+     * Атомарно засчитывает клик, см. {@link LinkRepository#claimClick}.
+     *
+     * @return 1, если клик засчитан, иначе 0.
+     */
+    public Mono<Long> claimClick(String code, Instant now) {
+        return databaseClient.sql("""
+                        UPDATE links SET clicks = clicks + 1
+                        WHERE code = :code AND active AND (max_clicks = 0 OR clicks < max_clicks - 1) AND expires_at > :now
+                        """)
+                .bind("code", code)
+                .bind("now", now)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Засчитывает последний клик и деактивирует ссылку, см. {@link LinkRepository#claimLastClick}.
+     *
+     * @return 1 ровно для одного вызова, забравшего последний переход, иначе 0.
+     */
+    public Mono<Long> claimLastClick(String code, Instant now) {
+        return deactivated(databaseClient.sql("""
+                        UPDATE links SET clicks = clicks + 1, active = FALSE
+                        WHERE code = :code AND active AND max_clicks > 0 AND clicks = max_clicks - 1 AND expires_at > :now
+                        """)
+                .bind("code", code)
+                .bind("now", now)
+                .fetch()
+                .rowsUpdated(), code);
+    }
+
+    private Mono<Long> deactivated(Mono<Long> update, String code) {
+        if (!linkChangeLog.enabled()) return update;
+        return update
+                .flatMap(updated -> updated == 0 ? Mono.just(updated) : databaseClient
+                        .sql("INSERT INTO link_changes (node, kind, code, created_at) VALUES (:node, :kind, :code, :createdAt)")
+                        .bind("node", linkChangeLog.node())
+                        .bind("kind", Kind.DEACTIVATED.name())
+                        .bind("code", code)
+                        .bind("createdAt", Instant.now())
+                        .fetch()
+                        .rowsUpdated()
+                        .thenReturn(updated))
+                .as(transactionalOperator::transactional);
+    }
+
+    private static LinkTarget toTarget(Readable row) {
+        OffsetDateTime expiresAt = row.get("expires_at", OffsetDateTime.class);
+        return new LinkTarget(
+                row.get("id", Long.class),
+                row.get("user_id", UUID.class),
+                row.get("code", String.class),
+                row.get("original_url", String.class),
+                row.get("max_clicks", Integer.class),
+                expiresAt == null ? null : expiresAt.toInstant(),
+                Boolean.TRUE.equals(row.get("active", Boolean.class)));
+    }
+}
@@ -1,41 +1,65 @@
 package ru.yofujitsu.url_shortener.scheduler;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import ru.yofujitsu.url_shortener.model.entity.Link;
+import ru.yofujitsu.url_shortener.model.projection.ExpiredLink;
 import ru.yofujitsu.url_shortener.repository.LinkRepository;
-import ru.yofujitsu.url_shortener.service.NotificationService;
+import ru.yofujitsu.url_shortener.service.LinkExpiryService;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
-@RequiredArgsConstructor
 public class CleanupScheduler {
 
     private final LinkRepository linkRepository;
-    private final NotificationService notificationService;
+    private final LinkExpiryService linkExpiryService;
+    private final int chunkSize;
+    private final AtomicLong backlog = new AtomicLong();
+    private final Timer sweepLatency;
+
+    public CleanupScheduler(LinkRepository linkRepository,
+                            LinkExpiryService linkExpiryService,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.cleanup.chunk-size}") int chunkSize) {
+        this.linkRepository = linkRepository;
+        this.linkExpiryService = linkExpiryService;
+        this.chunkSize = chunkSize;
+        meterRegistry.gauge("shortlink.cleanup.backlog", backlog);
+        this.sweepLatency = Timer.builder("shortlink.cleanup.sweep")
+                .description("Длительность полного прохода страховочной очистки")
+                .register(meterRegistry);
+    }
 
     /**
-     * Планировщик периодически проверяет и деактивирует просроченные короткие ссылки.
-     * Находит все ссылки, у которых {@code expiresAt} меньше текущего времени.
-     * Для активных просроченных ссылок устанавливает {@code isActive = false} и отправляет уведомление пользователю.
-     * Удаляет все найденные просроченные записи из репозитория.
+     * Страховочная очистка просроченных коротких ссылок. Основную работу выполняет {@link ExpiryWheel}
+     * в момент истечения каждой ссылки; планировщик подбирает ссылки, которые колесо не обработало
+     * (например, созданные узлом, который был остановлен до их истечения).
+     * Просроченные ссылки ({@code expiresAt} меньше текущего времени) читаются порциями по {@code app.cleanup.chunk-size}
+     * с keyset-пагинацией по идентификатору, каждая порция удаляется {@link LinkExpiryService} в собственной транзакции.
+     * Публикует метрики оставшегося объёма работы и длительности прохода;
+     * число удалённых строк считает {@link LinkExpiryService}.
      */
     @Scheduled(fixedDelayString = "${app.cleanup-interval-ms}")
-    @Transactional
     public void cleanupExpired() {
+        sweepLatency.record(this::sweep);
+    }
+
+    private void sweep() {
         Instant now = Instant.now();
-        List<Link> expired = linkRepository.findByExpiresAtBefore(now);
-        for (Link link : expired) {
-            if (link.isActive()) {
-                link.setActive(false);
-                linkRepository.save(link);
-                notificationService.sendNotification(link.getUserId(), "Ссылка истекла и была деактивирована: " + link.getCode());
-            }
-            linkRepository.deleteAll(expired);
+        backlog.set(linkRepository.countByExpiresAtBefore(now));
+        long afterId = 0;
+        List<ExpiredLink> chunk;
+        while (!(chunk = linkRepository.findExpired(now, afterId, Limit.of(chunkSize))).isEmpty()) {
+            linkExpiryService.expire(chunk.stream().map(ExpiredLink::id).toList(), "sweep");
+            backlog.addAndGet(-chunk.size());
+            afterId = chunk.get(chunk.size() - 1).id();
         }
+        backlog.set(0);
     }
 }
@@ -0,0 +1,156 @@
+package ru.yofujitsu.url_shortener.scheduler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yofujitsu.url_shortener.model.projection.LinkExpiry;
+import ru.yofujitsu.url_shortener.repository.LinkRepository;
+import ru.yofujitsu.url_shortener.service.LinkExpiryService;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Хешированное колесо таймеров для точного истечения ссылок.
+ * Колесо из {@code app.expiry.wheel-size} ячеек по {@code app.expiry.tick-ms} миллисекунд; ссылка попадает в ячейку
+ * своего момента истечения, а ссылки со сроком дальше одного оборота остаются в ячейке до нужного оборота.
+ * На каждом тике просматривается только ячейка текущего тика, поэтому стоимость не зависит от общего числа ссылок.
+ * Выбор ячейки в {@link #schedule} и продвижение {@code lastTick} выполняются под одной блокировкой:
+ * ссылка не может попасть в ячейку тика, который уже обработан. Если колесо работает на нескольких узлах,
+ * каждую ссылку удаляет один из них — строки захватываются в {@link LinkExpiryService#expire}.
+ */
+@Component
+@Slf4j
+public class ExpiryWheel {
+
+    private final LinkRepository linkRepository;
+    private final LinkExpiryService linkExpiryService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long tickMs;
+    private final int chunkSize;
+    private final ConcurrentLinkedQueue<Entry>[] buckets;
+    private final AtomicLong scheduled = new AtomicLong();
+    private final ReentrantLock tickLock = new ReentrantLock();
+    private final ReentrantReadWriteLock bucketLock = new ReentrantReadWriteLock();
+
+    private long lastTick;
+
+    @SuppressWarnings("unchecked")
+    public ExpiryWheel(LinkRepository linkRepository,
+                       LinkExpiryService linkExpiryService,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.expiry.tick-ms}") long tickMs,
+                       @Value("${app.expiry.wheel-size}") int wheelSize,
+                       @Value("${app.cleanup.chunk-size}") int chunkSize) {
+        this.linkRepository = linkRepository;
+        this.linkExpiryService = linkExpiryService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.tickMs = tickMs;
+        this.chunkSize = chunkSize;
+        this.buckets = new ConcurrentLinkedQueue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastTick = System.currentTimeMillis() / tickMs;
+        meterRegistry.gauge("shortlink.expiry.scheduled", scheduled);
+    }
+
+    /**
+     * Ставит ссылку на истечение. Ссылка будет удалена на первом тике не раньше {@code expiresAt}.
+     *
+     * @param id        Идентификатор ссылки.
+     * @param expiresAt Момент истечения.
+     */
+    public void schedule(Long id, Instant expiresAt) {
+        long deadline = expiresAt.toEpochMilli();
+        bucketLock.readLock().lock();
+        try {
+            long tick = Math.max((deadline + tickMs - 1) / tickMs, lastTick + 1);
+            buckets[(int) (tick % buckets.length)].add(new Entry(id, deadline));
+        } finally {
+            bucketLock.readLock().unlock();
+        }
+        scheduled.incrementAndGet();
+    }
+
+    /**
+     * Обрабатывает ячейки всех тиков, прошедших с предыдущего вызова, и удаляет наступившие ссылки
+     * через {@link LinkExpiryService} порциями по {@code app.cleanup.chunk-size}.
+     */
+    @Scheduled(fixedRateString = "${app.expiry.tick-ms}")
+    public void tick() {
+        tickLock.lock();
+        try {
+            advance();
+        } finally {
+            tickLock.unlock();
+        }
+    }
+
+    private void advance() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / tickMs;
+        List<Long> due = new ArrayList<>();
+        bucketLock.writeLock().lock();
+        try {
+            collectDue(now, currentTick, due);
+            lastTick = currentTick;
+        } finally {
+            bucketLock.writeLock().unlock();
+        }
+        scheduled.addAndGet(-due.size());
+
+        for (int from = 0; from < due.size(); from += chunkSize) {
+            List<Long> chunk = due.subList(from, Math.min(from + chunkSize, due.size()));
+            try {
+                linkExpiryService.expire(chunk, "wheel");
+            } catch (RuntimeException e) {
+                log.warn("Не удалось удалить {} истёкших ссылок, они будут удалены страховочной очисткой", chunk.size(), e);
+            }
+        }
+    }
+
+    private void collectDue(long now, long currentTick, List<Long> due) {
+        for (long tick = Math.max(lastTick + 1, currentTick - buckets.length + 1); tick <= currentTick; tick++) {
+            ConcurrentLinkedQueue<Entry> bucket = buckets[(int) (tick % buckets.length)];
+            List<Entry> later = new ArrayList<>();
+            Entry entry;
+            while ((entry = bucket.poll()) != null) {
+                if (entry.deadline <= now) {
+                    due.add(entry.id);
+                } else {
+                    later.add(entry);
+                }
+            }
+            bucket.addAll(later);
+        }
+    }
+
+    /**
+     * Восстанавливает колесо из БД, потоково читая сроки действия всех ссылок. Вызывается фазой прогрева при старте.
+     */
+    public void rebuild() {
+        long before = scheduled.get();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<LinkExpiry> expiries = linkRepository.streamExpiries()) {
+                expiries.forEach(expiry -> schedule(expiry.id(), expiry.expiresAt()));
+            }
+        });
+        log.info("Колесо истечения восстановлено: {} ссылок", scheduled.get() - before);
+    }
+
+    private record Entry(long id, long deadline) {
+    }
+}
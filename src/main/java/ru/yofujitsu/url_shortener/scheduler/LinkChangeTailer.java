@@ -0,0 +1,164 @@
+package ru.yofujitsu.url_shortener.scheduler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yofujitsu.url_shortener.cache.CodeFilter;
+import ru.yofujitsu.url_shortener.cache.RedirectIndex;
+import ru.yofujitsu.url_shortener.model.entity.LinkChange;
+import ru.yofujitsu.url_shortener.repository.LinkChangeLog;
+import ru.yofujitsu.url_shortener.service.ClickAnalytics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Применяет к локальным кешам изменения ссылок, сделанные другими узлами, по журналу {@link LinkChangeLog}.
+ * <p>
+ * Раз в {@code app.changes.poll-interval-ms} читает записи с идентификатором больше курсора порциями
+ * по {@code app.changes.batch-size}: созданные коды добавляются в {@link CodeFilter}, деактивированные ссылки
+ * помечаются неактивными в {@link RedirectIndex}, удалённые убираются из индекса и {@link ClickAnalytics}.
+ * Из {@link CodeFilter} удалённые коды не убираются, а только помечаются через {@link CodeFilter#markDeleted}:
+ * удаление отпечатка, добавленного не этим узлом или уже удалённого, стёрло бы отпечаток другого кода с тем же
+ * хешем и дало бы ложноотрицательный ответ. Оставшийся отпечаток безопасен — переход по такому коду получит 404
+ * после промаха в БД — и исчезает при следующем перестроении фильтра.
+ * Так расхождение кешей узлов с БД ограничено интервалом опроса.
+ * <p>
+ * Идентификаторы выдаются при вставке, а транзакции фиксируются в другом порядке, поэтому запись с меньшим
+ * идентификатором может стать видимой после записи с большим. Пропуски в последовательности запоминаются
+ * и перечитываются, пока не найдутся или не истечёт {@code app.changes.gap-timeout-ms} (откат транзакции).
+ * Курсор устанавливается в фазе прогрева перед перестроением кешей ({@link StartupWarmup}), поэтому изменения,
+ * сделанные во время перестроения, применяются повторно. Повтор безопасен: лишний отпечаток в фильтре даёт
+ * только ложноположительный ответ, а деактивация, удаление из индекса и аналитики и пометка удаления идемпотентны.
+ */
+@Component
+@Slf4j
+public class LinkChangeTailer {
+
+    private static final int MAX_TRACKED_GAPS = 10_000;
+
+    private final LinkChangeLog changeLog;
+    private final RedirectIndex redirectIndex;
+    private final CodeFilter codeFilter;
+    private final ClickAnalytics clickAnalytics;
+    private final int batchSize;
+    private final Duration gapTimeout;
+    private final Duration retention;
+    private final ReentrantLock pollLock = new ReentrantLock();
+    private final TreeMap<Long, Instant> gaps = new TreeMap<>();
+    private final AtomicLong lag = new AtomicLong();
+    private final Counter applied;
+
+    private volatile boolean started;
+    private long cursor;
+
+    public LinkChangeTailer(LinkChangeLog changeLog,
+                            RedirectIndex redirectIndex,
+                            CodeFilter codeFilter,
+                            ClickAnalytics clickAnalytics,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.changes.batch-size}") int batchSize,
+                            @Value("${app.changes.gap-timeout-ms}") long gapTimeoutMs,
+                            @Value("${app.changes.retention-h}") long retentionHours) {
+        this.changeLog = changeLog;
+        this.redirectIndex = redirectIndex;
+        this.codeFilter = codeFilter;
+        this.clickAnalytics = clickAnalytics;
+        this.batchSize = batchSize;
+        this.gapTimeout = Duration.ofMillis(gapTimeoutMs);
+        this.retention = Duration.ofHours(retentionHours);
+        this.applied = Counter.builder("shortlink.changes.applied")
+                .description("Изменения других узлов, применённые к локальным кешам")
+                .register(meterRegistry);
+        meterRegistry.gauge("shortlink.changes.lag", lag);
+    }
+
+    /**
+     * Устанавливает курсор на конец журнала. Вызывается до перестроения кешей при старте.
+     */
+    public void start() {
+        if (!changeLog.enabled()) return;
+        pollLock.lock();
+        try {
+            cursor = changeLog.lastId();
+            started = true;
+            log.info("Чтение журнала изменений ссылок с позиции {}", cursor);
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.changes.poll-interval-ms}")
+    public void poll() {
+        if (!started) return;
+        pollLock.lock();
+        try {
+            Instant now = Instant.now();
+            recheckGaps(now);
+            List<LinkChange> batch;
+            do {
+                batch = changeLog.findAfter(cursor, batchSize);
+                for (LinkChange change : batch) {
+                    trackGaps(change.getId(), now);
+                    cursor = change.getId();
+                }
+                apply(batch);
+            } while (batch.size() == batchSize);
+            lag.set(gaps.isEmpty() ? 0 : cursor - gaps.firstKey());
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет записи журнала старше {@code app.changes.retention-h}.
+     */
+    @Scheduled(fixedDelayString = "${app.changes.prune-interval-ms}")
+    public void prune() {
+        if (!started) return;
+        int deleted = changeLog.deleteBefore(Instant.now().minus(retention));
+        if (deleted > 0) log.debug("Удалено {} записей журнала изменений", deleted);
+    }
+
+    private void trackGaps(long id, Instant now) {
+        for (long missing = cursor + 1; missing < id && gaps.size() < MAX_TRACKED_GAPS; missing++) {
+            gaps.put(missing, now);
+        }
+    }
+
+    private void recheckGaps(Instant now) {
+        if (gaps.isEmpty()) return;
+        List<LinkChange> found = changeLog.findByIds(new ArrayList<>(gaps.keySet()));
+        found.forEach(change -> gaps.remove(change.getId()));
+        apply(found);
+        gaps.values().removeIf(seen -> seen.plus(gapTimeout).isBefore(now));
+    }
+
+    private void apply(List<LinkChange> changes) {
+        List<String> deleted = new ArrayList<>();
+        int count = 0;
+        for (LinkChange change : changes) {
+            if (change.getNode().equals(changeLog.node())) continue;
+            count++;
+            switch (change.getKind()) {
+                case CREATED -> codeFilter.add(change.getCode());
+                case DEACTIVATED -> redirectIndex.deactivate(change.getCode());
+                case DELETED -> deleted.add(change.getCode());
+            }
+        }
+        if (!deleted.isEmpty()) {
+            redirectIndex.removeAll(deleted);
+            codeFilter.markDeleted(deleted);
+            clickAnalytics.removeAll(deleted);
+        }
+        applied.increment(count);
+    }
+}
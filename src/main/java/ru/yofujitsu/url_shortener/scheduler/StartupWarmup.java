@@ -0,0 +1,65 @@
+package ru.yofujitsu.url_shortener.scheduler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import ru.yofujitsu.url_shortener.cache.CodeFilter;
+import ru.yofujitsu.url_shortener.cache.RedirectIndex;
+import ru.yofujitsu.url_shortener.repository.LinkRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фаза прогрева при старте: запоминает позицию журнала изменений ({@link LinkChangeTailer}),
+ * восстанавливает колесо истечения, индекс редиректов и фильтр кодов из БД
+ * и один раз выполняет запрос пути редиректа, чтобы пул соединений, подготовленные выражения Hibernate
+ * и JIT-пути репозитория были готовы к первому запросу.
+ * <p>
+ * Выполняется как {@link ApplicationRunner}, поэтому состояние готовности ({@code /actuator/health/readiness})
+ * переходит в {@code ACCEPTING_TRAFFIC} только после окончания прогрева.
+ */
+@Component
+@Slf4j
+public class StartupWarmup implements ApplicationRunner {
+
+    private static final String MISSING_CODE = "~warmup";
+
+    private final ExpiryWheel expiryWheel;
+    private final RedirectIndex redirectIndex;
+    private final CodeFilter codeFilter;
+    private final LinkChangeTailer linkChangeTailer;
+    private final LinkRepository linkRepository;
+    private final Timer warmup;
+
+    public StartupWarmup(ExpiryWheel expiryWheel,
+                         RedirectIndex redirectIndex,
+                         CodeFilter codeFilter,
+                         LinkChangeTailer linkChangeTailer,
+                         LinkRepository linkRepository,
+                         MeterRegistry meterRegistry) {
+        this.expiryWheel = expiryWheel;
+        this.redirectIndex = redirectIndex;
+        this.codeFilter = codeFilter;
+        this.linkChangeTailer = linkChangeTailer;
+        this.linkRepository = linkRepository;
+        this.warmup = Timer.builder("shortlink.startup.warmup")
+                .description("Длительность фазы прогрева при старте")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        linkChangeTailer.start();
+        expiryWheel.rebuild();
+        redirectIndex.rebuild();
+        codeFilter.rebuild();
+        linkRepository.findTargetByCode(MISSING_CODE);
+        long elapsed = System.nanoTime() - start;
+        warmup.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Прогрев завершён за {} мс", TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+}
@@ -0,0 +1,210 @@
+package ru.yofujitsu.url_shortener.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClickAccumulator {
+
+    private static final String FLUSH_SQL = "UPDATE links SET clicks = clicks + ? WHERE code = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Map.Entry<String, LongAdder>> retired = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private volatile Map<String, LongAdder> hot = Map.of();
+
+    /**
+     * Счётчики, выведенные из оборота на прошлом сбросе. Поток, получивший счётчик до его вывода, может увеличить его
+     * и после первого сброса, поэтому такие счётчики сбрасываются ещё раз — через интервал сброса. Доступ под {@link #flushLock}.
+     */
+    private List<Map.Entry<String, LongAdder>> grace = List.of();
+
+    /**
+     * Учитывает клик по ссылке без лимита переходов в памяти.
+     * В таблицу {@code links} клики попадают при следующем сбросе.
+     *
+     * @param code Короткий код ссылки.
+     */
+    public void record(String code) {
+        LongAdder adder = hot.get(code);
+        if (adder == null) adder = pending.computeIfAbsent(code, c -> new LongAdder());
+        adder.increment();
+    }
+
+    /**
+     * @param code Короткий код ссылки.
+     * @return Количество кликов, ещё не записанных в БД.
+     */
+    public long pending(String code) {
+        LongAdder adder = pending.get(code);
+        LongAdder hotAdder = hot.get(code);
+        return (adder == null ? 0 : adder.sum()) + (hotAdder == null ? 0 : hotAdder.sum());
+    }
+
+    /**
+     * Выделяет популярным кодам постоянные счётчики в неизменяемой карте: клик по ним не обращается
+     * к {@link ConcurrentHashMap}, а {@link LongAdder} распределяет конкурирующие увеличения по ячейкам.
+     * Счётчики кодов, выбывших из набора, сбрасываются при следующем сбросе и ещё раз при последующем,
+     * чтобы не потерять клики потоков, прочитавших прежнюю карту.
+     *
+     * @param codes Короткие коды популярных ссылок.
+     */
+    public void promote(Set<String> codes) {
+        flushLock.lock();
+        try {
+            Map<String, LongAdder> current = hot;
+            Map<String, LongAdder> next = new HashMap<>();
+            for (String code : codes) {
+                next.put(code, current.getOrDefault(code, new LongAdder()));
+            }
+            hot = Map.copyOf(next);
+            current.forEach((code, adder) -> {
+                if (!next.containsKey(code)) retired.add(Map.entry(code, adder));
+            });
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Периодически сбрасывает накопленные дельты кликов в таблицу {@code links}
+     * одним пакетом {@code UPDATE ... SET clicks = clicks + ?}.
+     * Счётчики без новых кликов удаляются из памяти; их остаток, если он появится из-за гонки,
+     * будет учтён в течение ещё двух сбросов.
+     */
+    @Scheduled(fixedDelayString = "${app.clicks.flush-interval-ms}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            doFlush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает дельты кликов указанных кодов в текущей транзакции — перед архивацией удаляемых ссылок,
+     * чтобы архив содержал все учтённые клики. Если транзакция откатится, дельты возвращаются в память
+     * и будут записаны обычным сбросом.
+     *
+     * @param codes Короткие коды ссылок.
+     */
+    public void flush(Collection<String> codes) {
+        Set<String> wanted = new HashSet<>(codes);
+        flushLock.lock();
+        try {
+            List<Map.Entry<String, LongAdder>> drained = new ArrayList<>();
+            Map<String, LongAdder> currentHot = hot;
+            for (String code : wanted) {
+                LongAdder adder = pending.get(code);
+                if (adder != null) drained.add(Map.entry(code, adder));
+                adder = currentHot.get(code);
+                if (adder != null) drained.add(Map.entry(code, adder));
+            }
+            for (Map.Entry<String, LongAdder> entry : retired) {
+                if (wanted.contains(entry.getKey())) drained.add(entry);
+            }
+            for (Map.Entry<String, LongAdder> entry : grace) {
+                if (wanted.contains(entry.getKey())) drained.add(entry);
+            }
+            List<Object[]> batch = take(drained);
+            if (batch.isEmpty()) return;
+            try {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            } catch (RuntimeException e) {
+                restore(batch);
+                throw e;
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) restore(batch);
+                    }
+                });
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void doFlush() {
+        List<Map.Entry<String, LongAdder>> retiring = new ArrayList<>();
+        Map.Entry<String, LongAdder> idle;
+        while ((idle = retired.poll()) != null) {
+            retiring.add(idle);
+        }
+        List<Map.Entry<String, LongAdder>> drained = new ArrayList<>(grace);
+        drained.addAll(retiring);
+        grace = retiring;
+        for (Map.Entry<String, LongAdder> entry : pending.entrySet()) {
+            if (entry.getValue().sum() > 0) {
+                drained.add(entry);
+            } else if (pending.remove(entry.getKey(), entry.getValue())) {
+                retired.add(entry);
+            }
+        }
+        drained.addAll(hot.entrySet());
+
+        List<Object[]> batch = take(drained);
+        if (batch.isEmpty()) return;
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сбросить {} счётчиков кликов, повтор при следующем сбросе", batch.size(), e);
+            restore(batch);
+        }
+    }
+
+    /**
+     * Забирает ненулевые дельты счётчиков в пакет для {@link #FLUSH_SQL}.
+     */
+    private static List<Object[]> take(List<Map.Entry<String, LongAdder>> drained) {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> entry : drained) {
+            long delta = entry.getValue().sum();
+            if (delta == 0) continue;
+            entry.getValue().add(-delta);
+            batch.add(new Object[]{delta, entry.getKey()});
+        }
+        return batch;
+    }
+
+    /**
+     * Возвращает незаписанный пакет в память до следующего сброса.
+     */
+    private void restore(List<Object[]> batch) {
+        for (Object[] row : batch) {
+            pending.computeIfAbsent((String) row[1], c -> new LongAdder()).add((Long) row[0]);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,345 @@
+package ru.yofujitsu.url_shortener.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yofujitsu.url_shortener.model.dto.LinkStatsDto;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Аналитика переходов. Редирект публикует событие клика (код, время, referrer, хеш User-Agent)
+ * в кольцевой буфер фиксированного размера без блокировок и без выделения памяти; при заполненном буфере
+ * событие отбрасывается, и редирект не замедляется.
+ * <p>
+ * Буфер раз в {@code app.analytics.drain-interval-ms} разбирается одним потоком в компактные агрегаты по коду:
+ * счётчики за последние {@code app.analytics.minute-buckets} минут и {@code app.analytics.hour-buckets} часов,
+ * самые частые referrer'ы (алгоритм Space-Saving) и оценка числа уникальных User-Agent (HyperLogLog на 64 регистра).
+ * Агрегаты кодов без переходов дольше часового окна удаляются. Число кодов с агрегатами ограничено
+ * {@code app.analytics.max-codes}: сверх него Caffeine вытесняет агрегаты редко посещаемых кодов.
+ */
+@Component
+@Slf4j
+public class ClickAnalytics implements MeterBinder {
+
+    private static final int HLL_REGISTERS = 64;
+
+    private final boolean enabled;
+    private final int minuteBuckets;
+    private final int hourBuckets;
+    private final int topReferrers;
+    private final Ring ring;
+    private final Cache<String, CodeStats> stats;
+    private final ReentrantReadWriteLock statsLock = new ReentrantReadWriteLock();
+    private final LongAdder dropped = new LongAdder();
+
+    public ClickAnalytics(@Value("${app.analytics.enabled}") boolean enabled,
+                          @Value("${app.analytics.buffer-size}") int bufferSize,
+                          @Value("${app.analytics.minute-buckets}") int minuteBuckets,
+                          @Value("${app.analytics.hour-buckets}") int hourBuckets,
+                          @Value("${app.analytics.top-referrers}") int topReferrers,
+                          @Value("${app.analytics.max-codes}") long maxCodes) {
+        this.enabled = enabled;
+        this.minuteBuckets = minuteBuckets;
+        this.hourBuckets = hourBuckets;
+        this.topReferrers = topReferrers;
+        this.ring = new Ring(bufferSize);
+        // Вытеснение выполняется в вызывающем потоке, то есть под statsLock, как и все изменения агрегатов
+        this.stats = Caffeine.newBuilder()
+                .maximumSize(maxCodes)
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * Публикует событие клика. Не блокируется: если буфер заполнен, событие отбрасывается.
+     *
+     * @param code      Короткий код ссылки.
+     * @param referrer  Значение заголовка {@code Referer} или null.
+     * @param userAgent Значение заголовка {@code User-Agent} или null.
+     */
+    public void record(String code, String referrer, String userAgent) {
+        if (!enabled) return;
+        int agent = userAgent == null ? 0 : userAgent.hashCode();
+        if (!ring.offer(code, System.currentTimeMillis(), referrer, agent)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Разбирает накопленные события в агрегаты и удаляет агрегаты кодов без переходов за часовое окно.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.drain-interval-ms}")
+    public void drain() {
+        if (!enabled) return;
+        statsLock.writeLock().lock();
+        try {
+            ring.drain((code, timestamp, referrer, agent) -> stats
+                    .get(code, c -> new CodeStats(minuteBuckets, hourBuckets, topReferrers))
+                    .add(timestamp, referrer, agent));
+            int oldestHour = (int) TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis()) - hourBuckets;
+            stats.asMap().values().removeIf(codeStats -> codeStats.lastHour() <= oldestHour);
+            stats.cleanUp();
+        } finally {
+            statsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param code Короткий код ссылки.
+     * @return Агрегаты переходов по коду; нулевые, если переходов в окне не было.
+     */
+    public LinkStatsDto stats(String code) {
+        long now = System.currentTimeMillis();
+        statsLock.readLock().lock();
+        try {
+            CodeStats codeStats = stats.getIfPresent(code);
+            if (codeStats == null) return new LinkStatsDto(code, 0, 0, List.of(), List.of(), List.of());
+            return codeStats.toDto(code, (int) TimeUnit.MILLISECONDS.toMinutes(now), (int) TimeUnit.MILLISECONDS.toHours(now));
+        } finally {
+            statsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Количество кодов с агрегатами переходов.
+     */
+    public long codeCount() {
+        return stats.estimatedSize();
+    }
+
+    public void removeAll(Collection<String> codes) {
+        if (!enabled) return;
+        statsLock.writeLock().lock();
+        try {
+            stats.invalidateAll(codes);
+        } finally {
+            statsLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("shortlink.analytics.dropped", dropped, LongAdder::sum)
+                .description("События кликов, отброшенные из-за заполненного буфера")
+                .register(registry);
+        Gauge.builder("shortlink.analytics.backlog", ring, Ring::size)
+                .description("События кликов в буфере, ожидающие агрегации")
+                .register(registry);
+        Gauge.builder("shortlink.analytics.codes", this, ClickAnalytics::codeCount)
+                .description("Количество кодов с агрегатами переходов")
+                .register(registry);
+    }
+
+    /**
+     * Получатель событий при разборе буфера; принимает поля события без промежуточного объекта.
+     */
+    @FunctionalInterface
+    interface EventSink {
+        void accept(String code, long timestamp, String referrer, int agent);
+    }
+
+    /**
+     * Ограниченный кольцевой буфер для многих писателей и одного читателя на параллельных массивах.
+     * Писатель резервирует позицию CAS по {@code tail}, если буфер не заполнен, записывает поля события
+     * и публикует позицию в {@code published}; читатель продвигает {@code head} только по опубликованным позициям.
+     */
+    static final class Ring {
+        private final String[] codes;
+        private final long[] timestamps;
+        private final String[] referrers;
+        private final int[] agents;
+        private final AtomicLongArray published;
+        private final int capacity;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+
+        Ring(int capacity) {
+            this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            this.mask = this.capacity - 1;
+            this.codes = new String[this.capacity];
+            this.timestamps = new long[this.capacity];
+            this.referrers = new String[this.capacity];
+            this.agents = new int[this.capacity];
+            this.published = new AtomicLongArray(this.capacity);
+        }
+
+        boolean offer(String code, long timestamp, String referrer, int agent) {
+            long seq;
+            do {
+                seq = tail.get();
+                if (seq - head >= capacity) return false;
+            } while (!tail.compareAndSet(seq, seq + 1));
+            int i = (int) seq & mask;
+            codes[i] = code;
+            timestamps[i] = timestamp;
+            referrers[i] = referrer;
+            agents[i] = agent;
+            published.setRelease(i, seq + 1);
+            return true;
+        }
+
+        /**
+         * Разбирает опубликованные события по порядку; вызывается одним потоком.
+         *
+         * @return Количество разобранных событий.
+         */
+        int drain(EventSink sink) {
+            long h = head;
+            int drained = 0;
+            int i;
+            while (published.getAcquire(i = (int) h & mask) == h + 1) {
+                sink.accept(codes[i], timestamps[i], referrers[i], agents[i]);
+                codes[i] = null;
+                referrers[i] = null;
+                head = ++h;
+                drained++;
+            }
+            return drained;
+        }
+
+        long size() {
+            return tail.get() - head;
+        }
+
+        int capacity() {
+            return capacity;
+        }
+    }
+
+    /**
+     * Агрегаты переходов одного кода. Минутные и часовые счётчики — кольца, в которых ячейка хранит номер
+     * своей минуты (часа) от эпохи и обнуляется при переходе к новому периоду.
+     */
+    static final class CodeStats {
+        private final int[] minuteKeys;
+        private final int[] minuteCounts;
+        private final int[] hourKeys;
+        private final int[] hourCounts;
+        private final String[] referrers;
+        private final long[] referrerCounts;
+        private final byte[] agentRegisters = new byte[HLL_REGISTERS];
+        private long total;
+
+        CodeStats(int minuteBuckets, int hourBuckets, int topReferrers) {
+            this.minuteKeys = new int[minuteBuckets];
+            this.minuteCounts = new int[minuteBuckets];
+            this.hourKeys = new int[hourBuckets];
+            this.hourCounts = new int[hourBuckets];
+            this.referrers = new String[topReferrers];
+            this.referrerCounts = new long[topReferrers];
+        }
+
+        void add(long timestamp, String referrer, int agent) {
+            total++;
+            increment(minuteKeys, minuteCounts, (int) TimeUnit.MILLISECONDS.toMinutes(timestamp));
+            increment(hourKeys, hourCounts, (int) TimeUnit.MILLISECONDS.toHours(timestamp));
+            if (referrer != null && referrers.length > 0) addReferrer(referrer);
+            if (agent != 0) addAgent(agent);
+        }
+
+        int lastHour() {
+            int last = 0;
+            for (int i = 0; i < hourKeys.length; i++) {
+                if (hourCounts[i] > 0) last = Math.max(last, hourKeys[i]);
+            }
+            return last;
+        }
+
+        LinkStatsDto toDto(String code, int nowMinute, int nowHour) {
+            List<LinkStatsDto.ReferrerClicks> top = new ArrayList<>();
+            for (int i = 0; i < referrers.length; i++) {
+                if (referrers[i] != null) top.add(new LinkStatsDto.ReferrerClicks(referrers[i], referrerCounts[i]));
+            }
+            top.sort(Comparator.comparingLong(LinkStatsDto.ReferrerClicks::clicks).reversed());
+            return new LinkStatsDto(code, total, uniqueAgents(),
+                    buckets(minuteKeys, minuteCounts, nowMinute, TimeUnit.MINUTES),
+                    buckets(hourKeys, hourCounts, nowHour, TimeUnit.HOURS),
+                    top);
+        }
+
+        private static void increment(int[] keys, int[] counts, int key) {
+            int i = Math.floorMod(key, keys.length);
+            if (keys[i] != key) {
+                if (keys[i] > key) return;
+                keys[i] = key;
+                counts[i] = 0;
+            }
+            counts[i]++;
+        }
+
+        private static List<LinkStatsDto.Bucket> buckets(int[] keys, int[] counts, int now, TimeUnit unit) {
+            List<LinkStatsDto.Bucket> buckets = new ArrayList<>();
+            for (int i = 0; i < keys.length; i++) {
+                if (counts[i] > 0 && keys[i] > now - keys.length) {
+                    buckets.add(new LinkStatsDto.Bucket(Instant.ofEpochMilli(unit.toMillis(keys[i])), counts[i]));
+                }
+            }
+            buckets.sort(Comparator.comparing(LinkStatsDto.Bucket::start));
+            return buckets;
+        }
+
+        /**
+         * Space-Saving: при заполненной таблице наименее частый referrer вытесняется новым с его счётчиком плюс один,
+         * поэтому частые referrer'ы гарантированно остаются в таблице, а их счётчики завышены не более чем на минимум.
+         */
+        private void addReferrer(String referrer) {
+            int min = 0;
+            for (int i = 0; i < referrers.length; i++) {
+                if (referrers[i] == null) {
+                    referrers[i] = referrer;
+                    referrerCounts[i] = 1;
+                    return;
+                }
+                if (referrers[i].equals(referrer)) {
+                    referrerCounts[i]++;
+                    return;
+                }
+                if (referrerCounts[i] < referrerCounts[min]) min = i;
+            }
+            referrers[min] = referrer;
+            referrerCounts[min]++;
+        }
+
+        private void addAgent(int agent) {
+            long h = agent * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 32;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 29;
+            int register = (int) (h >>> 58);
+            byte rank = (byte) (Long.numberOfTrailingZeros(h | (1L << 57)) + 1);
+            if (rank > agentRegisters[register]) agentRegisters[register] = rank;
+        }
+
+        private long uniqueAgents() {
+            double sum = 0;
+            int zeros = 0;
+            for (byte rank : agentRegisters) {
+                sum += 1.0 / (1L << rank);
+                if (rank == 0) zeros++;
+            }
+            double estimate = 0.709 * HLL_REGISTERS * HLL_REGISTERS / sum;
+            if (estimate <= 2.5 * HLL_REGISTERS && zeros > 0) {
+                estimate = HLL_REGISTERS * Math.log((double) HLL_REGISTERS / zeros);
+            }
+            return Math.round(estimate);
+        }
+    }
+}
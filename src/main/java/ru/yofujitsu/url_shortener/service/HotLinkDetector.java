@@ -0,0 +1,152 @@
+package ru.yofujitsu.url_shortener.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yofujitsu.url_shortener.cache.RedirectIndex;
+import ru.yofujitsu.url_shortener.model.dto.HotLinkDto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Поиск популярных кодов в потоке успешных редиректов и их перевод в горячий ярус
+ * ({@link RedirectIndex#promote}, {@link ClickAccumulator#promote}).
+ * <p>
+ * Учитывается каждый {@code app.hot.sample-rate}-й редирект: код попадает в таблицу Space-Saving
+ * на {@code app.hot.capacity} счётчиков, которая при заполнении вытесняет наименее частый код, отдавая его счётчик
+ * новому. Частые коды гарантированно остаются в таблице, а их счётчики завышены не более чем на вытесненный минимум.
+ * Если таблица занята другим потоком, выборка пропускается, поэтому редирект никогда не ждёт блокировку.
+ * <p>
+ * Раз в {@code app.hot.refresh-interval-ms} до {@code app.hot.top-k} кодов с оценкой не меньше {@code app.hot.min-hits}
+ * переходов становятся горячими, остальные выбывают из яруса. После этого счётчики таблицы делятся пополам,
+ * так что оценка отражает недавние переходы, а остывший код вытесняется.
+ */
+@Component
+@Slf4j
+public class HotLinkDetector {
+
+    private final RedirectIndex redirectIndex;
+    private final ClickAccumulator clickAccumulator;
+    private final boolean enabled;
+    private final int topK;
+    private final int sampleRate;
+    private final long minHits;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final String[] codes;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    private volatile List<HotLinkDto> hotLinks = List.of();
+
+    public HotLinkDetector(RedirectIndex redirectIndex,
+                           ClickAccumulator clickAccumulator,
+                           @Value("${app.hot.enabled}") boolean enabled,
+                           @Value("${app.hot.top-k}") int topK,
+                           @Value("${app.hot.capacity}") int capacity,
+                           @Value("${app.hot.sample-rate}") int sampleRate,
+                           @Value("${app.hot.min-hits}") long minHits) {
+        this.redirectIndex = redirectIndex;
+        this.clickAccumulator = clickAccumulator;
+        this.enabled = enabled;
+        this.topK = topK;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.minHits = minHits;
+        this.codes = new String[Math.max(capacity, topK)];
+        this.counts = new long[codes.length];
+        this.errors = new long[codes.length];
+    }
+
+    /**
+     * Учитывает успешный переход по коду. Не блокируется.
+     *
+     * @param code Короткий код ссылки.
+     */
+    public void record(String code) {
+        if (!enabled) return;
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) return;
+        if (!lock.tryLock()) return;
+        try {
+            offer(code);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Переводит текущие популярные коды в горячий ярус и состаривает счётчики.
+     */
+    @Scheduled(fixedDelayString = "${app.hot.refresh-interval-ms}")
+    public void refresh() {
+        if (!enabled) return;
+        List<HotLinkDto> top = new ArrayList<>();
+        lock.lock();
+        try {
+            for (int i = 0; i < codes.length; i++) {
+                if (codes[i] != null && counts[i] * sampleRate >= minHits) {
+                    top.add(new HotLinkDto(codes[i], counts[i] * sampleRate, (counts[i] - errors[i]) * sampleRate, false));
+                }
+            }
+            decay();
+        } finally {
+            lock.unlock();
+        }
+        top.sort(Comparator.comparingLong(HotLinkDto::hits).reversed());
+        if (top.size() > topK) top = new ArrayList<>(top.subList(0, topK));
+
+        Set<String> promoted = redirectIndex.promote(top.stream().map(HotLinkDto::code).toList());
+        clickAccumulator.promote(promoted);
+        hotLinks = top.stream()
+                .map(link -> new HotLinkDto(link.code(), link.hits(), link.guaranteedHits(), promoted.contains(link.code())))
+                .toList();
+        if (!promoted.isEmpty()) log.debug("Горячий ярус: {} ссылок", promoted.size());
+    }
+
+    /**
+     * @return Популярные ссылки по убыванию оценки переходов на момент последнего пересчёта.
+     */
+    public List<HotLinkDto> hotLinks() {
+        return hotLinks;
+    }
+
+    private void offer(String code) {
+        Integer slot = slots.get(code);
+        if (slot != null) {
+            counts[slot]++;
+            return;
+        }
+        int min = 0;
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] == null) {
+                min = i;
+                break;
+            }
+            if (counts[i] < counts[min]) min = i;
+        }
+        if (codes[min] != null) slots.remove(codes[min]);
+        errors[min] = counts[min];
+        counts[min]++;
+        codes[min] = code;
+        slots.put(code, min);
+    }
+
+    private void decay() {
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] == null) continue;
+            counts[i] >>= 1;
+            errors[i] >>= 1;
+            if (counts[i] == 0) {
+                slots.remove(codes[i]);
+                codes[i] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yofujitsu.url_shortener.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yofujitsu.url_shortener.cache.CodeFilter;
+import ru.yofujitsu.url_shortener.cache.RedirectIndex;
+import ru.yofujitsu.url_shortener.model.entity.LinkChange.Kind;
+import ru.yofujitsu.url_shortener.model.entity.Notification;
+import ru.yofujitsu.url_shortener.model.projection.ExpiredLink;
+import ru.yofujitsu.url_shortener.repository.LinkArchive;
+import ru.yofujitsu.url_shortener.repository.LinkChangeLog;
+import ru.yofujitsu.url_shortener.repository.LinkRepository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Service
+public class LinkExpiryService {
+
+    private final LinkRepository linkRepository;
+    private final NotificationService notificationService;
+    private final RedirectIndex redirectIndex;
+    private final CodeFilter codeFilter;
+    private final ClickAnalytics clickAnalytics;
+    private final ClickAccumulator clickAccumulator;
+    private final TransactionTemplate transactionTemplate;
+    private final LinkChangeLog linkChangeLog;
+    private final LinkArchive linkArchive;
+    private final MeterRegistry meterRegistry;
+    private final Timer chunkLatency;
+
+    public LinkExpiryService(LinkRepository linkRepository,
+                             NotificationService notificationService,
+                             RedirectIndex redirectIndex,
+                             CodeFilter codeFilter,
+                             ClickAnalytics clickAnalytics,
+                             ClickAccumulator clickAccumulator,
+                             TransactionTemplate transactionTemplate,
+                             LinkChangeLog linkChangeLog,
+                             LinkArchive linkArchive,
+                             MeterRegistry meterRegistry) {
+        this.linkRepository = linkRepository;
+        this.notificationService = notificationService;
+        this.redirectIndex = redirectIndex;
+        this.codeFilter = codeFilter;
+        this.clickAnalytics = clickAnalytics;
+        this.clickAccumulator = clickAccumulator;
+        this.transactionTemplate = transactionTemplate;
+        this.linkChangeLog = linkChangeLog;
+        this.linkArchive = linkArchive;
+        this.meterRegistry = meterRegistry;
+        this.chunkLatency = Timer.builder("shortlink.cleanup.chunk")
+                .description("Длительность обработки одной порции просроченных ссылок")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Удаляет порцию просроченных ссылок в собственной короткой транзакции. Строки сначала захватываются
+     * {@link LinkRepository#claimForDelete}: ссылки, которые одновременно удаляет другой узел, пропускаются,
+     * поэтому уведомление, архив и запись в {@link LinkChangeLog} появляются ровно один раз.
+     * Владельцам ещё активных захваченных ссылок пакетно отправляются уведомления, при {@code app.archive.enabled}
+     * несброшенные клики записываются ({@link ClickAccumulator#flush(Collection)}) и строки дописываются в {@link LinkArchive}, ссылки удаляются одним {@code DELETE}
+     * и удаляются из {@link RedirectIndex}, {@link CodeFilter} и {@link ClickAnalytics}.
+     *
+     * @param ids     Идентификаторы просроченных ссылок.
+     * @param trigger Источник обработки для метрик: {@code sweep} или {@code wheel}.
+     */
+    public void expire(Collection<Long> ids, String trigger) {
+        if (ids.isEmpty()) return;
+        List<String> codes = chunkLatency.record(() -> transactionTemplate.execute(status -> {
+            List<Long> claimedIds = linkRepository.claimForDelete(ids);
+            if (claimedIds.isEmpty()) return List.<String>of();
+            List<ExpiredLink> claimed = linkRepository.findExpiredByIds(claimedIds);
+            notificationService.sendNotifications(claimed.stream()
+                    .filter(ExpiredLink::active)
+                    .map(link -> Notification.builder()
+                            .userId(link.userId())
+                            .message("Ссылка истекла и была деактивирована: " + link.code())
+                            .build())
+                    .toList());
+            List<String> claimedCodes = claimed.stream().map(ExpiredLink::code).toList();
+            codeFilter.markDeleted(claimedCodes);
+            if (linkArchive.enabled()) {
+                // Клики, ещё не сброшенные накопителем, иначе не попали бы ни в БД, ни в архив.
+                clickAccumulator.flush(claimedCodes);
+                linkArchive.append(linkRepository.findAllById(claimedIds), Instant.now());
+            }
+            linkRepository.deleteByIds(claimedIds);
+            linkChangeLog.append(Kind.DELETED, claimedCodes);
+            return claimedCodes;
+        }));
+        if (codes == null || codes.isEmpty()) return;
+        redirectIndex.removeAll(codes);
+        codeFilter.removeAll(codes);
+        clickAnalytics.removeAll(codes);
+        Counter.builder("shortlink.cleanup.rows")
+                .description("Количество удалённых просроченных ссылок")
+                .tag("trigger", trigger)
+                .register(meterRegistry)
+                .increment(codes.size());
+    }
+}
@@ -1,31 +1,381 @@
 package ru.yofujitsu.url_shortener.service;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.scheduler.Schedulers;
 import ru.yofujitsu.url_shortener.model.entity.Notification;
 import ru.yofujitsu.url_shortener.repository.NotificationRepository;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
 
+    /**
+     * Поведение при переполнении очереди уведомлений.
+     */
+    public enum OverflowPolicy {
+        /** Уведомление отбрасывается. */
+        DROP,
+        /** Вызывающий поток ждёт освобождения места в очереди; поток event loop передаёт ожидание в {@code boundedElastic}. */
+        BLOCK,
+        /** Уведомление дописывается в файл на диске и позже переносится в очередь. */
+        SPILL
+    }
+
+    private static final long POLL_TIMEOUT_MS = 100;
+
     private final NotificationRepository notificationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Notification> queue;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final Path spillFile;
+    private final Cache<String, Boolean> recentlySent;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock spillLock = new ReentrantLock();
+    private final Semaphore available = new Semaphore(0);
+    private final SimpleAsyncTaskExecutor writerExecutor;
+    private final CountDownLatch writerStopped = new CountDownLatch(1);
+    private final Counter dropped;
+    private final Counter deduplicated;
+    private final Counter spilled;
+    private final Timer writeLatency;
+
+    private volatile boolean running = true;
+
+    public NotificationService(NotificationRepository notificationRepository,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry,
+                               SimpleAsyncTaskExecutorBuilder executorBuilder,
+                               @Value("${app.notifications.queue-capacity}") int queueCapacity,
+                               @Value("${app.notifications.batch-size}") int batchSize,
+                               @Value("${app.notifications.overflow}") OverflowPolicy overflowPolicy,
+                               @Value("${app.notifications.spill-file}") Path spillFile,
+                               @Value("${app.notifications.dedup-window-ms}") long dedupWindowMs) {
+        this.notificationRepository = notificationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.spillFile = spillFile;
+        this.writerExecutor = executorBuilder.threadNamePrefix("notification-writer-").build();
+        this.writerExecutor.setDaemon(true);
+        this.recentlySent = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(dedupWindowMs))
+                .maximumSize(queueCapacity * 10L)
+                .build();
+        meterRegistry.gaugeCollectionSize("shortlink.notifications.queue", List.of(), queue);
+        this.dropped = meterRegistry.counter("shortlink.notifications.dropped");
+        this.deduplicated = meterRegistry.counter("shortlink.notifications.deduplicated");
+        this.spilled = meterRegistry.counter("shortlink.notifications.spilled");
+        this.writeLatency = Timer.builder("shortlink.notifications.write")
+                .description("Длительность пакетной записи уведомлений в БД")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускает фонового писателя. Исполнитель строится из {@link SimpleAsyncTaskExecutorBuilder} Spring Boot,
+     * поэтому при {@code spring.threads.virtual.enabled=true} писатель работает в виртуальном потоке.
+     */
+    @PostConstruct
+    void startWriter() {
+        writerExecutor.execute(() -> {
+            try {
+                runWriter();
+            } finally {
+                writerStopped.countDown();
+            }
+        });
+    }
 
     /**
      * Метод создания нового уведомления для пользователя.
+     * Уведомление ставится в ограниченную очередь и сохраняется фоновым писателем пакетно,
+     * поэтому вызов не ждёт записи в БД. Одинаковые уведомления одному пользователю
+     * в пределах {@code app.notifications.dedup-window-ms} схлопываются в одно.
      * * @param userId Идентификатор пользователя, которому отправляется уведомление.
      * @param message Текст уведомления.
      */
     public void sendNotification(UUID userId, String message) {
-        Notification notification = Notification.builder()
+        enqueue(Notification.builder()
                 .userId(userId)
                 .message(message)
-                .build();
-        notificationRepository.save(notification);
-        log.info("Отправлено уведомление пользователю {}: {}", userId, message);
+                .build());
+    }
+
+    /**
+     * Метод пакетного создания уведомлений. Каждое уведомление проходит ту же очередь и дедупликацию,
+     * что и в {@link #sendNotification(UUID, String)}.
+     *
+     * @param notifications Уведомления для сохранения.
+     */
+    public void sendNotifications(List<Notification> notifications) {
+        notifications.forEach(this::enqueue);
+    }
+
+    /**
+     * Синхронно записывает всё, что находится в очереди, включая пакет, который пишет фоновый писатель.
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            List<Notification> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        writerStopped.await(5, TimeUnit.SECONDS);
+        flush();
+    }
+
+    private void enqueue(Notification notification) {
+        String key = notification.getUserId() + "\n" + notification.getMessage();
+        if (recentlySent.asMap().putIfAbsent(key, Boolean.TRUE) != null) {
+            deduplicated.increment();
+            return;
+        }
+        if (queue.offer(notification)) {
+            available.release();
+            return;
+        }
+        if (overflowPolicy != OverflowPolicy.DROP && Schedulers.isInNonBlockingThread()) {
+            // BLOCK ждёт места в очереди, SPILL пишет на диск — ни то, ни другое не выполняется на потоке event loop
+            Schedulers.boundedElastic().schedule(() -> overflow(notification, key));
+            return;
+        }
+        overflow(notification, key);
+    }
+
+    private void overflow(Notification notification, String key) {
+        if (!handleOverflow(notification)) {
+            // Отброшенное уведомление не должно подавлять повторную попытку в окне дедупликации
+            recentlySent.invalidate(key);
+        }
+    }
+
+    /**
+     * Обрабатывает уведомление, не поместившееся в очередь, по политике переполнения.
+     *
+     * @return {@code true}, если уведомление принято в очередь или выгружено на диск.
+     */
+    private boolean handleOverflow(Notification notification) {
+        switch (overflowPolicy) {
+            case DROP -> {
+                dropped.increment();
+                log.warn("Очередь уведомлений переполнена, уведомление пользователю {} отброшено", notification.getUserId());
+                return false;
+            }
+            case BLOCK -> {
+                try {
+                    queue.put(notification);
+                    available.release();
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                    return false;
+                }
+            }
+            case SPILL -> {
+                return spill(List.of(notification));
+            }
+            default -> throw new IllegalStateException("Неизвестная политика переполнения: " + overflowPolicy);
+        }
+    }
+
+    /**
+     * Цикл фонового писателя. Ожидание новых уведомлений идёт вне {@code writeLock}, а уведомления забираются
+     * из очереди только под ним, поэтому {@link #flush()} не ждёт простаивающего писателя и не пропускает
+     * уведомления, которые писатель уже забрал.
+     */
+    private void runWriter() {
+        List<Notification> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            boolean signalled;
+            try {
+                signalled = available.tryAcquire(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            available.drainPermits();
+            writeLock.lock();
+            try {
+                if (!signalled && queue.isEmpty()) {
+                    replaySpill();
+                    continue;
+                }
+                while (queue.drainTo(batch, batchSize) > 0) {
+                    try {
+                        write(batch);
+                    } catch (RuntimeException e) {
+                        log.warn("Не удалось сохранить {} уведомлений", batch.size(), e);
+                        if (overflowPolicy == OverflowPolicy.SPILL) spill(batch);
+                    }
+                    batch.clear();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Не удалось повторно отправить выгруженные уведомления", e);
+            } finally {
+                batch.clear();
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private void write(List<Notification> batch) {
+        if (batch.isEmpty()) return;
+        writeLatency.record(() -> transactionTemplate.executeWithoutResult(status -> notificationRepository.saveAll(batch)));
+        log.info("Отправлено уведомлений: {}", batch.size());
+    }
+
+    private boolean spill(List<Notification> notifications) {
+        spillLock.lock();
+        try {
+            Files.createDirectories(spillFile.toAbsolutePath().getParent());
+            try (BufferedWriter out = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Notification notification : notifications) {
+                    out.write((notification.getUserId() == null ? "" : notification.getUserId().toString())
+                            + "\t" + escape(notification.getMessage()));
+                    out.newLine();
+                }
+            }
+            spilled.increment(notifications.size());
+            return true;
+        } catch (IOException e) {
+            dropped.increment(notifications.size());
+            log.error("Не удалось выгрузить {} уведомлений на диск", notifications.size(), e);
+            return false;
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    /**
+     * Переносит выгруженные на диск уведомления в БД, когда писатель простаивает. Файл переименовывается
+     * в {@code .replay}, после каждой записанной порции номер последней обработанной строки сохраняется
+     * в {@code .replay.offset}: при сбое повторная отправка продолжается с этой строки, а не с начала файла.
+     * Строки, которые не удаётся разобрать, пропускаются.
+     */
+    private void replaySpill() {
+        Path replay = spillFile.resolveSibling(spillFile.getFileName() + ".replay");
+        Path checkpoint = spillFile.resolveSibling(spillFile.getFileName() + ".replay.offset");
+        spillLock.lock();
+        try {
+            if (!Files.exists(replay)) {
+                if (!Files.exists(spillFile)) return;
+                try {
+                    Files.deleteIfExists(checkpoint);
+                    Files.move(spillFile, replay, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    log.warn("Не удалось подготовить файл {} к повторной отправке", spillFile, e);
+                    return;
+                }
+            }
+        } finally {
+            spillLock.unlock();
+        }
+        List<Notification> batch = new ArrayList<>(batchSize);
+        try (BufferedReader in = Files.newBufferedReader(replay, StandardCharsets.UTF_8)) {
+            long done = Files.exists(checkpoint) ? Long.parseLong(Files.readString(checkpoint).trim()) : 0;
+            long lineNo = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (lineNo++ < done) continue;
+                Notification notification = parseSpilled(line);
+                if (notification == null) {
+                    dropped.increment();
+                    log.warn("Пропущена повреждённая строка {} в {}", lineNo, replay);
+                    continue;
+                }
+                batch.add(notification);
+                if (batch.size() == batchSize) {
+                    write(batch);
+                    batch.clear();
+                    saveCheckpoint(checkpoint, lineNo);
+                }
+            }
+            write(batch);
+            Files.delete(replay);
+            Files.deleteIfExists(checkpoint);
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Не удалось повторно отправить уведомления из {}", replay, e);
+        }
+    }
+
+    private static Notification parseSpilled(String line) {
+        String[] parts = line.split("\t", 2);
+        if (parts.length != 2) return null;
+        try {
+            return Notification.builder()
+                    .userId(parts[0].isEmpty() ? null : UUID.fromString(parts[0]))
+                    .message(unescape(parts[1]))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void saveCheckpoint(Path checkpoint, long lineNo) throws IOException {
+        Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.writeString(tmp, Long.toString(lineNo));
+        Files.move(tmp, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String escape(String message) {
+        return message.replace("\\", "\\\\").replace("\n", "\\n").replace("\t", "\\t");
+    }
+
+    private static String unescape(String message) {
+        StringBuilder sb = new StringBuilder(message.length());
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c == '\\' && i + 1 < message.length()) {
+                char next = message.charAt(++i);
+                sb.append(next == 'n' ? '\n' : next == 't' ? '\t' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+package ru.yofujitsu.url_shortener.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.yofujitsu.url_shortener.cache.RedirectIndex;
+import ru.yofujitsu.url_shortener.model.dto.ArchivedLinkDto;
+import ru.yofujitsu.url_shortener.model.dto.HotLinkDto;
+import ru.yofujitsu.url_shortener.model.dto.LinkStatsDto;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkRequestDto;
+import ru.yofujitsu.url_shortener.model.entity.Link;
+import ru.yofujitsu.url_shortener.model.projection.LinkTarget;
+import ru.yofujitsu.url_shortener.repository.ReactiveLinkRepository;
+import ru.yofujitsu.url_shortener.service.ShortLinkMetrics.RedirectOutcome;
+import ru.yofujitsu.url_shortener.service.ShortLinkService.Redirect;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Вариант {@link ShortLinkService} для профиля {@code reactive}.
+ * <p>
+ * Редирект применяет те же {@link RedirectRules} на общем неблокирующем ядре — {@link RedirectIndex},
+ * {@link ClickAccumulator}, {@link ClickAnalytics}, {@link HotLinkDetector}, очереди {@link NotificationService}
+ * и {@link ShortLinkMetrics}. Переход по ссылке из индекса без лимита обрабатывается целиком на потоке event loop.
+ * Обращения к БД идут через {@link ReactiveLinkRepository}; драйвер r2dbc-h2 выполняет запросы синхронно
+ * в вызывающем потоке, поэтому они подписываются на {@link Schedulers#boundedElastic()}.
+ * Создание ссылок не на горячем пути и делегируется {@link ShortLinkService} на {@link Schedulers#boundedElastic()},
+ * чтобы идентификаторы, коды, колесо истечения и фильтр кодов обслуживались одним кодом.
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveShortLinkService {
+
+    private final ShortLinkService shortLinkService;
+    private final ReactiveLinkRepository linkRepository;
+    private final RedirectIndex redirectIndex;
+    private final ClickAnalytics clickAnalytics;
+    private final HotLinkDetector hotLinkDetector;
+    private final RedirectRules redirectRules;
+    private final ShortLinkMetrics metrics;
+
+    public Mono<Link> createLink(UUID userId, String originalUrl, int maxClicks) {
+        return Mono.fromCallable(() -> shortLinkService.createLink(userId, originalUrl, maxClicks))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<List<Link>> createLinks(UUID userId, List<ShortLinkRequestDto> requests) {
+        return Mono.fromCallable(() -> shortLinkService.createLinks(userId, requests))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Обработка редиректа, см. {@link ShortLinkService#resolveRedirect}.
+     *
+     * @param code      Короткий код ссылки.
+     * @param referrer  Значение заголовка {@code Referer} или null.
+     * @param userAgent Значение заголовка {@code User-Agent} или null.
+     * @return Исход обработки; ссылка заполнена только для {@link RedirectOutcome#FOUND}.
+     */
+    public Mono<Redirect> resolveRedirect(String code, String referrer, String userAgent) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return redirect(code).doOnNext(redirect -> {
+                if (redirect.outcome() == RedirectOutcome.FOUND) {
+                    clickAnalytics.record(code, referrer, userAgent);
+                    hotLinkDetector.record(code);
+                }
+                metrics.redirect(redirect.outcome(), System.nanoTime() - start);
+            });
+        });
+    }
+
+    /**
+     * @param code Короткий код ссылки.
+     * @return Статистика переходов или пустой Mono, если ссылки с таким кодом нет.
+     */
+    public Mono<LinkStatsDto> getStats(String code) {
+        return Mono.justOrEmpty(redirectIndex.get(code))
+                .switchIfEmpty(Mono.defer(() -> onDb(linkRepository.findTargetByCode(code))))
+                .map(link -> clickAnalytics.stats(code));
+    }
+
+    /**
+     * Поиск в архиве, см. {@link ShortLinkService#getArchived}. Чтение отображённых в память файлов может ждать диск,
+     * поэтому выполняется на {@link Schedulers#boundedElastic()}.
+     */
+    public Mono<ArchivedLinkDto> getArchived(String code) {
+        return Mono.fromCallable(() -> shortLinkService.getArchived(code).orElse(null))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<List<HotLinkDto>> getHotLinks() {
+        return Mono.fromSupplier(hotLinkDetector::hotLinks);
+    }
+
+    private Mono<Redirect> redirect(String code) {
+        return Mono.justOrEmpty(redirectIndex.get(code))
+                .switchIfEmpty(Mono.defer(() -> onDb(linkRepository.findTargetByCode(code)).doOnNext(redirectIndex::put)))
+                .flatMap(link -> check(code, link))
+                .defaultIfEmpty(Redirect.denied(RedirectOutcome.NOT_FOUND));
+    }
+
+    private Mono<Redirect> check(String code, LinkTarget link) {
+        Instant now = Instant.now();
+        RedirectRules.Step step = redirectRules.check(link, now);
+        if (step == RedirectRules.Step.EXPIRED) return deactivate(link, step);
+        if (step != RedirectRules.Step.CLAIM) return Mono.just(redirectRules.result(link, step));
+
+        return onDb(linkRepository.claimClick(code, now)).flatMap(claimed -> {
+            if (claimed > 0) return Mono.just(Redirect.found(link));
+            return onDb(linkRepository.claimLastClick(code, now)).flatMap(last -> last > 0
+                    ? Mono.just(redirectRules.lastClickClaimed(link))
+                    : deactivate(link, redirectRules.limitReached(link)));
+        });
+    }
+
+    private Mono<Redirect> deactivate(LinkTarget link, RedirectRules.Step reason) {
+        return onDb(linkRepository.deactivate(link.id(), link.code()))
+                .map(updated -> redirectRules.deactivated(link, reason, updated));
+    }
+
+    /**
+     * Переносит запрос к БД с потока event loop на {@link Schedulers#boundedElastic()}.
+     */
+    private static <T> Mono<T> onDb(Mono<T> query) {
+        return query.subscribeOn(Schedulers.boundedElastic());
+    }
+}
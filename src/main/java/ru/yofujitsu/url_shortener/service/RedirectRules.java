@@ -0,0 +1,112 @@
+package ru.yofujitsu.url_shortener.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yofujitsu.url_shortener.cache.RedirectIndex;
+import ru.yofujitsu.url_shortener.model.projection.LinkTarget;
+import ru.yofujitsu.url_shortener.service.ShortLinkMetrics.RedirectOutcome;
+import ru.yofujitsu.url_shortener.service.ShortLinkService.Redirect;
+
+import java.time.Instant;
+
+/**
+ * Правила перехода по ссылке, общие для {@link ShortLinkService} и {@link ReactiveShortLinkService}:
+ * порядок проверок, исходы, тексты уведомлений и изменения {@link RedirectIndex} и {@link ClickAccumulator}.
+ * Обращения к БД (засчитывание клика и деактивацию) выполняет вызывающий сервис — блокирующим
+ * репозиторием или через R2DBC — и передаёт их результат обратно в правила.
+ */
+@Component
+@RequiredArgsConstructor
+public class RedirectRules {
+
+    /**
+     * Шаг обработки перехода после проверок, не требующих БД.
+     */
+    public enum Step {
+        /** Ссылка неактивна: переход отклоняется, владелец уведомлён. */
+        INACTIVE(RedirectOutcome.INACTIVE, "Попытка перехода по неактивной ссылке: "),
+        /** Срок действия истёк: ссылку нужно деактивировать в БД, переход отклоняется. */
+        EXPIRED(RedirectOutcome.EXPIRED, "Ссылка истекла: "),
+        /** Лимит исчерпан: ссылку нужно деактивировать в БД, переход отклоняется. */
+        LIMIT_REACHED(RedirectOutcome.LIMIT_REACHED, "Лимит переходов исчерпан: "),
+        /** Ссылка без лимита: клик учтён в {@link ClickAccumulator}, переход выполняется. */
+        FOUND(RedirectOutcome.FOUND, null),
+        /** Ссылка с лимитом: клик нужно засчитать в БД. */
+        CLAIM(RedirectOutcome.FOUND, null);
+
+        private final RedirectOutcome outcome;
+        private final String message;
+
+        Step(RedirectOutcome outcome, String message) {
+            this.outcome = outcome;
+            this.message = message;
+        }
+    }
+
+    private final RedirectIndex redirectIndex;
+    private final ClickAccumulator clickAccumulator;
+    private final NotificationService notificationService;
+
+    /**
+     * Проверяет ссылку без обращения к БД.
+     *
+     * @param link Ссылка из индекса или БД.
+     * @param now  Момент перехода.
+     * @return {@link Step#INACTIVE}, {@link Step#EXPIRED}, {@link Step#FOUND} или {@link Step#CLAIM}.
+     */
+    public Step check(LinkTarget link, Instant now) {
+        if (!link.active()) {
+            notify(link, Step.INACTIVE);
+            return Step.INACTIVE;
+        }
+        if (link.expiresAt().isBefore(now)) {
+            redirectIndex.deactivate(link.code());
+            return Step.EXPIRED;
+        }
+        if (!link.limited()) {
+            clickAccumulator.record(link.code());
+            return Step.FOUND;
+        }
+        return Step.CLAIM;
+    }
+
+    /**
+     * Последний разрешённый клик засчитан, и ссылка деактивирована в БД этим переходом.
+     */
+    public Redirect lastClickClaimed(LinkTarget link) {
+        redirectIndex.deactivate(link.code());
+        notify(link, Step.LIMIT_REACHED);
+        return Redirect.found(link);
+    }
+
+    /**
+     * Клик не засчитан: лимит исчерпан другими переходами. Ссылку нужно деактивировать в БД.
+     */
+    public Step limitReached(LinkTarget link) {
+        redirectIndex.deactivate(link.code());
+        return Step.LIMIT_REACHED;
+    }
+
+    /**
+     * Итог деактивации ссылки в БД. Уведомление отправляется только тем вызовом,
+     * который фактически сменил флаг {@code active}.
+     *
+     * @param reason  {@link Step#EXPIRED} или {@link Step#LIMIT_REACHED}.
+     * @param updated Число строк, изменённых деактивацией.
+     */
+    public Redirect deactivated(LinkTarget link, Step reason, long updated) {
+        if (updated > 0) notify(link, reason);
+        return Redirect.denied(reason.outcome);
+    }
+
+    /**
+     * @return Отказ для шага без обращения к БД ({@link Step#INACTIVE}) или переход для {@link Step#FOUND}.
+     */
+    public Redirect result(LinkTarget link, Step step) {
+        return step.outcome == RedirectOutcome.FOUND ? Redirect.found(link) : Redirect.denied(step.outcome);
+    }
+
+    private void notify(LinkTarget link, Step step) {
+        notificationService.sendNotification(link.userId(), step.message + link.code());
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yofujitsu.url_shortener.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики горячих путей {@link ShortLinkService}. Все метры регистрируются один раз при создании,
+ * поэтому запись на пути редиректа не обращается к реестру.
+ * Гистограммы и SLO-границы задаются в {@code management.metrics.distribution.*}.
+ */
+@Component
+public class ShortLinkMetrics {
+
+    /**
+     * Исход обработки редиректа; значение тега {@code outcome} метрики {@code shortlink.redirect}.
+     */
+    public enum RedirectOutcome {
+        /** Ссылка найдена, переход выполнен. */
+        FOUND,
+        /** Ссылки с таким кодом нет. */
+        NOT_FOUND,
+        /** Ссылка уже деактивирована. */
+        INACTIVE,
+        /** Срок действия ссылки истёк. */
+        EXPIRED,
+        /** Лимит переходов исчерпан. */
+        LIMIT_REACHED
+    }
+
+    private final Map<RedirectOutcome, Timer> redirects = new EnumMap<>(RedirectOutcome.class);
+    private final Timer createSingle;
+    private final Timer createBatch;
+    private final Counter collisions;
+    private final Counter deduplicated;
+
+    public ShortLinkMetrics(MeterRegistry meterRegistry) {
+        for (RedirectOutcome outcome : RedirectOutcome.values()) {
+            redirects.put(outcome, Timer.builder("shortlink.redirect")
+                    .description("Длительность обработки редиректа")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        this.createSingle = createTimer(meterRegistry, "single");
+        this.createBatch = createTimer(meterRegistry, "batch");
+        this.collisions = Counter.builder("shortlink.create.collisions")
+                .description("Количество повторных попыток создания из-за коллизии кода")
+                .register(meterRegistry);
+        this.deduplicated = Counter.builder("shortlink.create.deduplicated")
+                .description("Запросы на создание, для которых возвращена существующая ссылка")
+                .register(meterRegistry);
+    }
+
+    public void redirect(RedirectOutcome outcome, long nanos) {
+        redirects.get(outcome).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void create(long nanos) {
+        createSingle.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void createBatch(long nanos) {
+        createBatch.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void collision() {
+        collisions.increment();
+    }
+
+    public void deduplicated() {
+        deduplicated.increment();
+    }
+
+    private static Timer createTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("shortlink.create")
+                .description("Длительность создания коротких ссылок")
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+}
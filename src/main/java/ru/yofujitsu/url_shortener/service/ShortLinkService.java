@@ -1,105 +1,346 @@
 package ru.yofujitsu.url_shortener.service;
 
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yofujitsu.url_shortener.cache.CodeFilter;
+import ru.yofujitsu.url_shortener.cache.RedirectIndex;
+import ru.yofujitsu.url_shortener.model.dto.ArchivedLinkDto;
+import ru.yofujitsu.url_shortener.model.dto.HotLinkDto;
+import ru.yofujitsu.url_shortener.model.dto.LinkStatsDto;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkRequestDto;
 import ru.yofujitsu.url_shortener.model.entity.Link;
+import ru.yofujitsu.url_shortener.model.entity.LinkChange.Kind;
+import ru.yofujitsu.url_shortener.model.projection.LinkTarget;
+import ru.yofujitsu.url_shortener.repository.LinkArchive;
+import ru.yofujitsu.url_shortener.repository.LinkChangeLog;
 import ru.yofujitsu.url_shortener.repository.LinkRepository;
-import ru.yofujitsu.url_shortener.utils.ShortCodeGenerator;
+import ru.yofujitsu.url_shortener.scheduler.ExpiryWheel;
+import ru.yofujitsu.url_shortener.service.ShortLinkMetrics.RedirectOutcome;
+import ru.yofujitsu.url_shortener.utils.CodeGenerator;
+import ru.yofujitsu.url_shortener.utils.UrlHash;
 
+import java.sql.SQLException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class ShortLinkService {
 
+    private static final int MAX_CODE_ATTEMPTS = 5;
+    private static final String CODE_CONSTRAINT = "uk_links_code";
+    private static final String UNIQUE_VIOLATION = "23505";
+
     private final LinkRepository linkRepository;
-    private final NotificationService notificationService;
+    private final RedirectIndex redirectIndex;
+    private final CodeFilter codeFilter;
+    private final ClickAnalytics clickAnalytics;
+    private final HotLinkDetector hotLinkDetector;
+    private final CodeGenerator codeGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final ExpiryWheel expiryWheel;
+    private final ShortLinkMetrics metrics;
+    private final LinkChangeLog linkChangeLog;
+    private final LinkArchive linkArchive;
+    private final RedirectRules redirectRules;
 
     @Value("${app.ttl}")
     private int DEFAULT_TTL_HOURS;
 
+    @Value("${app.dedup.enabled}")
+    private boolean dedupEnabled;
+
     /**
      * Метод создания новой короткой ссылки.
-     * Гарантирует уникальность сгенерированного кода для данного пользователя,
-     * предпринимая до 6 попыток генерации при коллизии. Срок действия ссылки
-     * устанавливается на основе {@code DEFAULT_TTL_HOURS}.
+     * Код выдаётся стратегией {@link CodeGenerator} без предварительных проверок существования в БД:
+     * уникальность обеспечивается ограничением на колонку {@code code}, и при нарушении
+     * ограничения выполняется до {@value MAX_CODE_ATTEMPTS} попыток. Срок действия ссылки
+     * устанавливается на основе {@code DEFAULT_TTL_HOURS}, ссылка ставится на истечение в {@link ExpiryWheel}
+     * и добавляется в {@link RedirectIndex} и {@link CodeFilter}.
+     * При {@code app.dedup.enabled} сначала ищется активная ссылка того же пользователя на тот же URL с тем же
+     * лимитом кликов (одна выборка по индексу {@code (user_id, url_hash)}); найденная ссылка возвращается вместо новой.
+     * Дедупликация не блокирует конкурентные запросы, поэтому одновременное создание одного URL может дать две ссылки.
      * * @param userId Идентификатор пользователя, создающего ссылку.
      * @param originalUrl Исходный URL, на который должна указывать короткая ссылка.
      * @param maxClicks Максимальное количество кликов, после которого ссылка будет деактивирована (0 - без лимита).
      * @return Объект Link, представляющий созданную и сохраненную короткую ссылку.
-     * @throws IllegalStateException Если не удалось сгенерировать уникальный код после 6 попыток.
+     * @throws IllegalStateException Если не удалось сохранить ссылку с уникальным кодом за {@value MAX_CODE_ATTEMPTS} попыток.
      */
-    @Transactional
     public Link createLink(UUID userId, String originalUrl, int maxClicks) {
+        long start = System.nanoTime();
+        try {
+            long urlHash = UrlHash.of(originalUrl);
+            if (dedupEnabled) {
+                Optional<Link> existing = linkRepository.findReusable(userId, urlHash, originalUrl, maxClicks, Instant.now(), Limit.of(1));
+                if (existing.isPresent()) {
+                    metrics.deduplicated();
+                    return existing.get();
+                }
+            }
+            return saveWithUniqueCode(userId, originalUrl, urlHash, maxClicks);
+        } finally {
+            metrics.create(System.nanoTime() - start);
+        }
+    }
 
-        String code;
-        AtomicInteger attempts = new AtomicInteger(0);
-        do {
-            code = ShortCodeGenerator.generateShortCode(6);
-            attempts.getAndIncrement();
-            if (attempts.get() > 5) throw new IllegalStateException("Ошибка генерации кода для ссылки");
-        } while (linkRepository.existsByCodeAndUserId(code, userId));
+    private Link saveWithUniqueCode(UUID userId, String originalUrl, long urlHash, int maxClicks) {
+        for (int attempt = 0; attempt < MAX_CODE_ATTEMPTS; attempt++) {
+            Link link = Link.builder()
+                    .code(codeGenerator.nextCode())
+                    .originalUrl(originalUrl)
+                    .urlHash(urlHash)
+                    .userId(userId)
+                    .maxClicks(maxClicks)
+                    .expiresAt(Instant.now().plus(Duration.ofHours(DEFAULT_TTL_HOURS)))
+                    .build();
+            try {
+                Link saved = transactionTemplate.execute(status -> {
+                    Link inserted = linkRepository.save(link);
+                    linkChangeLog.append(Kind.CREATED, inserted.getCode());
+                    return inserted;
+                });
+                expiryWheel.schedule(saved.getId(), saved.getExpiresAt());
+                redirectIndex.put(LinkTarget.of(saved));
+                codeFilter.add(saved.getCode());
+                return saved;
+            } catch (DataIntegrityViolationException e) {
+                if (!isCodeCollision(e)) throw e;
+                metrics.collision();
+                log.debug("Коллизия кода {}, попытка {}", link.getCode(), attempt + 1);
+            }
+        }
+        throw new IllegalStateException("Ошибка генерации кода для ссылки");
+    }
+
+    /**
+     * Метод пакетного создания коротких ссылок.
+     * Коды выделяются заранее стратегией {@link CodeGenerator}, ссылки сохраняются в одной транзакции
+     * пакетными JDBC-вставками (идентификаторы выдаются пулом последовательности {@code links_seq}).
+     * При нарушении уникальности кода пакет целиком повторяется с новыми кодами, до {@value MAX_CODE_ATTEMPTS} попыток;
+     * нарушение любого другого ограничения пробрасывается сразу.
+     * Дедупликация к пакету не применяется: ссылки всегда создаются заново, но с заполненным {@code url_hash},
+     * поэтому находятся последующими одиночными запросами.
+     *
+     * @param userId   Идентификатор пользователя, создающего ссылки.
+     * @param requests Параметры создаваемых ссылок.
+     * @return Созданные ссылки в порядке запросов.
+     * @throws IllegalStateException Если не удалось сохранить пакет за {@value MAX_CODE_ATTEMPTS} попыток.
+     */
+    public List<Link> createLinks(UUID userId, List<ShortLinkRequestDto> requests) {
+        long start = System.nanoTime();
+        try {
+            return saveAllWithUniqueCodes(userId, requests);
+        } finally {
+            metrics.createBatch(System.nanoTime() - start);
+        }
+    }
 
-        Link link = Link.builder()
-                .code(code)
-                .originalUrl(originalUrl)
-                .userId(userId)
-                .maxClicks(maxClicks)
-                .expiresAt(Instant.now().plus(Duration.ofMinutes(DEFAULT_TTL_HOURS)))
-                .build();
-        return linkRepository.save(link);
+    private List<Link> saveAllWithUniqueCodes(UUID userId, List<ShortLinkRequestDto> requests) {
+        for (int attempt = 0; attempt < MAX_CODE_ATTEMPTS; attempt++) {
+            Instant expiresAt = Instant.now().plus(Duration.ofHours(DEFAULT_TTL_HOURS));
+            List<Link> links = new ArrayList<>(requests.size());
+            for (ShortLinkRequestDto request : requests) {
+                links.add(Link.builder()
+                        .code(codeGenerator.nextCode())
+                        .originalUrl(request.originalUrl())
+                        .urlHash(UrlHash.of(request.originalUrl()))
+                        .userId(userId)
+                        .maxClicks(request.maxClicks())
+                        .expiresAt(expiresAt)
+                        .build());
+            }
+            try {
+                List<Link> saved = transactionTemplate.execute(status -> {
+                    List<Link> inserted = linkRepository.saveAll(links);
+                    linkChangeLog.append(Kind.CREATED, links.stream().map(Link::getCode).toList());
+                    return inserted;
+                });
+                saved.forEach(link -> {
+                    expiryWheel.schedule(link.getId(), link.getExpiresAt());
+                    redirectIndex.put(LinkTarget.of(link));
+                    codeFilter.add(link.getCode());
+                });
+                return saved;
+            } catch (DataIntegrityViolationException e) {
+                if (!isCodeCollision(e)) throw e;
+                metrics.collision();
+                log.debug("Коллизия кода в пакете из {} ссылок, попытка {}", links.size(), attempt + 1);
+            }
+        }
+        throw new IllegalStateException("Ошибка генерации кодов для пакета ссылок");
+    }
+
+    /**
+     * Отличает коллизию кода от нарушения других ограничений (например, слишком длинного URL), которые
+     * повтор с новым кодом не исправит. Имя ограничения берётся из {@link ConstraintViolationException};
+     * если драйвер его не сообщил, коллизией считается нарушение уникальности (SQLSTATE {@value #UNIQUE_VIOLATION}):
+     * другого уникального ключа, кроме первичного из последовательности, у {@code links} нет.
+     */
+    static boolean isCodeCollision(DataIntegrityViolationException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toLowerCase(Locale.ROOT).contains(CODE_CONSTRAINT);
+            }
+            if (cause instanceof SQLException sql && sql.getSQLState() != null) {
+                return UNIQUE_VIOLATION.equals(sql.getSQLState());
+            }
+        }
+        return false;
     }
 
     /**
      * Метод обработки запроса на редирект по ссылке.
-     * Выполняет проверки на активность, срок действия и лимит кликов.
-     * При успешном переходе увеличивает счетчик кликов.
+     * Ссылка разрешается через {@link RedirectIndex}; при промахе она читается из БД и добавляется в индекс.
+     * Выполняет проверки на активность и срок действия.
+     * Клик по ссылке без лимита учитывается в памяти через {@link ClickAccumulator}.
+     * Клик по ссылке с лимитом засчитывается одним условным UPDATE в БД, поэтому лимит
+     * не превышается при конкурентных переходах, а транзакция не удерживается на время проверок.
      * Деактивирует ссылку, если она истекла или исчерпала лимит, и отправляет уведомление пользователю.
+     * Длительность обработки публикуется в {@link ShortLinkMetrics} с исходом {@link RedirectOutcome}.
      *
      * @param code Короткий код ссылки.
      * @return Optional, содержащий исходный URL, если ссылка активна и доступна для перехода,
      * или Optional.empty(), если ссылка не найдена, неактивна, истекла или исчерпала лимит.
      */
-    @Transactional
     public Optional<String> handleRedirect(String code) {
-        Optional<Link> opt = linkRepository.findByCode(code);
-        if (opt.isEmpty()) return Optional.empty();
+        return Optional.ofNullable(resolveRedirect(code, null, null).url());
+    }
 
-        Link link = opt.get();
-        if (!link.isActive()) {
-            notificationService.sendNotification(link.getUserId(), "Попытка перехода по неактивной ссылке: " + code);
-            return Optional.empty();
+    /**
+     * Обработка редиректа, см. {@link #handleRedirect(String)}, с публикацией события клика в {@link ClickAnalytics}
+     * и {@link HotLinkDetector} при успешном переходе. Возвращает исход и саму ссылку, чтобы HTTP-слой мог выбрать код ответа и заголовки кеширования.
+     *
+     * @param code      Короткий код ссылки.
+     * @param referrer  Значение заголовка {@code Referer} или null.
+     * @param userAgent Значение заголовка {@code User-Agent} или null.
+     * @return Исход обработки; ссылка заполнена только для {@link RedirectOutcome#FOUND}.
+     */
+    public Redirect resolveRedirect(String code, String referrer, String userAgent) {
+        long start = System.nanoTime();
+        Redirect redirect = redirect(code);
+        if (redirect.outcome() == RedirectOutcome.FOUND) {
+            clickAnalytics.record(code, referrer, userAgent);
+            hotLinkDetector.record(code);
         }
+        metrics.redirect(redirect.outcome(), System.nanoTime() - start);
+        return redirect;
+    }
 
-        if (link.getExpiresAt().isBefore(Instant.now())) {
-            link.setActive(false);
-            linkRepository.save(link);
-            notificationService.sendNotification(link.getUserId(), "Ссылка истекла: " + code);
-            return Optional.empty();
+    /**
+     * Метод получения статистики переходов по ссылке из {@link ClickAnalytics}.
+     *
+     * @param code Короткий код ссылки.
+     * @return Статистика переходов или Optional.empty(), если ссылки с таким кодом нет.
+     */
+    public Optional<LinkStatsDto> getStats(String code) {
+        return redirectIndex.get(code)
+                .or(() -> linkRepository.findTargetByCode(code))
+                .map(link -> clickAnalytics.stats(code));
+    }
+
+    /**
+     * Поиск удалённой просроченной ссылки в {@link LinkArchive}.
+     *
+     * @param code Короткий код ссылки.
+     * @return Последняя заархивированная запись или Optional.empty(), если кода нет в архиве.
+     */
+    public Optional<ArchivedLinkDto> getArchived(String code) {
+        return linkArchive.find(code);
+    }
+
+    /**
+     * @return Популярные ссылки по оценке {@link HotLinkDetector}.
+     */
+    public List<HotLinkDto> getHotLinks() {
+        return hotLinkDetector.hotLinks();
+    }
+
+    private Redirect redirect(String code) {
+        Optional<LinkTarget> opt = redirectIndex.get(code).or(() -> load(code));
+        if (opt.isEmpty()) return Redirect.denied(RedirectOutcome.NOT_FOUND);
+
+        LinkTarget link = opt.get();
+        Instant now = Instant.now();
+        RedirectRules.Step step = redirectRules.check(link, now);
+        if (step == RedirectRules.Step.EXPIRED) return deactivate(link, step);
+        if (step != RedirectRules.Step.CLAIM) return redirectRules.result(link, step);
+
+        if (linkRepository.claimClick(code, now) > 0) return Redirect.found(link);
+        if (inTransaction(() -> deactivated(linkRepository.claimLastClick(code, now), code)) > 0) {
+            return redirectRules.lastClickClaimed(link);
         }
+        return deactivate(link, redirectRules.limitReached(link));
+    }
+
+    private Optional<LinkTarget> load(String code) {
+        Optional<LinkTarget> link = linkRepository.findTargetByCode(code);
+        if (link.isPresent()) {
+            redirectIndex.put(link.get());
+        } else {
+            codeFilter.recordFalsePositive(code);
+        }
+        return link;
+    }
+
+    /**
+     * Деактивирует ссылку в БД; индекс уже обновлён {@link RedirectRules}.
+     */
+    private Redirect deactivate(LinkTarget link, RedirectRules.Step reason) {
+        int updated = inTransaction(() -> deactivated(linkRepository.deactivate(link.id()), link.code()));
+        return redirectRules.deactivated(link, reason, updated);
+    }
+
+    /**
+     * Записывает деактивацию в {@link LinkChangeLog}, если она произошла.
+     */
+    private int deactivated(int updated, String code) {
+        if (updated > 0) linkChangeLog.append(Kind.DEACTIVATED, code);
+        return updated;
+    }
 
-        if (link.getMaxClicks() > 0 && link.getClicks().get() >= link.getMaxClicks()) {
-            link.setActive(false);
-            linkRepository.save(link);
-            notificationService.sendNotification(link.getUserId(), "Лимит переходов исчерпан: " + code);
-            return Optional.empty();
+    /**
+     * Выполняет изменение ссылки вместе с записью в журнал изменений в одной транзакции;
+     * без журнала — в собственной транзакции метода репозитория.
+     */
+    private int inTransaction(IntSupplier change) {
+        if (!linkChangeLog.enabled()) return change.getAsInt();
+        Integer updated = transactionTemplate.execute(status -> change.getAsInt());
+        return updated == null ? 0 : updated;
+    }
+
+    /**
+     * Результат обработки редиректа.
+     *
+     * @param outcome Исход обработки.
+     * @param link    Ссылка, по которой выполняется переход, или null, если переход не выполняется.
+     */
+    public record Redirect(RedirectOutcome outcome, LinkTarget link) {
+        static Redirect found(LinkTarget link) {
+            return new Redirect(RedirectOutcome.FOUND, link);
         }
 
-        AtomicInteger clicks = link.getClicks();
-        clicks.incrementAndGet();
-        link.setClicks(clicks);
-        if (link.getMaxClicks() > 0 && link.getClicks().get() >= link.getMaxClicks()) {
-            link.setActive(false);
-            notificationService.sendNotification(link.getUserId(), "Лимит переходов исчерпан: " + code);
+        static Redirect denied(RedirectOutcome outcome) {
+            return new Redirect(outcome, null);
         }
-        linkRepository.save(link);
 
-        return Optional.of(link.getOriginalUrl());
+        /**
+         * @return Исходный URL ссылки или null, если переход не выполняется.
+         */
+        public String url() {
+            return link == null ? null : link.originalUrl();
+        }
     }
 }
@@ -0,0 +1,70 @@
+package ru.yofujitsu.url_shortener.utils;
+
+import java.util.Arrays;
+
+public final class Base62 {
+
+    public static final char[] ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    public static final int BASE = ALPHABET.length;
+    /** Максимальная длина кода, который помещается в {@code long} через {@link #pack(String)}. */
+    public static final int MAX_PACKED_LENGTH = 10;
+
+    private static final byte[] DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(DIGITS, (byte) -1);
+        for (int i = 0; i < BASE; i++) {
+            DIGITS[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private Base62() {
+    }
+
+    /**
+     * Кодирует неотрицательное число в base62-строку фиксированной длины (с ведущими нулями).
+     *
+     * @param value  Число в диапазоне [0, 62^length).
+     * @param length Длина результата.
+     * @return Закодированная строка.
+     */
+    public static String encode(long value, int length) {
+        char[] chars = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value % BASE)];
+            value /= BASE;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return 62^length — количество различных кодов указанной длины.
+     */
+    public static long capacity(int length) {
+        long capacity = 1;
+        for (int i = 0; i < length; i++) {
+            capacity = Math.multiplyExact(capacity, BASE);
+        }
+        return capacity;
+    }
+
+    /**
+     * Упаковывает код в положительное число. Каждый символ кодируется цифрой 1..62 по основанию 63,
+     * поэтому коды разной длины (например, {@code "0a"} и {@code "a"}) дают разные числа, а 0 не выдаётся никогда.
+     *
+     * @param code Код из символов {@link #ALPHABET} длиной не больше {@value #MAX_PACKED_LENGTH}.
+     * @return Упакованный код или -1, если код не помещается в {@code long} или содержит другие символы.
+     */
+    public static long pack(String code) {
+        int length = code.length();
+        if (length == 0 || length > MAX_PACKED_LENGTH) return -1;
+        long packed = 0;
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            int digit = c < DIGITS.length ? DIGITS[c] : -1;
+            if (digit < 0) return -1;
+            packed = packed * (BASE + 1) + digit + 1;
+        }
+        return packed;
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yofujitsu.url_shortener.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yofujitsu.url_shortener.repository.CodeBlockRepository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Генерирует коды без коллизий из счётчика, диапазоны которого узел арендует в БД блоками.
+ * Значение счётчика переставляется сетью Фейстеля на пространстве [0, 62^length),
+ * поэтому соседние коды не угадываются по порядку выдачи, а взаимная однозначность
+ * перестановки гарантирует уникальность без проверок существования кода в БД.
+ */
+@Component
+@ConditionalOnProperty(name = "app.code.generator", havingValue = "block", matchIfMissing = true)
+public class BlockCodeGenerator implements CodeGenerator {
+
+    private static final int ROUNDS = 4;
+
+    private final CodeBlockRepository codeBlockRepository;
+    private final int length;
+    private final long blockSize;
+    private final long capacity;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    private final ReentrantLock leaseLock = new ReentrantLock();
+    private volatile Block block = new Block(0, 0);
+
+    public BlockCodeGenerator(CodeBlockRepository codeBlockRepository,
+                              @Value("${app.code.length}") int length,
+                              @Value("${app.code.block-size}") long blockSize,
+                              @Value("${app.code.secret}") long secret) {
+        this.codeBlockRepository = codeBlockRepository;
+        this.length = length;
+        this.blockSize = blockSize;
+        this.capacity = Base62.capacity(length);
+        int bits = 64 - Long.numberOfLeadingZeros(capacity - 1);
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+        long seed = secret;
+        for (int i = 0; i < ROUNDS; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            roundKeys[i] = mix(seed);
+        }
+    }
+
+    @Override
+    public String nextCode() {
+        return Base62.encode(permute(nextCounter()), length);
+    }
+
+    long nextCounter() {
+        while (true) {
+            Block current = block;
+            long value = current.cursor.getAndIncrement();
+            if (value < current.end) return value;
+            lease(current);
+        }
+    }
+
+    /**
+     * Арендует новый блок. Используется {@link ReentrantLock}, а не {@code synchronized}:
+     * аренда обращается к БД, и монитор закрепил бы виртуальный поток за потоком-носителем.
+     */
+    private void lease(Block exhausted) {
+        leaseLock.lock();
+        try {
+            if (block != exhausted) return;
+            long start = Math.multiplyExact(codeBlockRepository.nextBlock(), blockSize);
+            if (start >= capacity) throw new IllegalStateException("Пространство коротких кодов исчерпано");
+            block = new Block(start, Math.min(start + blockSize, capacity));
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    /**
+     * Перестановка [0, capacity) → [0, capacity): сеть Фейстеля на ближайшей степени двойки
+     * с повторным применением (cycle walking), пока результат не попадёт в диапазон.
+     */
+    long permute(long value) {
+        do {
+            value = feistel(value);
+        } while (value >= capacity);
+        return value;
+    }
+
+    private long feistel(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ (mix(right ^ roundKeys[i]) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static final class Block {
+        private final AtomicLong cursor;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ru.yofujitsu.url_shortener.utils;
+
+/**
+ * Стратегия генерации коротких кодов ссылок.
+ * Реализация выбирается свойством {@code app.code.generator}.
+ */
+public interface CodeGenerator {
+
+    /**
+     * @return Очередной короткий код.
+     */
+    String nextCode();
+}
@@ -0,0 +1,109 @@
+package ru.yofujitsu.url_shortener.utils;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Адаптивный предел числа одновременно выполняемых запросов по градиенту задержки (по схеме Gradient2).
+ * <p>
+ * Время ответа усредняется по окнам из {@value SAMPLE_SIZE} запросов: завершение запроса только добавляет его
+ * в сумму окна, а пересчёт выполняет один поток, закрывший окно, поэтому на каждый запрос нет общей блокировки.
+ * По окнам ведутся две экспоненциальные средние: короткая (последние ~{@value SHORT_WINDOW} запросов)
+ * и длинная (~{@value LONG_WINDOW} запросов), которая служит базовой задержкой без очереди.
+ * Градиент {@code tolerance * long / short}, ограниченный отрезком [0.5, 1], уменьшает предел, когда текущая
+ * задержка растёт относительно базовой, а добавка {@code sqrt(limit)} позволяет пределу расти, пока задержка
+ * не меняется. Новое значение сглаживается коэффициентом {@code smoothing}. Предел не растёт, пока занято
+ * меньше половины, чтобы простой не раздувал его.
+ */
+public class GradientConcurrencyLimiter {
+
+    private static final int SAMPLE_SIZE = 5;
+    private static final int SHORT_WINDOW = 10;
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final LongAdder rttSum = new LongAdder();
+    private final AtomicInteger samples = new AtomicInteger();
+    private final AtomicBoolean updating = new AtomicBoolean();
+
+    private volatile int limit;
+    private double estimatedLimit;
+    private double shortRtt;
+    private double longRtt;
+
+    public GradientConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Ожидается 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * @return true, если запрос допущен; тогда после его завершения нужно вызвать {@link #release(long)}.
+     */
+    public boolean tryAcquire() {
+        if (inflight.incrementAndGet() > limit) {
+            inflight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Завершает допущенный запрос и учитывает его время ответа; предел пересчитывается раз в окно
+     * из {@value SAMPLE_SIZE} запросов.
+     *
+     * @param rttNanos Время выполнения запроса в наносекундах.
+     */
+    public void release(long rttNanos) {
+        int busy = inflight.getAndDecrement();
+        rttSum.add(rttNanos);
+        if (samples.incrementAndGet() < SAMPLE_SIZE || !updating.compareAndSet(false, true)) return;
+        try {
+            int count = samples.getAndSet(0);
+            if (count >= SAMPLE_SIZE) update((double) rttSum.sumThenReset() / count, busy);
+        } finally {
+            updating.set(false);
+        }
+    }
+
+    /**
+     * Вызывается одним потоком за раз (под флагом {@code updating}), поэтому поля средних не требуют синхронизации
+     * сверх публикации через этот флаг.
+     */
+    private void update(double rtt, int busy) {
+        if (longRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+            return;
+        }
+        shortRtt += (rtt - shortRtt) * 2 / ((double) SHORT_WINDOW / SAMPLE_SIZE + 1);
+        longRtt += (rtt - longRtt) * 2 / ((double) LONG_WINDOW / SAMPLE_SIZE + 1);
+        // После продолжительной перегрузки длинная средняя завышена; возвращаем её к текущей задержке.
+        if (longRtt / shortRtt > 2) longRtt *= 0.95;
+        if (busy < estimatedLimit / 2) return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - smoothing) + target * smoothing));
+        limit = (int) estimatedLimit;
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yofujitsu.url_shortener.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Генерирует случайные коды через потоко-локальный неблокирующий {@link ThreadLocalRandom}
+ * вместо общего {@code SecureRandom}. Коллизии возможны и обрабатываются уникальным ограничением на {@code code}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.code.generator", havingValue = "random")
+public class RandomCodeGenerator implements CodeGenerator {
+
+    private final int length;
+
+    public RandomCodeGenerator(@Value("${app.code.length}") int length) {
+        this.length = length;
+    }
+
+    @Override
+    public String nextCode() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = Base62.ALPHABET[random.nextInt(Base62.BASE)];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yofujitsu.url_shortener.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничение частоты запросов по ключу: token bucket со скоростью {@code ratePerSecond} токенов в секунду
+ * и ёмкостью {@code burst}, реализованный как GCRA. Состояние ключа — одно число (теоретическое время прибытия
+ * следующего запроса), которое обновляется CAS без блокировок.
+ * <p>
+ * Ключи хранятся в Caffeine с ограничением {@code maximumKeys} и вытесняются после простоя; простой не короче
+ * времени полного пополнения корзины, поэтому вытеснение не даёт клиенту лишних токенов.
+ */
+public class TokenBucketLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongSupplier clock;
+    private final Cache<String, AtomicLong> buckets;
+
+    public TokenBucketLimiter(double ratePerSecond, int burst, Duration idleTimeout, long maximumKeys) {
+        this(ratePerSecond, burst, idleTimeout, maximumKeys, System::nanoTime);
+    }
+
+    TokenBucketLimiter(double ratePerSecond, int burst, Duration idleTimeout, long maximumKeys, LongSupplier clock) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Скорость и ёмкость корзины должны быть положительными");
+        }
+        this.intervalNanos = (long) (1e9 / ratePerSecond);
+        this.burstNanos = intervalNanos * (burst - 1);
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofNanos(Math.max(idleTimeout.toNanos(), burstNanos + intervalNanos)))
+                .maximumSize(maximumKeys)
+                .build();
+    }
+
+    /**
+     * Забирает токен из корзины ключа.
+     *
+     * @param key Ключ клиента.
+     * @return 0, если токен выдан; иначе время в наносекундах до появления следующего токена.
+     */
+    public long tryAcquire(String key) {
+        AtomicLong arrival = bucket(key);
+        long now = clock.getAsLong();
+        while (true) {
+            long expected = arrival.get();
+            long base = Math.max(expected, now);
+            long wait = base - burstNanos - now;
+            if (wait > 0) return wait;
+            if (arrival.compareAndSet(expected, base + intervalNanos)) return 0;
+        }
+    }
+
+    /**
+     * Забирает по токену из корзин двух ключей, только если токены есть в обеих: корзина, в которой токен есть,
+     * не расходуется на запрос, отклонённый другой корзиной.
+     *
+     * @return 0, если токены выданы; иначе наибольшее из времён ожидания корзин в наносекундах.
+     */
+    public long tryAcquire(String first, String second) {
+        long wait = Math.max(waitFor(first), waitFor(second));
+        if (wait > 0) return wait;
+        wait = tryAcquire(first);
+        if (wait > 0) return wait;
+        wait = tryAcquire(second);
+        // Токен второй корзины успели забрать между проверкой и расходом — возвращаем токен первой.
+        if (wait > 0) bucket(first).addAndGet(-intervalNanos);
+        return wait;
+    }
+
+    /**
+     * @return Приблизительное число отслеживаемых ключей.
+     */
+    public long size() {
+        return buckets.estimatedSize();
+    }
+
+    private long waitFor(String key) {
+        long now = clock.getAsLong();
+        return Math.max(0, Math.max(bucket(key).get(), now) - burstNanos - now);
+    }
+
+    private AtomicLong bucket(String key) {
+        return buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+    }
+}
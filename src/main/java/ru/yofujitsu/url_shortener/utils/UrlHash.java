@@ -0,0 +1,26 @@
+package ru.yofujitsu.url_shortener.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 64-битный хеш исходного URL для индекса дедупликации ({@code links.url_hash}).
+ * Берутся первые 8 байт SHA-256: вероятность совпадения хешей у разных URL одного пользователя пренебрежимо мала,
+ * а при совпадении запрос дедупликации всё равно сравнивает сам URL.
+ */
+public final class UrlHash {
+
+    private UrlHash() {
+    }
+
+    public static long of(String url) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(hash).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
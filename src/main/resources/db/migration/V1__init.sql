@@ -0,0 +1,34 @@
+-- Начальная схема. Используется профилем prod (spring.flyway.enabled=true, ddl-auto=validate).
+
+CREATE SEQUENCE IF NOT EXISTS links_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS notifications_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS code_block_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE links
+(
+    id           BIGINT                      NOT NULL PRIMARY KEY,
+    user_id      UUID,
+    code         VARCHAR(255)                NOT NULL,
+    original_url VARCHAR(2048)               NOT NULL,
+    max_clicks   INTEGER,
+    clicks       INTEGER                     NOT NULL DEFAULT 0,
+    created_at   TIMESTAMP(6) WITH TIME ZONE,
+    expires_at   TIMESTAMP(6) WITH TIME ZONE,
+    active       BOOLEAN                     NOT NULL DEFAULT TRUE,
+    -- Уникальный индекс по коду обслуживает и поиск при редиректе.
+    CONSTRAINT uk_links_code UNIQUE (code)
+);
+
+CREATE INDEX idx_links_user_id ON links (user_id);
+CREATE INDEX idx_links_expires_at ON links (expires_at);
+
+CREATE TABLE notifications
+(
+    id         BIGINT                      NOT NULL PRIMARY KEY,
+    user_id    UUID,
+    message    VARCHAR(255),
+    viewed     BOOLEAN                     NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_notifications_user_id ON notifications (user_id);
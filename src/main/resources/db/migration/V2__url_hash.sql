@@ -0,0 +1,7 @@
+-- Хеш исходного URL для дедупликации при создании ссылок.
+-- Составной индекс (user_id, url_hash) заменяет индекс по user_id и обслуживает оба вида поиска.
+
+ALTER TABLE links ADD COLUMN url_hash BIGINT;
+
+DROP INDEX idx_links_user_id;
+CREATE INDEX idx_links_user_id_url_hash ON links (user_id, url_hash);
@@ -0,0 +1,12 @@
+-- Журнал изменений ссылок для согласования локальных кешей узлов (app.changes).
+
+CREATE TABLE link_changes
+(
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    node       UUID                        NOT NULL,
+    kind       VARCHAR(16)                 NOT NULL,
+    code       VARCHAR(255)                NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_link_changes_created_at ON link_changes (created_at);
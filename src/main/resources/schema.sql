@@ -0,0 +1 @@
+CREATE SEQUENCE IF NOT EXISTS code_block_seq;
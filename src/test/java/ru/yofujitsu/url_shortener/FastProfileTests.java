@@ -0,0 +1,31 @@
+package ru.yofujitsu.url_shortener;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Профиль {@code fast}: схема в памяти создаётся миграциями Flyway и проходит {@code ddl-auto: validate},
+ * бины приложения создаются при старте, а неиспользуемые библиотечные — только при первом обращении.
+ * Отдельная БД в памяти: общую с другими тестами уже заполнил Hibernate.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:fast;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("fast")
+class FastProfileTests {
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Test
+    void lazyInitialization_ApplicationBeansEager_LibraryBeansDeferred() {
+        assertTrue(beanFactory.containsSingleton("linkChangeTailer"));
+        assertTrue(beanFactory.containsSingleton("linkExpiryService"));
+        assertTrue(beanFactory.containsBeanDefinition("restTemplateBuilder"));
+        assertFalse(beanFactory.containsSingleton("restTemplateBuilder"));
+        assertFalse(beanFactory.containsSingleton("webClientBuilder"));
+    }
+}
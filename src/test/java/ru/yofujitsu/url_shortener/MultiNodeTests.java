@@ -0,0 +1,96 @@
+package ru.yofujitsu.url_shortener;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yofujitsu.url_shortener.cache.CodeFilter;
+import ru.yofujitsu.url_shortener.cache.RedirectIndex;
+import ru.yofujitsu.url_shortener.model.entity.Link;
+import ru.yofujitsu.url_shortener.model.projection.LinkTarget;
+import ru.yofujitsu.url_shortener.repository.LinkRepository;
+import ru.yofujitsu.url_shortener.service.LinkExpiryService;
+import ru.yofujitsu.url_shortener.service.ShortLinkService;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Два узла с общей БД (файл H2 профиля prod) и журналом изменений: изменения ссылок на одном узле
+ * доходят до кешей другого за несколько интервалов опроса.
+ */
+class MultiNodeTests {
+
+    private static final Duration STALENESS = Duration.ofSeconds(5);
+
+    @TempDir
+    static Path dataDir;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode("a");
+        nodeB = startNode("b");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) nodeB.close();
+        if (nodeA != null) nodeA.close();
+    }
+
+    @Test
+    void createLink_OtherNode_CodeFilterUpdated() {
+        String code = nodeA.getBean(ShortLinkService.class).createLink(UUID.randomUUID(), "https://test.com/a", 0).getCode();
+
+        await().atMost(STALENESS).until(() -> nodeB.getBean(CodeFilter.class).mightContain(code));
+    }
+
+    @Test
+    void limitReached_OtherNode_IndexEntryDeactivated() {
+        Link link = nodeA.getBean(ShortLinkService.class).createLink(UUID.randomUUID(), "https://test.com/b", 1);
+        RedirectIndex indexB = cache(nodeB, link.getCode());
+
+        assertTrue(nodeA.getBean(ShortLinkService.class).handleRedirect(link.getCode()).isPresent());
+
+        await().atMost(STALENESS).until(() -> !indexB.get(link.getCode()).orElseThrow().active());
+    }
+
+    @Test
+    void expire_OtherNode_IndexEntryRemoved() {
+        Link link = nodeA.getBean(ShortLinkService.class).createLink(UUID.randomUUID(), "https://test.com/c", 0);
+        RedirectIndex indexB = cache(nodeB, link.getCode());
+
+        nodeA.getBean(LinkExpiryService.class).expire(List.of(link.getId()), "sweep");
+
+        await().atMost(STALENESS).until(() -> indexB.get(link.getCode()).isEmpty());
+    }
+
+    private static RedirectIndex cache(ConfigurableApplicationContext node, String code) {
+        LinkTarget target = node.getBean(LinkRepository.class).findTargetByCode(code).orElseThrow();
+        RedirectIndex index = node.getBean(RedirectIndex.class);
+        index.put(target);
+        return index;
+    }
+
+    private static ConfigurableApplicationContext startNode(String name) {
+        return new SpringApplicationBuilder(UrlShortenerApplication.class).run(
+                "--spring.profiles.active=prod",
+                "--app.code.secret=1",
+                "--app.data-dir=" + dataDir,
+                "--app.archive.dir=" + dataDir.resolve("archive-" + name),
+                "--server.port=0",
+                "--app.changes.enabled=true",
+                "--app.changes.poll-interval-ms=100",
+                "--app.admission.enabled=false");
+    }
+}
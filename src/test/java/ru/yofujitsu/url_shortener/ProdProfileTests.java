@@ -0,0 +1,99 @@
+package ru.yofujitsu.url_shortener;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.yofujitsu.url_shortener.model.dto.ArchivedLinkDto;
+import ru.yofujitsu.url_shortener.model.entity.Link;
+import ru.yofujitsu.url_shortener.service.ClickAccumulator;
+import ru.yofujitsu.url_shortener.service.LinkExpiryService;
+import ru.yofujitsu.url_shortener.service.ShortLinkService;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверяет, что схема из миграций Flyway совпадает с сущностями: в профиле prod Hibernate
+ * работает с {@code ddl-auto: validate} и не поднимет контекст при расхождении.
+ */
+@SpringBootTest(properties = {"app.dedup.enabled=true", "app.code.secret=1"})
+@ActiveProfiles("prod")
+class ProdProfileTests {
+
+    @TempDir
+    static Path dataDir;
+
+    @Autowired
+    private ShortLinkService shortLinkService;
+
+    @Autowired
+    private LinkExpiryService linkExpiryService;
+
+    @Autowired
+    private ClickAccumulator clickAccumulator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void dataDir(DynamicPropertyRegistry registry) {
+        registry.add("app.data-dir", dataDir::toString);
+    }
+
+    @Test
+    void contextLoads() {
+    }
+
+    /**
+     * Проверяет дедупликацию на схеме из миграций: повторное создание того же URL тем же пользователем
+     * с тем же лимитом возвращает существующую ссылку, другой лимит или другой пользователь получают новую.
+     * Поиск выполняется по индексу {@code idx_links_user_id_url_hash}.
+     */
+    @Test
+    void createLink_SameUrl_ExistingLinkReused() {
+        UUID userId = UUID.randomUUID();
+        String url = "https://test.com/dedup";
+
+        String code = shortLinkService.createLink(userId, url, 0).getCode();
+
+        assertEquals(code, shortLinkService.createLink(userId, url, 0).getCode());
+        assertNotEquals(code, shortLinkService.createLink(userId, url, 5).getCode());
+        assertNotEquals(code, shortLinkService.createLink(UUID.randomUUID(), url, 0).getCode());
+        String plan = jdbcTemplate.queryForObject("""
+                EXPLAIN SELECT * FROM links
+                WHERE user_id = RANDOM_UUID() AND url_hash = 1 AND original_url = 'x' AND max_clicks = 0
+                """, String.class);
+        assertTrue(plan.toUpperCase().contains("IDX_LINKS_USER_ID_URL_HASH"), plan);
+    }
+
+    /**
+     * Проверяет, что удалённая по сроку ссылка попадает в архив: строки в БД больше нет,
+     * а {@code GET /archive/{code}} возвращает её последнее состояние вместе с кликами, ещё не сброшенными накопителем.
+     */
+    @Test
+    void expire_ArchiveEnabled_LinkArchivedAndDeleted() {
+        UUID userId = UUID.randomUUID();
+        Link link = shortLinkService.createLink(userId, "https://test.com/archive", 3);
+        clickAccumulator.record(link.getCode());
+        clickAccumulator.record(link.getCode());
+
+        linkExpiryService.expire(List.of(link.getId()), "test");
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM links WHERE id = ?", Integer.class, link.getId()));
+        ArchivedLinkDto archived = shortLinkService.getArchived(link.getCode()).orElseThrow();
+        assertEquals(link.getId(), archived.id());
+        assertEquals("https://test.com/archive", archived.originalUrl());
+        assertEquals(userId, archived.userId());
+        assertEquals(3, archived.maxClicks());
+        assertEquals(2, archived.clicks());
+        assertEquals(0, clickAccumulator.pending(link.getCode()));
+    }
+}
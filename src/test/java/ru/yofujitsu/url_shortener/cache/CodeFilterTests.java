@@ -0,0 +1,92 @@
+package ru.yofujitsu.url_shortener.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yofujitsu.url_shortener.repository.LinkRepository;
+import ru.yofujitsu.url_shortener.utils.Base62;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CodeFilterTests {
+
+    /**
+     * Проверяет, что фильтр не даёт ложноотрицательных ответов для добавленных кодов,
+     * доля ложноположительных ответов на неизвестных кодах близка к расчётной,
+     * а удалённые коды перестают находиться.
+     */
+    @Test
+    void table_AddContainsRemove_NoFalseNegatives() {
+        CodeFilter.Table table = new CodeFilter.Table(100_000);
+        for (int i = 0; i < 100_000; i++) {
+            table.add(CodeFilter.hash(Base62.encode(i, 6)));
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(table.contains(CodeFilter.hash(Base62.encode(i, 6))));
+        }
+        int falsePositives = 0;
+        for (int i = 100_000; i < 200_000; i++) {
+            if (table.contains(CodeFilter.hash(Base62.encode(i, 6)))) falsePositives++;
+        }
+        assertTrue(falsePositives < 100, "Ложноположительных ответов: " + falsePositives);
+
+        for (int i = 0; i < 50_000; i++) {
+            table.remove(CodeFilter.hash(Base62.encode(i, 6)));
+        }
+        assertEquals(50_000, table.count());
+        for (int i = 50_000; i < 100_000; i++) {
+            assertTrue(table.contains(CodeFilter.hash(Base62.encode(i, 6))));
+        }
+    }
+
+    /**
+     * Проверяет перестроение с одновременными изменениями: код, удалённый после чтения, снимается с нового фильтра,
+     * код, удалённый до чтения, в него не попадает, а коды, созданные во время перестроения, сохраняются.
+     */
+    @Test
+    void rebuild_ConcurrentChanges_AppliedToNewTable() {
+        LinkRepository linkRepository = mock(LinkRepository.class);
+        CodeFilter filter = new CodeFilter(linkRepository, mock(PlatformTransactionManager.class), true, 1000, 60_000);
+        when(linkRepository.count()).thenReturn(4L);
+        when(linkRepository.streamCodes()).thenReturn(Stream.of("aaa", "bbb", "ccc", "ddd").peek(code -> {
+            if (code.equals("bbb")) {
+                filter.removeAll(List.of("aaa", "ccc"));
+                filter.add("aab");
+                filter.add("zzz");
+            }
+        }));
+
+        filter.rebuild();
+
+        assertFalse(filter.mightContain("aaa"));
+        assertFalse(filter.mightContain("ccc"));
+        assertTrue(filter.mightContain("bbb"));
+        assertTrue(filter.mightContain("ddd"));
+        assertTrue(filter.mightContain("aab"));
+        assertTrue(filter.mightContain("zzz"));
+    }
+
+    /**
+     * Проверяет учёт ложноположительных ответов: код из фильтра, которого нет в БД, учитывается,
+     * а код недавно удалённой ссылки — нет.
+     */
+    @Test
+    void recordFalsePositive_RecentlyDeleted_NotCounted() {
+        LinkRepository linkRepository = mock(LinkRepository.class);
+        CodeFilter filter = new CodeFilter(linkRepository, mock(PlatformTransactionManager.class), true, 1000, 60_000);
+        when(linkRepository.streamCodes()).thenReturn(Stream.of("gone", "ghost"));
+        filter.rebuild();
+
+        filter.markDeleted(List.of("gone"));
+        filter.recordFalsePositive("gone");
+        assertEquals(0, filter.observedFalsePositiveRate());
+
+        filter.recordFalsePositive("ghost");
+        assertEquals(1, filter.observedFalsePositiveRate());
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yofujitsu.url_shortener.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.yofujitsu.url_shortener.model.projection.LinkTarget;
+import ru.yofujitsu.url_shortener.utils.Base62;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedirectIndexTests {
+
+    private final UUID userId = UUID.randomUUID();
+    private final Instant expiresAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    /**
+     * Проверяет, что ссылка читается из индекса в том же виде, в котором была добавлена,
+     * включая URL с символами вне ASCII из внеheap-арены.
+     */
+    @Test
+    void get_AfterPut_ReturnsSameLink() {
+        RedirectIndex index = new RedirectIndex(null, null, 16, 1024, Integer.MAX_VALUE);
+        LinkTarget link = new LinkTarget(7L, userId, "aB3xY9", "https://пример.рф/путь?q=1", 5, expiresAt, true);
+
+        index.put(link);
+
+        assertEquals(link, index.get("aB3xY9").orElseThrow());
+        assertTrue(index.get("aB3xY8").isEmpty());
+        assertTrue(index.get("not-base62").isEmpty());
+    }
+
+    /**
+     * Проверяет рост таблицы, удаление с обратным сдвигом и сжатие арены:
+     * после удаления половины ссылок остальные по-прежнему находятся и сохраняют свои URL.
+     */
+    @Test
+    void removeAll_HalfOfLinks_RemainingLinksIntact() {
+        RedirectIndex index = new RedirectIndex(null, null, 16, 256, Integer.MAX_VALUE);
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            String code = Base62.encode(i, 4);
+            codes.add(code);
+            index.put(new LinkTarget((long) i, userId, code, "https://example.com/" + i, 0, expiresAt, true));
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (int i = 0; i < codes.size(); i += 2) {
+            removed.add(codes.get(i));
+        }
+        index.removeAll(removed);
+
+        assertEquals(2500, index.size());
+        for (int i = 0; i < codes.size(); i++) {
+            if (i % 2 == 0) {
+                assertTrue(index.get(codes.get(i)).isEmpty());
+            } else {
+                assertEquals("https://example.com/" + i, index.get(codes.get(i)).orElseThrow().originalUrl());
+            }
+        }
+    }
+
+    /**
+     * Проверяет лимит размера: индекс не растёт больше {@code max-entries}, ссылка, прочитанная после
+     * добавления, и ссылка горячего яруса переживают вытеснение, а вытесненные ссылки удаляются целиком.
+     */
+    @Test
+    void put_OverMaxEntries_ColdLinksEvicted() {
+        RedirectIndex index = new RedirectIndex(null, null, 16, 1024, 100);
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String code = Base62.encode(i, 4);
+            codes.add(code);
+            index.put(new LinkTarget((long) i, userId, code, "https://example.com/" + i, 0, expiresAt, true));
+        }
+        index.promote(List.of(codes.get(0)));
+        index.get(codes.get(1));
+
+        for (int i = 100; i < 1000; i++) {
+            String code = Base62.encode(i, 4);
+            index.put(new LinkTarget((long) i, userId, code, "https://example.com/" + i, 0, expiresAt, true));
+            index.get(codes.get(1));
+        }
+
+        assertEquals(100, index.size());
+        assertEquals(900, index.evictions());
+        assertTrue(index.get(codes.get(0)).isPresent());
+        assertEquals("https://example.com/1", index.get(codes.get(1)).orElseThrow().originalUrl());
+        assertEquals("https://example.com/999", index.get(Base62.encode(999, 4)).orElseThrow().originalUrl());
+        assertTrue(index.get(codes.get(50)).isEmpty());
+    }
+
+    /**
+     * Проверяет, что деактивированная ссылка остаётся в индексе с флагом {@code active = false}.
+     */
+    @Test
+    void deactivate_ExistingLink_KeptInactive() {
+        RedirectIndex index = new RedirectIndex(null, null, 16, 1024, Integer.MAX_VALUE);
+        index.put(new LinkTarget(1L, userId, "abc", "https://example.com", 1, expiresAt, true));
+
+        index.deactivate("abc");
+
+        assertFalse(index.get("abc").orElseThrow().active());
+    }
+
+    /**
+     * Проверяет горячий ярус: в него попадают только активные ссылки из индекса, обновление ссылки
+     * видно через ярус, а деактивированная и удалённая ссылки из него выбывают.
+     */
+    @Test
+    void promote_HotLinks_FollowIndexChanges() {
+        RedirectIndex index = new RedirectIndex(null, null, 16, 1024, Integer.MAX_VALUE);
+        LinkTarget hot = new LinkTarget(1L, userId, "hot001", "https://example.com/hot", 0, expiresAt, true);
+        LinkTarget other = new LinkTarget(2L, userId, "hot002", "https://example.com/other", 0, expiresAt, true);
+        LinkTarget inactive = new LinkTarget(3L, userId, "hot003", "https://example.com/inactive", 0, expiresAt, false);
+        List.of(hot, other, inactive).forEach(index::put);
+
+        assertEquals(Set.of("hot001", "hot002"), index.promote(List.of("hot001", "hot002", "hot003", "absent")));
+        assertEquals(hot, index.get("hot001").orElseThrow());
+
+        LinkTarget extended = new LinkTarget(1L, userId, "hot001", "https://example.com/hot", 0, expiresAt.plusSeconds(60), true);
+        index.put(extended);
+        assertEquals(extended, index.get("hot001").orElseThrow());
+
+        index.deactivate("hot001");
+        index.removeAll(List.of("hot002"));
+        assertEquals(Set.of(), index.hotCodes());
+        assertFalse(index.get("hot001").orElseThrow().active());
+        assertTrue(index.get("hot002").isEmpty());
+    }
+}
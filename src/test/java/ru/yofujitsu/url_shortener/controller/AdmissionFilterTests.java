@@ -0,0 +1,60 @@
+package ru.yofujitsu.url_shortener.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "app.admission.create.rate-per-s=0.1",
+        "app.admission.create.burst=2"
+})
+@AutoConfigureMockMvc
+class AdmissionFilterTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Проверяет ограничение частоты создания: после исчерпания бюджета клиент получает 429 с Retry-After,
+     * смена X-User-ID с того же адреса ограничение не обходит, а бюджет редиректов от создания не зависит.
+     */
+    @Test
+    void createShort_BudgetExhausted_TooManyRequests() throws Exception {
+        UUID userId = UUID.randomUUID();
+        create(userId).andExpect(status().isOk());
+        create(userId).andExpect(status().isOk());
+
+        create(userId)
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "10"));
+        create(UUID.randomUUID()).andExpect(status().isTooManyRequests());
+        mockMvc.perform(get("/{code}", "unknownCode4")).andExpect(status().isNotFound());
+
+        assertEquals(2, meterRegistry.get("shortlink.admission.rejected")
+                .tag("operation", "create").tag("reason", "rate_limit").functionCounter().count());
+    }
+
+    private ResultActions create(UUID userId) throws Exception {
+        return mockMvc.perform(post("/shorten")
+                .header("X-User-ID", userId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"originalUrl\":\"https://test.com/admission\",\"maxClicks\":0}"));
+    }
+}
@@ -0,0 +1,252 @@
+package ru.yofujitsu.url_shortener.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.yofujitsu.url_shortener.model.dto.LinkStatsDto;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkRequestDto;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkResponseDto;
+import ru.yofujitsu.url_shortener.repository.LinkRepository;
+import ru.yofujitsu.url_shortener.service.ClickAnalytics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.batch.chunk-size=4")
+@AutoConfigureMockMvc
+class LinkControllerTests {
+
+    private static final UUID TEST_USER_ID = UUID.randomUUID();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ClickAnalytics clickAnalytics;
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    /**
+     * Проверяет пакетное создание ссылок: пакет больше размера порции обрабатывается целиком,
+     * ответы возвращаются в порядке запросов с уникальными кодами, и каждая ссылка сразу доступна для редиректа.
+     */
+    @Test
+    void createShortBatch_Success_AllLinksCreatedInOrder() throws Exception {
+        List<ShortLinkRequestDto> requests = IntStream.range(0, 10)
+                .mapToObj(i -> new ShortLinkRequestDto("https://test.com/" + i, 0))
+                .toList();
+
+        String body = mockMvc.perform(post("/shorten/batch")
+                        .header("X-User-ID", TEST_USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<ShortLinkResponseDto> responses = Arrays.asList(objectMapper.readValue(body, ShortLinkResponseDto[].class));
+
+        assertEquals(10, responses.size());
+        assertEquals(10, responses.stream().map(ShortLinkResponseDto::shortCode).distinct().count());
+        for (int i = 0; i < responses.size(); i++) {
+            assertEquals(TEST_USER_ID, responses.get(i).userId());
+            mockMvc.perform(get("/{code}", responses.get(i).shortCode()))
+                    .andExpect(redirectedUrl("https://test.com/" + i));
+        }
+    }
+
+    /**
+     * Проверяет, что тело пакетного запроса, не являющееся JSON-массивом, отклоняется с 400.
+     */
+    @Test
+    void createShortBatch_Failure_NotAnArray() throws Exception {
+        mockMvc.perform(post("/shorten/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"originalUrl\":\"https://test.com\",\"maxClicks\":0}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Проверяет, что элемент пакета, не являющийся объектом, отклоняется с 400 и номером элемента,
+     * а не обрывает разбор с усечённым успешным ответом.
+     */
+    @Test
+    void createShortBatch_Failure_NotAnObjectElement() throws Exception {
+        mockMvc.perform(post("/shorten/batch")
+                        .header("X-User-ID", TEST_USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"originalUrl\":\"https://test.com/a\",\"maxClicks\":0}, 42]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(status().reason(containsString("Элемент 1")));
+    }
+
+    /**
+     * Проверяет, что элемент пакета с некорректными параметрами (пустой или слишком длинный URL) отклоняется с 400
+     * и номером элемента до сохранения своей порции, и ни одна ссылка пакета не создаётся.
+     */
+    @Test
+    void createShortBatch_Failure_InvalidElement() throws Exception {
+        long before = linkRepository.count();
+        String tooLong = "https://test.com/" + "x".repeat(ShortLinkRequestDto.MAX_URL_LENGTH);
+
+        mockMvc.perform(post("/shorten/batch")
+                        .header("X-User-ID", TEST_USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(
+                                new ShortLinkRequestDto("https://test.com/a", 0),
+                                new ShortLinkRequestDto("https://test.com/b", 0),
+                                new ShortLinkRequestDto(tooLong, 0)))))
+                .andExpect(status().isBadRequest())
+                .andExpect(status().reason(containsString("Элемент 2")));
+        mockMvc.perform(post("/shorten/batch")
+                        .header("X-User-ID", TEST_USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"originalUrl\":\"https://test.com/a\",\"maxClicks\":0}, {\"maxClicks\":0}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(status().reason(containsString("Элемент 1")));
+
+        assertEquals(before, linkRepository.count());
+    }
+
+    /**
+     * Проверяет, что одиночное создание с некорректными параметрами отклоняется с 400, а не падает с 500.
+     */
+    @Test
+    void createShort_Failure_InvalidRequest() throws Exception {
+        mockMvc.perform(post("/shorten")
+                        .header("X-User-ID", TEST_USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"maxClicks\":0}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/shorten")
+                        .header("X-User-ID", TEST_USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ShortLinkRequestDto("https://test.com", -1))))
+                .andExpect(status().isBadRequest())
+                .andExpect(status().reason(containsString("maxClicks")));
+    }
+
+    /**
+     * Проверяет заголовок {@code Idempotency-Key}: повтор запроса с тем же ключом возвращает ту же ссылку,
+     * другой ключ создаёт новую, а тот же ключ с другим телом отклоняется с 422.
+     */
+    @Test
+    void createShort_SameIdempotencyKey_SameResponse() throws Exception {
+        String request = objectMapper.writeValueAsString(new ShortLinkRequestDto("https://test.com/retry", 0));
+
+        String first = createShort("key-1", request);
+        String retry = createShort("key-1", request);
+        String other = createShort("key-2", request);
+
+        assertEquals(first, retry);
+        assertNotEquals(objectMapper.readValue(first, ShortLinkResponseDto.class).shortCode(),
+                objectMapper.readValue(other, ShortLinkResponseDto.class).shortCode());
+        mockMvc.perform(post("/shorten")
+                        .header("X-User-ID", TEST_USER_ID)
+                        .header(IdempotencyCache.HEADER, "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ShortLinkRequestDto("https://test.com/other", 0))))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    /**
+     * Проверяет анонимные запросы с {@code Idempotency-Key}: без cookie ключ не используется и каждый клиент
+     * получает свою ссылку и свою cookie, а запросы с выданной cookie используют ключ и новую cookie не получают.
+     */
+    @Test
+    void createShort_AnonymousIdempotencyKey_ScopedToIssuedCookie() throws Exception {
+        String request = objectMapper.writeValueAsString(new ShortLinkRequestDto("https://test.com/anonymous", 0));
+        MockHttpServletResponse first = createAnonymous(request, null);
+        MockHttpServletResponse other = createAnonymous(request, null);
+        Cookie issued = first.getCookie(LinkController.USER_COOKIE);
+
+        assertNotNull(issued);
+        assertNotEquals(first.getContentAsString(), other.getContentAsString());
+        MockHttpServletResponse keyed = createAnonymous(request, issued);
+        MockHttpServletResponse retry = createAnonymous(request, issued);
+        assertEquals(keyed.getContentAsString(), retry.getContentAsString());
+        assertEquals(issued.getValue(), objectMapper.readValue(retry.getContentAsString(), ShortLinkResponseDto.class).userId().toString());
+        assertNull(retry.getCookie(LinkController.USER_COOKIE));
+    }
+
+    /**
+     * Проверяет, что редирект по неизвестному коду отклоняется фильтром кодов с 404 без обращения к сервису.
+     */
+    @Test
+    void redirect_UnknownCode_RejectedByFilter() throws Exception {
+        double before = meterRegistry.get("shortlink.code.filter.rejected").functionCounter().count();
+
+        mockMvc.perform(get("/{code}", "unknownCode1")).andExpect(status().isNotFound());
+
+        assertEquals(before + 1, meterRegistry.get("shortlink.code.filter.rejected").functionCounter().count());
+    }
+
+    /**
+     * Проверяет, что переход учитывается в статистике ссылки вместе с referrer'ом,
+     * а для несуществующего кода статистика недоступна.
+     */
+    @Test
+    void stats_AfterRedirect_ClickCounted() throws Exception {
+        String body = mockMvc.perform(post("/shorten")
+                        .header("X-User-ID", TEST_USER_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ShortLinkRequestDto("https://test.com/stats", 0))))
+                .andReturn().getResponse().getContentAsString();
+        String code = objectMapper.readValue(body, ShortLinkResponseDto.class).shortCode();
+
+        mockMvc.perform(get("/{code}", code)
+                        .header(HttpHeaders.REFERER, "https://news.example")
+                        .header(HttpHeaders.USER_AGENT, "test-agent"))
+                .andExpect(status().isMovedPermanently());
+        clickAnalytics.drain();
+
+        LinkStatsDto stats = objectMapper.readValue(mockMvc.perform(get("/links/{code}/stats", code))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), LinkStatsDto.class);
+        assertEquals(1, stats.clicks());
+        assertEquals("https://news.example", stats.topReferrers().get(0).referrer());
+        mockMvc.perform(get("/links/{code}/stats", "unknownCode2")).andExpect(status().isNotFound());
+    }
+
+    private MockHttpServletResponse createAnonymous(String request, Cookie cookie) throws Exception {
+        MockHttpServletRequestBuilder builder = post("/shorten")
+                .header(IdempotencyCache.HEADER, "anonymous-key")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(request);
+        if (cookie != null) builder.cookie(cookie);
+        return mockMvc.perform(builder).andExpect(status().isOk()).andReturn().getResponse();
+    }
+
+    private String createShort(String idempotencyKey, String request) throws Exception {
+        return mockMvc.perform(post("/shorten")
+                        .header("X-User-ID", TEST_USER_ID)
+                        .header(IdempotencyCache.HEADER, idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(request))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+}
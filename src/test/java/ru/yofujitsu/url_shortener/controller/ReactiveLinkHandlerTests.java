@@ -0,0 +1,118 @@
+package ru.yofujitsu.url_shortener.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import ru.yofujitsu.url_shortener.model.dto.LinkStatsDto;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkRequestDto;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkResponseDto;
+import ru.yofujitsu.url_shortener.service.ClickAnalytics;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactiveLinkHandlerTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ClickAnalytics clickAnalytics;
+
+    /**
+     * Проверяет полный цикл на WebFlux: ссылка со сроком по умолчанию отдаётся кешируемым редиректом,
+     * переход по ней учитывается в статистике, неизвестный код получает 404.
+     */
+    @Test
+    void redirect_CreatedLink_RedirectedAndCounted() {
+        String code = create("https://test.com/reactive", 0);
+
+        webTestClient.get().uri("/{code}", code)
+                .header(HttpHeaders.REFERER, "https://news.example")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.MOVED_PERMANENTLY)
+                .expectHeader().location("https://test.com/reactive")
+                .expectHeader().valueMatches(HttpHeaders.CACHE_CONTROL, "public, max-age=\\d+");
+        clickAnalytics.drain();
+
+        LinkStatsDto stats = webTestClient.get().uri("/links/{code}/stats", code)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LinkStatsDto.class).returnResult().getResponseBody();
+        assertNotNull(stats);
+        assertEquals(1, stats.clicks());
+        webTestClient.get().uri("/{code}", "unknownCode4").exchange().expectStatus().isNotFound();
+    }
+
+    /**
+     * Проверяет, что лимит переходов соблюдается через R2DBC: второй переход по ссылке с лимитом 1 отклоняется.
+     */
+    @Test
+    void redirect_LimitReached_NotFound() {
+        String code = create("https://test.com/limited", 1);
+
+        webTestClient.get().uri("/{code}", code).exchange().expectStatus().isFound();
+        webTestClient.get().uri("/{code}", code).exchange().expectStatus().isNotFound();
+    }
+
+    /**
+     * Проверяет пакетное создание: ответы возвращаются JSON-массивом в порядке запросов.
+     */
+    @Test
+    void createShortBatch_Success_AllLinksCreated() {
+        List<ShortLinkResponseDto> responses = webTestClient.post().uri("/shorten/batch")
+                .bodyValue(List.of(new ShortLinkRequestDto("https://test.com/1", 0), new ShortLinkRequestDto("https://test.com/2", 0)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ShortLinkResponseDto.class).returnResult().getResponseBody();
+
+        assertNotNull(responses);
+        assertEquals(2, responses.size());
+        webTestClient.get().uri("/{code}", responses.get(1).shortCode())
+                .exchange()
+                .expectHeader().location("https://test.com/2");
+    }
+
+    /**
+     * Проверяет, что элемент пакета с некорректными параметрами отклоняется с 400 до сохранения его порции.
+     */
+    @Test
+    void createShortBatch_InvalidElement_BadRequest() {
+        webTestClient.post().uri("/shorten/batch")
+                .bodyValue(List.of(new ShortLinkRequestDto("https://test.com/1", 0), new ShortLinkRequestDto(" ", 0)))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    /**
+     * Проверяет, что некорректный {@code X-User-ID} отклоняется с 400, как в сервлетном варианте, а не с 500.
+     */
+    @Test
+    void createShort_MalformedUserId_BadRequest() {
+        webTestClient.post().uri("/shorten")
+                .header("X-User-ID", "not-a-uuid")
+                .bodyValue(new ShortLinkRequestDto("https://test.com/bad-user", 0))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private String create(String url, int maxClicks) {
+        ShortLinkResponseDto response = webTestClient.post().uri("/shorten")
+                .bodyValue(new ShortLinkRequestDto(url, maxClicks))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ShortLinkResponseDto.class).returnResult().getResponseBody();
+        assertNotNull(response);
+        return response.shortCode();
+    }
+}
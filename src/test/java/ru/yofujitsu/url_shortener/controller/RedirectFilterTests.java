@@ -0,0 +1,81 @@
+package ru.yofujitsu.url_shortener.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkRequestDto;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkResponseDto;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RedirectFilterTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Проверяет, что ссылка без лимита со сроком по умолчанию ({@code app.ttl} в часах) отдаётся постоянным
+     * кешируемым редиректом с ETag, а повторный запрос с тем же тегом получает 304.
+     */
+    @Test
+    void redirect_UnlimitedLinkDefaultTtl_PermanentAndCacheable() throws Exception {
+        String code = create(0);
+
+        String etag = mockMvc.perform(get("/{code}", code))
+                .andExpect(status().isMovedPermanently())
+                .andExpect(header().string(HttpHeaders.LOCATION, "https://test.com/cached"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, startsWith("public, max-age=179")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/{code}", code).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    /**
+     * Проверяет, что ссылка с лимитом переходов отдаётся временным редиректом, который нельзя кешировать.
+     */
+    @Test
+    void redirect_LimitedLink_TemporaryNoStore() throws Exception {
+        String code = create(10);
+
+        mockMvc.perform(get("/{code}", code))
+                .andExpect(status().isFound())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"))
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    /**
+     * Проверяет, что пути из одного сегмента, не являющиеся кодами, проходят фильтр к своим обработчикам.
+     */
+    @Test
+    void redirect_NotACode_PassedToMvc() throws Exception {
+        mockMvc.perform(get("/actuator")).andExpect(status().isOk());
+        mockMvc.perform(get("/{code}", "unknownCode3")).andExpect(status().isNotFound());
+    }
+
+    private String create(int maxClicks) throws Exception {
+        String body = mockMvc.perform(post("/shorten")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ShortLinkRequestDto(
+                                maxClicks == 0 ? "https://test.com/cached" : "https://test.com/limited", maxClicks))))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, ShortLinkResponseDto.class).shortCode();
+    }
+}
@@ -0,0 +1,167 @@
+package ru.yofujitsu.url_shortener.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yofujitsu.url_shortener.model.dto.ArchivedLinkDto;
+import ru.yofujitsu.url_shortener.model.entity.Link;
+import ru.yofujitsu.url_shortener.utils.Base62;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkArchiveTests {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    @TempDir
+    Path dir;
+
+    private LinkArchive archive;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (archive != null) archive.close();
+    }
+
+    /**
+     * Проверяет, что порция из нескольких групп читается обратно со всеми столбцами,
+     * а коды, которых нет в архиве, не находятся.
+     */
+    @Test
+    void append_SeveralGroups_AllColumnsRoundTrip() throws IOException {
+        archive = open(64 * 1024 * 1024, 1024);
+        List<Link> links = links(0, 300);
+        links.get(7).setUserId(null);
+        links.get(8).setActive(false);
+
+        archive.append(links, NOW);
+
+        for (Link link : links) {
+            ArchivedLinkDto archived = archive.find(link.getCode()).orElseThrow();
+            assertEquals(link.getId(), archived.id());
+            assertEquals(link.getOriginalUrl(), archived.originalUrl());
+            assertEquals(link.getUserId(), archived.userId());
+            assertEquals(link.getMaxClicks(), archived.maxClicks());
+            assertEquals(link.getClicks().get(), archived.clicks());
+            assertEquals(link.getCreatedAt(), archived.createdAt());
+            assertEquals(link.getExpiresAt(), archived.expiresAt());
+            assertEquals(link.isActive(), archived.active());
+            assertEquals(NOW, archived.archivedAt());
+        }
+        assertTrue(archive.find(Base62.encode(999_999, 6)).isEmpty());
+        assertTrue(archive.find("не-base62").isEmpty());
+    }
+
+    /**
+     * Проверяет, что после сбоя во время записи недописанный блок отбрасывается при открытии,
+     * а целые блоки остаются доступны и запись продолжается.
+     */
+    @Test
+    void open_TornTail_TruncatedAndAppendable() throws IOException {
+        archive = open(64 * 1024 * 1024, 1024);
+        archive.append(links(0, 10), NOW);
+        archive.append(links(10, 10), NOW);
+        archive.close();
+        Path segment = segments().get(0);
+        long size = Files.size(segment);
+        Files.write(segment, new byte[]{0x4C, 0x4E, 0x4B, 0x41, 0, 0, 1}, StandardOpenOption.APPEND);
+
+        archive = open(64 * 1024 * 1024, 1024);
+
+        assertEquals(size, Files.size(segment));
+        assertTrue(archive.find(Base62.encode(15, 6)).isPresent());
+        archive.append(links(20, 10), NOW);
+        assertTrue(archive.find(Base62.encode(25, 6)).isPresent());
+    }
+
+    /**
+     * Проверяет, что блок с целым индексом, но повреждёнными группами (страницы файла записаны не по порядку)
+     * отбрасывается по CRC всего блока, а предыдущие блоки остаются доступны.
+     */
+    @Test
+    void open_CorruptedGroups_BlockDropped() throws IOException {
+        archive = open(64 * 1024 * 1024, 1024);
+        archive.append(links(0, 10), NOW);
+        archive.close();
+        Path segment = segments().get(0);
+        long size = Files.size(segment);
+        archive = open(64 * 1024 * 1024, 1024);
+        archive.append(links(10, 10), NOW);
+        archive.close();
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[(int) size + 24] ^= 0x5A;
+        Files.write(segment, bytes);
+
+        archive = open(64 * 1024 * 1024, 1024);
+
+        assertEquals(size, Files.size(segment));
+        assertTrue(archive.find(Base62.encode(5, 6)).isPresent());
+        assertTrue(archive.find(Base62.encode(15, 6)).isEmpty());
+    }
+
+    /**
+     * Проверяет уплотнение: закрытый для записи сегмент переписывается в отсортированный,
+     * повторно заархивированная ссылка остаётся в последней версии, а после перезапуска читается уплотнённый файл.
+     */
+    @Test
+    void compact_SealedSegment_SortedAndLatestKept() throws IOException {
+        archive = open(64 * 1024 * 1024, 2);
+        archive.append(links(0, 100), NOW);
+        List<Link> again = links(0, 1);
+        again.get(0).getClicks().set(42);
+        archive.append(again, NOW.plusSeconds(1));
+        archive.append(links(100, 100), NOW);
+        assertEquals(2, segments().size());
+
+        archive.compact();
+
+        assertTrue(Files.exists(dir.resolve("segment-000001.sorted.seg")));
+        assertFalse(Files.exists(dir.resolve("segment-000001.seg")));
+        assertEquals(42, archive.find(Base62.encode(0, 6)).orElseThrow().clicks());
+        archive.close();
+        archive = open(64 * 1024 * 1024, 2);
+        assertEquals(42, archive.find(Base62.encode(0, 6)).orElseThrow().clicks());
+        assertTrue(archive.find(Base62.encode(50, 6)).isPresent());
+        assertTrue(archive.find(Base62.encode(150, 6)).isPresent());
+    }
+
+    private LinkArchive open(long segmentBytes, int maxBlocksPerSegment) throws IOException {
+        LinkArchive linkArchive = new LinkArchive(true, dir, segmentBytes, maxBlocksPerSegment);
+        linkArchive.open();
+        return linkArchive;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static List<Link> links(int from, int count) {
+        return IntStream.range(from, from + count)
+                .mapToObj(i -> Link.builder()
+                        .id(1_000L + i)
+                        .userId(UUID.randomUUID())
+                        .code(Base62.encode(i, 6))
+                        .originalUrl("https://test.com/archive/" + i)
+                        .maxClicks(i % 3)
+                        .clicks(new AtomicInteger(i % 5))
+                        .createdAt(NOW.minusSeconds(3600 + i))
+                        .expiresAt(NOW.minusSeconds(i))
+                        .active(true)
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yofujitsu.url_shortener.scheduler;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yofujitsu.url_shortener.model.entity.Link;
+import ru.yofujitsu.url_shortener.repository.LinkRepository;
+import ru.yofujitsu.url_shortener.repository.NotificationRepository;
+import ru.yofujitsu.url_shortener.service.NotificationService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "app.cleanup.chunk-size=3")
+class CleanupSchedulerTests {
+
+    @Autowired
+    private CleanupScheduler cleanupScheduler;
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    /**
+     * Проверяет, что просроченные ссылки удаляются порциями, живые ссылки не затрагиваются,
+     * а уведомления получают только владельцы ссылок, которые были активны на момент очистки.
+     */
+    @Test
+    void cleanupExpired_SeveralChunks_ExpiredLinksDeleted() {
+        UUID userId = UUID.randomUUID();
+        IntStream.range(0, 7).forEach(i -> linkRepository.save(link("exp" + i, userId, Instant.now().minus(Duration.ofMinutes(1)), i != 0)));
+        Link alive = linkRepository.save(link("alive", userId, Instant.now().plus(Duration.ofHours(1)), true));
+
+        cleanupScheduler.cleanupExpired();
+        notificationService.flush();
+
+        assertEquals(0, linkRepository.countByExpiresAtBefore(Instant.now()));
+        assertTrue(linkRepository.findByCode("alive").isPresent());
+        assertEquals(6, notificationRepository.findAll().stream().filter(n -> userId.equals(n.getUserId())).count());
+        linkRepository.delete(alive);
+    }
+
+    private Link link(String code, UUID userId, Instant expiresAt, boolean active) {
+        return Link.builder().code(code).originalUrl("https://test.com").userId(userId)
+                .maxClicks(0).expiresAt(expiresAt).active(active).build();
+    }
+}
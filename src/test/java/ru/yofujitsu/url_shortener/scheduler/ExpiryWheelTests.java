@@ -0,0 +1,76 @@
+package ru.yofujitsu.url_shortener.scheduler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yofujitsu.url_shortener.repository.LinkRepository;
+import ru.yofujitsu.url_shortener.service.LinkExpiryService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ExpiryWheelTests {
+
+    private final LinkRepository linkRepository = mock(LinkRepository.class);
+    private final LinkExpiryService linkExpiryService = mock(LinkExpiryService.class);
+    private final ExpiryWheel expiryWheel = new ExpiryWheel(linkRepository, linkExpiryService,
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 10, 8, 100);
+
+    /**
+     * Проверяет, что ссылка удаляется на первом тике после истечения, а ссылка со сроком
+     * дальше одного оборота колеса остаётся в колесе.
+     */
+    @Test
+    void tick_DeadlineReached_OnlyDueLinksExpired() throws InterruptedException {
+        expiryWheel.schedule(1L, Instant.now().plusMillis(30));
+        expiryWheel.schedule(2L, Instant.now().plus(Duration.ofHours(1)));
+
+        expiryWheel.tick();
+        verify(linkExpiryService, never()).expire(any(), any());
+
+        Thread.sleep(50);
+        expiryWheel.tick();
+
+        verify(linkExpiryService, times(1)).expire(eq(List.of(1L)), eq("wheel"));
+    }
+
+    /**
+     * Проверяет, что ссылки, поставленные в колесо одновременно с тиками, не теряются:
+     * каждая из них передаётся на удаление ровно один раз.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void schedule_ConcurrentWithTick_NoEntryLost() throws Exception {
+        int count = 20_000;
+        Set<Long> expired = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            expired.addAll(invocation.getArgument(0, Collection.class));
+            return null;
+        }).when(linkExpiryService).expire(any(), any());
+        AtomicBoolean done = new AtomicBoolean();
+        Thread ticker = new Thread(() -> {
+            while (!done.get()) expiryWheel.tick();
+        });
+        ticker.start();
+        for (long id = 0; id < count; id++) {
+            expiryWheel.schedule(id, Instant.now());
+        }
+        done.set(true);
+        ticker.join();
+
+        Thread.sleep(30);
+        expiryWheel.tick();
+
+        assertEquals(count, expired.size());
+    }
+}
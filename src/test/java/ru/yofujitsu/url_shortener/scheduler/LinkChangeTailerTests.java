@@ -0,0 +1,91 @@
+package ru.yofujitsu.url_shortener.scheduler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yofujitsu.url_shortener.cache.CodeFilter;
+import ru.yofujitsu.url_shortener.cache.RedirectIndex;
+import ru.yofujitsu.url_shortener.model.entity.LinkChange;
+import ru.yofujitsu.url_shortener.model.entity.LinkChange.Kind;
+import ru.yofujitsu.url_shortener.repository.LinkChangeLog;
+import ru.yofujitsu.url_shortener.service.ClickAnalytics;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LinkChangeTailerTests {
+
+    private final UUID node = UUID.randomUUID();
+    private final LinkChangeLog changeLog = mock(LinkChangeLog.class);
+    private final RedirectIndex redirectIndex = mock(RedirectIndex.class);
+    private final CodeFilter codeFilter = mock(CodeFilter.class);
+    private final ClickAnalytics clickAnalytics = mock(ClickAnalytics.class);
+    private final LinkChangeTailer tailer = new LinkChangeTailer(changeLog, redirectIndex, codeFilter, clickAnalytics,
+            new SimpleMeterRegistry(), 100, 60_000, 24);
+
+    @BeforeEach
+    void setUp() {
+        when(changeLog.enabled()).thenReturn(true);
+        when(changeLog.node()).thenReturn(node);
+        when(changeLog.lastId()).thenReturn(10L);
+        tailer.start();
+    }
+
+    /**
+     * Проверяет, что изменения других узлов применяются к кешам, а собственные изменения узла пропускаются.
+     */
+    @Test
+    void poll_ChangesOfOtherNodes_AppliedToCaches() {
+        UUID other = UUID.randomUUID();
+        when(changeLog.findAfter(eq(10L), anyInt())).thenReturn(List.of(
+                change(11, other, Kind.CREATED, "aaa"),
+                change(12, other, Kind.DEACTIVATED, "bbb"),
+                change(13, other, Kind.DELETED, "ccc"),
+                change(14, node, Kind.DELETED, "ddd")));
+
+        tailer.poll();
+
+        verify(codeFilter).add("aaa");
+        verify(redirectIndex).deactivate("bbb");
+        verify(redirectIndex).removeAll(List.of("ccc"));
+        verify(codeFilter).markDeleted(List.of("ccc"));
+        verify(codeFilter, never()).removeAll(any());
+        verify(clickAnalytics).removeAll(List.of("ccc"));
+        verify(changeLog).findAfter(10L, 100);
+    }
+
+    /**
+     * Проверяет, что запись, зафиксированная позже записи с большим идентификатором, не теряется:
+     * пропуск в последовательности перечитывается на следующем опросе.
+     */
+    @Test
+    void poll_GapCommittedLater_GapReread() {
+        UUID other = UUID.randomUUID();
+        when(changeLog.findAfter(anyLong(), anyInt())).thenReturn(List.of(change(12, other, Kind.CREATED, "bbb")), List.of());
+
+        tailer.poll();
+
+        verify(codeFilter).add("bbb");
+        verify(changeLog, never()).findByIds(any());
+
+        when(changeLog.findByIds(List.of(11L))).thenReturn(List.of(change(11, other, Kind.CREATED, "aaa")));
+
+        tailer.poll();
+        tailer.poll();
+
+        verify(codeFilter, times(1)).add("aaa");
+        verify(changeLog, times(1)).findByIds(List.of(11L));
+        verify(changeLog, times(2)).findAfter(12L, 100);
+    }
+
+    private static LinkChange change(long id, UUID node, Kind kind, String code) {
+        return new LinkChange(id, node, kind, code, Instant.now());
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yofujitsu.url_shortener.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yofujitsu.url_shortener.model.dto.LinkStatsDto;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickAnalyticsTests {
+
+    /**
+     * Проверяет агрегацию: клики попадают в текущие минутный и часовой счётчики,
+     * частые referrer'ы упорядочены по убыванию, переходы без referrer'а в них не учитываются,
+     * а число уникальных User-Agent оценивается близко к точному.
+     */
+    @Test
+    void drain_RecordedClicks_RolledUpIntoBuckets() {
+        ClickAnalytics analytics = new ClickAnalytics(true, 1024, 60, 48, 3, 1000);
+        for (int i = 0; i < 100; i++) {
+            String referrer = i % 10 == 0 ? null : i % 2 == 0 ? "https://a.example" : "https://b.example";
+            analytics.record("abc", referrer, "agent-" + (i % 20));
+        }
+        analytics.record("abc", "https://a.example", null);
+
+        analytics.drain();
+        LinkStatsDto stats = analytics.stats("abc");
+
+        assertEquals(101, stats.clicks());
+        assertEquals(101, stats.minutes().stream().mapToLong(LinkStatsDto.Bucket::clicks).sum());
+        assertEquals(101, stats.hours().stream().mapToLong(LinkStatsDto.Bucket::clicks).sum());
+        assertEquals(List.of("https://b.example", "https://a.example"),
+                stats.topReferrers().stream().map(LinkStatsDto.ReferrerClicks::referrer).toList());
+        assertEquals(50, stats.topReferrers().get(0).clicks());
+        assertTrue(Math.abs(stats.uniqueAgents() - 20) <= 4, "Оценка уникальных агентов: " + stats.uniqueAgents());
+        assertEquals(0, analytics.stats("missing").clicks());
+    }
+
+    /**
+     * Проверяет предел числа кодов: агрегаты редких кодов вытесняются, а часто посещаемый код остаётся
+     * (на первых разборах, пока частота кода не накоплена, его агрегат может быть вытеснен).
+     */
+    @Test
+    void drain_OverMaxCodes_RareCodesEvicted() {
+        ClickAnalytics analytics = new ClickAnalytics(true, 1024, 60, 48, 3, 10);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                analytics.record("hot", null, null);
+            }
+            for (int i = 0; i < 10; i++) {
+                analytics.record("rare" + round + "-" + i, null, null);
+            }
+            analytics.drain();
+        }
+
+        assertTrue(analytics.codeCount() <= 10, "Кодов с агрегатами: " + analytics.codeCount());
+        long hotClicks = analytics.stats("hot").clicks();
+        assertTrue(hotClicks >= 900, "Переходов по частому коду: " + hotClicks);
+    }
+
+    /**
+     * Проверяет, что заполненный буфер отбрасывает события вместо ожидания,
+     * а после разбора снова принимает их.
+     */
+    @Test
+    void ring_Full_EventsDropped() {
+        ClickAnalytics.Ring ring = new ClickAnalytics.Ring(8);
+        for (int i = 0; i < ring.capacity(); i++) {
+            assertTrue(ring.offer("abc", i, null, 0));
+        }
+        assertFalse(ring.offer("abc", 8, null, 0));
+
+        long[] sum = new long[1];
+        assertEquals(8, ring.drain((code, timestamp, referrer, agent) -> sum[0] += timestamp));
+        assertEquals(28, sum[0]);
+        assertEquals(0, ring.size());
+        assertTrue(ring.offer("abc", 9, null, 0));
+    }
+}
@@ -0,0 +1,94 @@
+package ru.yofujitsu.url_shortener.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.yofujitsu.url_shortener.cache.RedirectIndex;
+import ru.yofujitsu.url_shortener.model.dto.HotLinkDto;
+import ru.yofujitsu.url_shortener.model.projection.LinkTarget;
+import ru.yofujitsu.url_shortener.utils.Base62;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class HotLinkDetectorTests {
+
+    private final RedirectIndex redirectIndex = new RedirectIndex(null, null, 16, 4096, Integer.MAX_VALUE);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ClickAccumulator clickAccumulator = new ClickAccumulator(jdbcTemplate);
+    private final HotLinkDetector detector = new HotLinkDetector(redirectIndex, clickAccumulator, true, 3, 16, 1, 10);
+
+    /**
+     * Проверяет, что при перекошенном потоке редиректов самые частые коды находятся, несмотря на вытеснение
+     * редких кодов из таблицы, упорядочены по убыванию оценки и попадают в горячий ярус индекса.
+     */
+    @Test
+    void refresh_SkewedTraffic_TopCodesPromoted() {
+        for (int i = 0; i < 100; i++) {
+            redirectIndex.put(new LinkTarget((long) i, UUID.randomUUID(), code(i), "https://example.com/" + i, 0,
+                    Instant.now().plusSeconds(3600), true));
+        }
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 5; i++) detector.record(code(0));
+            for (int i = 0; i < 3; i++) detector.record(code(1));
+            for (int i = 0; i < 2; i++) detector.record(code(2));
+            detector.record(code(3 + round % 97));
+        }
+
+        detector.refresh();
+
+        List<HotLinkDto> hot = detector.hotLinks();
+        assertEquals(List.of(code(0), code(1), code(2)), hot.stream().map(HotLinkDto::code).toList());
+        assertTrue(hot.stream().allMatch(HotLinkDto::promoted));
+        assertTrue(hot.get(0).hits() >= 500 && hot.get(0).guaranteedHits() <= 500, hot.get(0).toString());
+        assertEquals(Set.of(code(0), code(1), code(2)), redirectIndex.hotCodes());
+    }
+
+    /**
+     * Проверяет, что клики горячего кода учитываются в отдельном счётчике, сбрасываются в БД,
+     * а после остывания код выбывает из яруса и его остаток кликов не теряется, в том числе клики потока,
+     * который получил счётчик до выбывания и увеличил его уже после первого сброса.
+     */
+    @Test
+    void refresh_CodeCoolsDown_DemotedAndClicksFlushed() {
+        redirectIndex.put(new LinkTarget(1L, UUID.randomUUID(), code(0), "https://example.com/0", 0,
+                Instant.now().plusSeconds(3600), true));
+        for (int i = 0; i < 100; i++) detector.record(code(0));
+        detector.refresh();
+        assertEquals(Set.of(code(0)), redirectIndex.hotCodes());
+
+        for (int i = 0; i < 10; i++) clickAccumulator.record(code(0));
+        assertEquals(10, clickAccumulator.pending(code(0)));
+        @SuppressWarnings("unchecked")
+        LongAdder stale = ((Map<String, LongAdder>) ReflectionTestUtils.getField(clickAccumulator, "hot")).get(code(0));
+        for (int i = 0; i < 10 && !detector.hotLinks().isEmpty(); i++) detector.refresh();
+        assertEquals(Set.of(), redirectIndex.hotCodes());
+
+        clickAccumulator.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertEquals(1, batch.getValue().size());
+        assertArrayEquals(new Object[]{10L, code(0)}, batch.getValue().get(0));
+        assertEquals(0, clickAccumulator.pending(code(0)));
+
+        stale.add(3);
+        clickAccumulator.flush();
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batch.capture());
+        assertArrayEquals(new Object[]{3L, code(0)}, batch.getValue().get(0));
+    }
+
+    private static String code(int i) {
+        return Base62.encode(i, 6);
+    }
+}
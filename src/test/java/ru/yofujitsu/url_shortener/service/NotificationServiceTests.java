@@ -0,0 +1,128 @@
+package ru.yofujitsu.url_shortener.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yofujitsu.url_shortener.model.entity.Notification;
+import ru.yofujitsu.url_shortener.repository.NotificationRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class NotificationServiceTests {
+
+    private final NotificationRepository notificationRepository = mock(NotificationRepository.class);
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Проверяет дедупликацию: 1000 переходов по неактивной ссылке дают одно уведомление,
+     * а уведомления с разным текстом сохраняются одним пакетом.
+     */
+    @Test
+    void sendNotification_RepeatedMessages_Deduplicated() {
+        NotificationService notificationService = service(100, NotificationService.OverflowPolicy.DROP);
+        UUID userId = UUID.randomUUID();
+        List<Notification> saved = new ArrayList<>();
+        when(notificationRepository.saveAll(anyList())).thenAnswer(i -> {
+            saved.addAll(i.getArgument(0));
+            return saved;
+        });
+
+        for (int i = 0; i < 1000; i++) {
+            notificationService.sendNotification(userId, "Попытка перехода по неактивной ссылке: DEAD");
+        }
+        notificationService.sendNotification(userId, "Ссылка истекла: OTHER");
+        notificationService.flush();
+
+        verify(notificationRepository, times(1)).saveAll(anyList());
+        assertEquals(2, saved.size());
+    }
+
+    /**
+     * Проверяет политику SPILL: уведомления, не поместившиеся в очередь, выгружаются на диск.
+     */
+    @Test
+    void sendNotification_QueueFull_SpilledToDisk() throws Exception {
+        NotificationService notificationService = service(2, NotificationService.OverflowPolicy.SPILL);
+        UUID userId = UUID.randomUUID();
+
+        for (int i = 0; i < 5; i++) {
+            notificationService.sendNotification(userId, "Ссылка истекла:\tCODE" + i);
+        }
+
+        List<String> spilled = Files.readAllLines(tempDir.resolve("notifications.spill"));
+        assertEquals(3, spilled.size());
+        assertEquals(userId + "\tСсылка истекла:\\tCODE2", spilled.get(0));
+    }
+
+    /**
+     * Проверяет, что отброшенное при переполнении уведомление не попадает в окно дедупликации
+     * и повторная отправка того же уведомления сохраняется.
+     */
+    @Test
+    void sendNotification_DroppedOnOverflow_NotDeduplicated() {
+        NotificationService notificationService = service(1, NotificationService.OverflowPolicy.DROP);
+        UUID userId = UUID.randomUUID();
+        List<Notification> saved = new ArrayList<>();
+        when(notificationRepository.saveAll(anyList())).thenAnswer(i -> {
+            saved.addAll(i.getArgument(0));
+            return saved;
+        });
+
+        notificationService.sendNotification(userId, "Ссылка истекла: FIRST");
+        notificationService.sendNotification(userId, "Ссылка истекла: SECOND");
+        notificationService.flush();
+        notificationService.sendNotification(userId, "Ссылка истекла: SECOND");
+        notificationService.flush();
+
+        assertEquals(List.of("Ссылка истекла: FIRST", "Ссылка истекла: SECOND"),
+                saved.stream().map(Notification::getMessage).toList());
+    }
+
+    /**
+     * Проверяет повторную отправку выгруженных уведомлений: строки до сохранённой позиции не отправляются
+     * повторно, повреждённые строки пропускаются, а файлы повторной отправки удаляются.
+     */
+    @Test
+    void replaySpill_CheckpointAndBrokenLine_ResumedAndSkipped() throws Exception {
+        NotificationService notificationService = service(10, NotificationService.OverflowPolicy.SPILL);
+        UUID userId = UUID.randomUUID();
+        List<Notification> saved = new ArrayList<>();
+        when(notificationRepository.saveAll(anyList())).thenAnswer(i -> {
+            synchronized (saved) {
+                saved.addAll(i.getArgument(0));
+            }
+            return saved;
+        });
+        Path replay = tempDir.resolve("notifications.spill.replay");
+        Files.write(replay, List.of(userId + "\tALREADY_SENT", "not-a-uuid\tBROKEN", "без разделителя", userId + "\tPENDING"));
+        Files.writeString(tempDir.resolve("notifications.spill.replay.offset"), "1");
+
+        notificationService.startWriter();
+        await().atMost(Duration.ofSeconds(5)).until(() -> !Files.exists(replay));
+        notificationService.shutdown();
+
+        assertEquals(List.of("PENDING"), saved.stream().map(Notification::getMessage).toList());
+        assertFalse(Files.exists(tempDir.resolve("notifications.spill.replay.offset")));
+    }
+
+    private NotificationService service(int capacity, NotificationService.OverflowPolicy policy) {
+        return new NotificationService(notificationRepository, transactionTemplate, new SimpleMeterRegistry(),
+                new SimpleAsyncTaskExecutorBuilder(), capacity, 500, policy, tempDir.resolve("notifications.spill"), 60_000);
+    }
+}
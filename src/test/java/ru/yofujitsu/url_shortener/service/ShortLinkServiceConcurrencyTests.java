@@ -0,0 +1,63 @@
+package ru.yofujitsu.url_shortener.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yofujitsu.url_shortener.model.entity.Link;
+import ru.yofujitsu.url_shortener.repository.LinkRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ShortLinkServiceConcurrencyTests {
+
+    private static final int MAX_CLICKS = 25;
+    private static final int REDIRECTS = 400;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private ShortLinkService shortLinkService;
+
+    @Autowired
+    private LinkRepository linkRepository;
+
+    /**
+     * Стресс-тест условного засчитывания кликов: {@value REDIRECTS} параллельных редиректов
+     * по ссылке с лимитом {@value MAX_CLICKS}. Ровно {@code maxClicks} переходов должны быть успешны,
+     * счётчик в БД не должен превысить лимит, а ссылка должна быть деактивирована.
+     */
+    @Test
+    void handleRedirect_ParallelRedirects_ExactlyMaxClicksServed() throws Exception {
+        Link link = shortLinkService.createLink(UUID.randomUUID(), "https://test.com", MAX_CLICKS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < REDIRECTS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return shortLinkService.handleRedirect(link.getCode()).isPresent();
+            }));
+        }
+        start.countDown();
+
+        int served = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) served++;
+        }
+        executor.shutdown();
+
+        assertEquals(MAX_CLICKS, served);
+        Link stored = linkRepository.findByCode(link.getCode()).orElseThrow();
+        assertEquals(MAX_CLICKS, stored.getClicks().get());
+        assertFalse(stored.isActive());
+    }
+}
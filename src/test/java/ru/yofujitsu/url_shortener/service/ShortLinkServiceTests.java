@@ -1,25 +1,43 @@
 package ru.yofujitsu.url_shortener.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yofujitsu.url_shortener.cache.CodeFilter;
+import ru.yofujitsu.url_shortener.cache.RedirectIndex;
+import ru.yofujitsu.url_shortener.model.dto.ShortLinkRequestDto;
 import ru.yofujitsu.url_shortener.model.entity.Link;
+import ru.yofujitsu.url_shortener.model.projection.LinkTarget;
+import ru.yofujitsu.url_shortener.repository.LinkChangeLog;
 import ru.yofujitsu.url_shortener.repository.LinkRepository;
-import ru.yofujitsu.url_shortener.utils.ShortCodeGenerator;
+import ru.yofujitsu.url_shortener.scheduler.ExpiryWheel;
+import ru.yofujitsu.url_shortener.utils.CodeGenerator;
+import ru.yofujitsu.url_shortener.utils.UrlHash;
 
+import java.sql.SQLException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +49,38 @@ class ShortLinkServiceTests {
     @Mock
     private NotificationService notificationService;
 
+    @Mock
+    private CodeGenerator codeGenerator;
+
+    @Mock
+    private ExpiryWheel expiryWheel;
+
+    @Mock
+    private CodeFilter codeFilter;
+
+    @Spy
+    private RedirectIndex redirectIndex = new RedirectIndex(null, null, 16, 4096, Integer.MAX_VALUE);
+
+    @Spy
+    private ClickAccumulator clickAccumulator = new ClickAccumulator(mock(JdbcTemplate.class));
+
+    @Spy
+    private ClickAnalytics clickAnalytics = new ClickAnalytics(true, 1024, 60, 48, 10, 1000);
+
+    @Mock
+    private HotLinkDetector hotLinkDetector;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Mock
+    private LinkChangeLog linkChangeLog;
+
+    @Spy
+    private ShortLinkMetrics metrics = new ShortLinkMetrics(meterRegistry);
+
     @InjectMocks
     private ShortLinkService shortLinkService;
 
@@ -41,90 +91,139 @@ class ShortLinkServiceTests {
 
     @BeforeEach
     void setUp() {
-        ReflectionTestUtils.setField(shortLinkService, "DEFAULT_TTL_HOURS", MOCK_TTL_HOURS * 60);
+        ReflectionTestUtils.setField(shortLinkService, "DEFAULT_TTL_HOURS", MOCK_TTL_HOURS);
+        ReflectionTestUtils.setField(shortLinkService, "redirectRules",
+                new RedirectRules(redirectIndex, clickAccumulator, notificationService));
     }
 
     /**
      * Проверяет успешное создание новой короткой ссылки.
-     * Моделируется ситуация, когда сгенерированный код уникален с первой попытки.
+     * Код выдаётся генератором и сохраняется без проверок существования в БД.
      * Ожидается, что ссылка успешно сохраняется в репозиторий и содержит корректные поля.
      */
     @Test
     void createLink_Success_NewLinkSaved() {
-        try (MockedStatic<ShortCodeGenerator> mockedGenerator = mockStatic(ShortCodeGenerator.class)) {
-            mockedGenerator.when(() -> ShortCodeGenerator.generateShortCode(6)).thenReturn("UNIQUE6");
-            when(linkRepository.existsByCodeAndUserId("UNIQUE6", TEST_USER_ID)).thenReturn(false);
-            when(linkRepository.save(any(Link.class))).thenAnswer(i -> i.getArguments()[0]);
+        when(codeGenerator.nextCode()).thenReturn("UNIQUE6");
+        when(linkRepository.save(any(Link.class))).thenAnswer(i -> i.getArguments()[0]);
 
-            Link createdLink = shortLinkService.createLink(TEST_USER_ID, TEST_URL, 10);
+        Link createdLink = shortLinkService.createLink(TEST_USER_ID, TEST_URL, 10);
 
-            assertNotNull(createdLink);
-            assertEquals("UNIQUE6", createdLink.getCode());
-            assertEquals(TEST_URL, createdLink.getOriginalUrl());
-            assertEquals(10, createdLink.getMaxClicks());
+        assertNotNull(createdLink);
+        assertEquals("UNIQUE6", createdLink.getCode());
+        assertEquals(TEST_URL, createdLink.getOriginalUrl());
+        assertEquals(10, createdLink.getMaxClicks());
 
-            assertTrue(createdLink.getExpiresAt().isAfter(Instant.now().plus(Duration.ofHours(23)).minus(Duration.ofMinutes(1))));
+        assertTrue(createdLink.getExpiresAt().isAfter(Instant.now().plus(Duration.ofHours(23)).minus(Duration.ofMinutes(1))));
 
-            verify(linkRepository, times(1)).save(any(Link.class));
-        }
+        verify(linkRepository, times(1)).save(any(Link.class));
+        verify(expiryWheel, times(1)).schedule(createdLink.getId(), createdLink.getExpiresAt());
+        verify(redirectIndex, times(1)).put(any(LinkTarget.class));
     }
 
     /**
      * Проверяет успешное создание короткой ссылки после одной коллизии кода.
-     * Первая генерация возвращает уже существующий код, вторая — уникальный.
+     * Первая вставка нарушает ограничение уникальности, вторая проходит.
      * Проверяется корректность повторных попыток и итоговое сохранение ссылки.
      */
     @Test
     void createLink_Success_AfterCollisionAttempt() {
-        try (MockedStatic<ShortCodeGenerator> mockedGenerator = mockStatic(ShortCodeGenerator.class)) {
-            mockedGenerator.when(() -> ShortCodeGenerator.generateShortCode(6)).thenReturn("CODE1", "CODE2");
+        when(codeGenerator.nextCode()).thenReturn("CODE1", "CODE2");
+        when(linkRepository.save(any(Link.class)))
+                .thenThrow(codeCollision())
+                .thenAnswer(i -> i.getArguments()[0]);
 
-            when(linkRepository.existsByCodeAndUserId("CODE1", TEST_USER_ID)).thenReturn(true);
-            when(linkRepository.existsByCodeAndUserId("CODE2", TEST_USER_ID)).thenReturn(false);
-            when(linkRepository.save(any(Link.class))).thenAnswer(i -> i.getArguments()[0]);
+        Link createdLink = shortLinkService.createLink(TEST_USER_ID, TEST_URL, 10);
 
-            Link createdLink = shortLinkService.createLink(TEST_USER_ID, TEST_URL, 10);
-
-            assertEquals("CODE2", createdLink.getCode());
-            verify(linkRepository, times(1)).save(any(Link.class));
-            verify(linkRepository, times(2)).existsByCodeAndUserId(anyString(), eq(TEST_USER_ID));
-        }
+        assertEquals("CODE2", createdLink.getCode());
+        verify(linkRepository, times(2)).save(any(Link.class));
+        assertEquals(1, meterRegistry.get("shortlink.create.collisions").counter().count());
+        assertEquals(1, meterRegistry.get("shortlink.create").tag("mode", "single").timer().count());
     }
 
     /**
-     * Проверяет ситуацию, когда превышено число попыток генерации уникального кода.
+     * Проверяет ситуацию, когда превышено число попыток сохранения уникального кода.
      * Код постоянно коллидирует, и после 5 неудачных попыток выбрасывается IllegalStateException.
-     * Репозиторий не должен сохранить ни одной записи.
      */
     @Test
     void createLink_Failure_CodeGenerationAttemptsExceeded() {
-        try (MockedStatic<ShortCodeGenerator> mockedGenerator = mockStatic(ShortCodeGenerator.class)) {
-            mockedGenerator.when(() -> ShortCodeGenerator.generateShortCode(6)).thenReturn("CODE1");
-            when(linkRepository.existsByCodeAndUserId(eq("CODE1"), any())).thenReturn(true);
+        when(codeGenerator.nextCode()).thenReturn("CODE1");
+        when(linkRepository.save(any(Link.class))).thenThrow(codeCollision());
 
-            assertThrows(IllegalStateException.class, () -> shortLinkService.createLink(TEST_USER_ID, TEST_URL, 10));
+        assertThrows(IllegalStateException.class, () -> shortLinkService.createLink(TEST_USER_ID, TEST_URL, 10));
 
-            verify(linkRepository, times(5)).existsByCodeAndUserId(anyString(), any());
-            verify(linkRepository, never()).save(any(Link.class));
-        }
+        verify(linkRepository, times(5)).save(any(Link.class));
     }
 
     /**
-     * Проверяет успешный редирект по активной ссылке.
-     * Ссылка найдена, не истекла и не исчерпала лимит переходов.
-     * Ожидается увеличение счётчика кликов и возврат originalUrl без уведомлений.
+     * Проверяет, что нарушение другого ограничения (слишком длинный URL) не считается коллизией кода:
+     * исключение пробрасывается после первой же попытки, счётчик коллизий не растёт.
+     */
+    @Test
+    void createLink_Failure_NonCodeViolationNotRetried() {
+        when(codeGenerator.nextCode()).thenReturn("CODE1");
+        when(linkRepository.save(any(Link.class))).thenThrow(new DataIntegrityViolationException("value too long",
+                new SQLException("Value too long for column ORIGINAL_URL", "22001")));
+
+        assertThrows(DataIntegrityViolationException.class, () -> shortLinkService.createLink(TEST_USER_ID, TEST_URL, 10));
+
+        verify(linkRepository, times(1)).save(any(Link.class));
+        verify(codeGenerator, times(1)).nextCode();
+        assertEquals(0, meterRegistry.get("shortlink.create.collisions").counter().count());
+    }
+
+    /**
+     * Проверяет, что пакет с нарушением другого ограничения не перевставляется целиком с новыми кодами:
+     * исключение пробрасывается после первой вставки, счётчик коллизий не растёт.
+     */
+    @Test
+    void createLinks_Failure_NonCodeViolationNotRetried() {
+        when(codeGenerator.nextCode()).thenReturn("CODE1", "CODE2");
+        when(linkRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("value too long",
+                new SQLException("Value too long for column ORIGINAL_URL", "22001")));
+        List<ShortLinkRequestDto> requests = List.of(new ShortLinkRequestDto(TEST_URL, 0), new ShortLinkRequestDto(TEST_URL + "/2", 0));
+
+        assertThrows(DataIntegrityViolationException.class, () -> shortLinkService.createLinks(TEST_USER_ID, requests));
+
+        verify(linkRepository, times(1)).saveAll(anyList());
+        verify(codeGenerator, times(2)).nextCode();
+        assertEquals(0, meterRegistry.get("shortlink.create.collisions").counter().count());
+    }
+
+    /**
+     * Проверяет дедупликацию: при {@code app.dedup.enabled} существующая активная ссылка пользователя на тот же URL
+     * с тем же лимитом возвращается без вставки новой строки.
+     */
+    @Test
+    void createLink_Dedup_ExistingLinkReturned() {
+        ReflectionTestUtils.setField(shortLinkService, "dedupEnabled", true);
+        Link existing = Link.builder().id(1L).code("EXIST1").originalUrl(TEST_URL).userId(TEST_USER_ID).maxClicks(10).build();
+        when(linkRepository.findReusable(eq(TEST_USER_ID), eq(UrlHash.of(TEST_URL)), eq(TEST_URL), eq(10), any(Instant.class), any(Limit.class)))
+                .thenReturn(Optional.of(existing));
+
+        Link link = shortLinkService.createLink(TEST_USER_ID, TEST_URL, 10);
+
+        assertSame(existing, link);
+        verify(linkRepository, never()).save(any(Link.class));
+        assertEquals(1, meterRegistry.get("shortlink.create.deduplicated").counter().count());
+    }
+
+    /**
+     * Проверяет успешный редирект по активной ссылке без лимита переходов.
+     * Ожидается учёт клика в памяти и в аналитике и возврат originalUrl без уведомлений и записи в БД.
      */
     @Test
     void handleRedirect_Success_LinkFoundAndIncremented() {
-        Link activeLink = Link.builder().code("TEST").originalUrl(TEST_URL).maxClicks(10).expiresAt(NOW.plus(Duration.ofHours(1))).build();
-        when(linkRepository.findByCode("TEST")).thenReturn(Optional.of(activeLink));
+        LinkTarget activeLink = target("TEST", 0, NOW.plus(Duration.ofHours(1)), true);
+        when(linkRepository.findTargetByCode("TEST")).thenReturn(Optional.of(activeLink));
 
         Optional<String> result = shortLinkService.handleRedirect("TEST");
 
         assertTrue(result.isPresent());
         assertEquals(TEST_URL, result.get());
-        assertEquals(1, activeLink.getClicks().get());
-        verify(linkRepository, times(1)).save(activeLink);
+        assertEquals(1, clickAccumulator.pending("TEST"));
+        clickAnalytics.drain();
+        assertEquals(1, clickAnalytics.stats("TEST").clicks());
+        verify(linkRepository, never()).claimClick(any(), any());
         verify(notificationService, never()).sendNotification(any(), any());
     }
 
@@ -135,59 +234,113 @@ class ShortLinkServiceTests {
      */
     @Test
     void handleRedirect_Failure_LinkExpired() {
-
-        Link expiredLink = Link.builder().code("EXPIRED").originalUrl(TEST_URL).userId(TEST_USER_ID)
-                .expiresAt(NOW.minus(Duration.ofMinutes(1))).build();
-
-        when(linkRepository.findByCode("EXPIRED")).thenReturn(Optional.of(expiredLink));
+        LinkTarget expiredLink = target("EXPIRED", 0, NOW.minus(Duration.ofMinutes(1)), true);
+        when(linkRepository.findTargetByCode("EXPIRED")).thenReturn(Optional.of(expiredLink));
+        when(linkRepository.deactivate(expiredLink.id())).thenReturn(1);
 
         Optional<String> result = shortLinkService.handleRedirect("EXPIRED");
 
         assertTrue(result.isEmpty());
-        assertFalse(expiredLink.isActive());
         verify(notificationService, times(1)).sendNotification(eq(TEST_USER_ID), contains("Ссылка истекла"));
-        verify(linkRepository, times(1)).save(expiredLink);
+        verify(linkRepository, times(1)).deactivate(expiredLink.id());
+        verify(redirectIndex, times(1)).deactivate("EXPIRED");
     }
 
     /**
      * Проверяет отказ в редиректе при уже исчерпанном лимите переходов.
-     * При обращении к такой ссылке выполняется деактивация и отправка уведомления пользователю.
+     * Условный UPDATE не засчитывает клик, ссылка деактивируется и пользователю отправляется уведомление.
      */
     @Test
     void handleRedirect_Failure_MaxClicksReached_InitialCheck() {
-
-        Link maxedLink = Link.builder().code("MAXED").originalUrl(TEST_URL).userId(TEST_USER_ID).maxClicks(5).expiresAt(NOW.plus(Duration.ofHours(1))).build();
-        maxedLink.getClicks().set(5);
-        when(linkRepository.findByCode("MAXED")).thenReturn(Optional.of(maxedLink));
+        LinkTarget maxedLink = target("MAXED", 5, NOW.plus(Duration.ofHours(1)), true);
+        when(linkRepository.findTargetByCode("MAXED")).thenReturn(Optional.of(maxedLink));
+        when(linkRepository.claimClick(eq("MAXED"), any())).thenReturn(0);
+        when(linkRepository.claimLastClick(eq("MAXED"), any())).thenReturn(0);
+        when(linkRepository.deactivate(maxedLink.id())).thenReturn(1);
 
         Optional<String> result = shortLinkService.handleRedirect("MAXED");
 
         assertTrue(result.isEmpty());
-        assertFalse(maxedLink.isActive());
-
         verify(notificationService, times(1)).sendNotification(eq(TEST_USER_ID), contains("Лимит переходов исчерпан"));
-        verify(linkRepository, times(1)).save(maxedLink);
+        verify(linkRepository, times(1)).deactivate(maxedLink.id());
+        assertEquals(1, meterRegistry.get("shortlink.redirect").tag("outcome", "limit_reached").timer().count());
+    }
+
+    /**
+     * Проверяет, что редирект по несуществующему коду не выполняется
+     * и учитывается в метрике с исходом {@code not_found}.
+     */
+    @Test
+    void handleRedirect_Failure_LinkNotFound() {
+        when(linkRepository.findTargetByCode("MISSING")).thenReturn(Optional.empty());
+
+        Optional<String> result = shortLinkService.handleRedirect("MISSING");
+
+        assertTrue(result.isEmpty());
+        assertEquals(1, meterRegistry.get("shortlink.redirect").tag("outcome", "not_found").timer().count());
+        assertEquals(0, meterRegistry.get("shortlink.redirect").tag("outcome", "found").timer().count());
     }
 
     /**
      * Проверяет поведение при достижении лимита кликов в текущем переходе.
-     * После инкремента счётчика лимит достигается, ссылка деактивируется,
+     * Клик засчитывается, после чего ссылка деактивируется,
      * и пользователю отправляется уведомление.
      */
     @Test
     void handleRedirect_SuccessAndDeactivate_MaxClicksReached_CurrentClick() {
-        Link almostMaxedLink = Link.builder().code("ALMOST").originalUrl(TEST_URL).userId(TEST_USER_ID).maxClicks(5).expiresAt(NOW.plus(Duration.ofHours(1))).build();
-        almostMaxedLink.getClicks().set(4);
-        when(linkRepository.findByCode("ALMOST")).thenReturn(Optional.of(almostMaxedLink));
+        LinkTarget almostMaxedLink = target("ALMOST", 5, NOW.plus(Duration.ofHours(1)), true);
+        when(linkRepository.findTargetByCode("ALMOST")).thenReturn(Optional.of(almostMaxedLink));
+        when(linkRepository.claimClick(eq("ALMOST"), any())).thenReturn(0);
+        when(linkRepository.claimLastClick(eq("ALMOST"), any())).thenReturn(1);
 
         Optional<String> result = shortLinkService.handleRedirect("ALMOST");
 
         assertTrue(result.isPresent());
         assertEquals(TEST_URL, result.get());
-        assertEquals(5, almostMaxedLink.getClicks().get());
-        assertFalse(almostMaxedLink.isActive());
 
         verify(notificationService, times(1)).sendNotification(eq(TEST_USER_ID), contains("Лимит переходов исчерпан"));
-        verify(linkRepository, times(1)).save(almostMaxedLink);
+        verify(redirectIndex, times(1)).deactivate("ALMOST");
+    }
+
+    /**
+     * Проверяет, что клик по ссылке с лимитом, до которого ещё далеко, засчитывается одним UPDATE
+     * без попытки деактивации.
+     */
+    @Test
+    void handleRedirect_LimitFarAway_SingleUpdate() {
+        LinkTarget limitedLink = target("LIMITED", 5, NOW.plus(Duration.ofHours(1)), true);
+        when(linkRepository.findTargetByCode("LIMITED")).thenReturn(Optional.of(limitedLink));
+        when(linkRepository.claimClick(eq("LIMITED"), any())).thenReturn(1);
+
+        assertTrue(shortLinkService.handleRedirect("LIMITED").isPresent());
+
+        verify(linkRepository, never()).claimLastClick(any(), any());
+        verify(linkRepository, never()).deactivate(any());
+        verify(notificationService, never()).sendNotification(any(), any());
+    }
+
+    /**
+     * Проверяет, что повторный редирект по популярной ссылке обслуживается из индекса
+     * без повторного обращения к репозиторию.
+     */
+    @Test
+    void handleRedirect_IndexHit_RepositoryQueriedOnce() {
+        LinkTarget cachedLink = target("HOT", 0, NOW.plus(Duration.ofHours(1)), true);
+        when(linkRepository.findTargetByCode("HOT")).thenReturn(Optional.of(cachedLink));
+
+        assertTrue(shortLinkService.handleRedirect("HOT").isPresent());
+        assertTrue(shortLinkService.handleRedirect("HOT").isPresent());
+
+        verify(linkRepository, times(1)).findTargetByCode("HOT");
+        assertEquals(2, clickAccumulator.pending("HOT"));
+    }
+
+    private LinkTarget target(String code, int maxClicks, Instant expiresAt, boolean active) {
+        return new LinkTarget((long) code.hashCode(), TEST_USER_ID, code, TEST_URL, maxClicks, expiresAt, active);
+    }
+
+    private static DataIntegrityViolationException codeCollision() {
+        return new DataIntegrityViolationException("duplicate code", new ConstraintViolationException(
+                "duplicate code", new SQLException("Unique index violation", "23505"), "PUBLIC.UK_LINKS_CODE_INDEX_4"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package ru.yofujitsu.url_shortener.utils;
+
+import org.junit.jupiter.api.Test;
+import ru.yofujitsu.url_shortener.repository.CodeBlockRepository;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BlockCodeGeneratorTests {
+
+    /**
+     * Проверяет, что генератор выдаёт все коды пространства длины 2 ровно по одному разу:
+     * перестановка Фейстеля с cycle walking взаимно однозначна, а блоки арендуются последовательно.
+     * После исчерпания пространства выбрасывается IllegalStateException.
+     */
+    @Test
+    void nextCode_WholeKeyspace_AllCodesUnique() {
+        CodeBlockRepository repository = mock(CodeBlockRepository.class);
+        when(repository.nextBlock()).thenReturn(0L, 1L, 2L, 3L, 4L);
+        BlockCodeGenerator generator = new BlockCodeGenerator(repository, 2, 1000, 42L);
+
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 62 * 62; i++) {
+            String code = generator.nextCode();
+            assertEquals(2, code.length());
+            assertTrue(codes.add(code), "Повторный код: " + code);
+        }
+
+        assertThrows(IllegalStateException.class, generator::nextCode);
+        verify(repository, times(5)).nextBlock();
+    }
+
+    /**
+     * Проверяет, что последовательные значения счётчика не дают последовательных кодов.
+     */
+    @Test
+    void permute_SequentialCounter_CodesNotSequential() {
+        BlockCodeGenerator generator = new BlockCodeGenerator(mock(CodeBlockRepository.class), 6, 1000, 42L);
+
+        long previous = generator.permute(1000);
+        int consecutive = 0;
+        for (long value = 1001; value < 1100; value++) {
+            long permuted = generator.permute(value);
+            if (permuted == previous + 1) consecutive++;
+            previous = permuted;
+        }
+        assertTrue(consecutive < 5);
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yofujitsu.url_shortener.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradientConcurrencyLimiterTests {
+
+    /**
+     * Проверяет, что запросы сверх предела отклоняются, а освобождённое место снова доступно.
+     */
+    @Test
+    void tryAcquire_AboveLimit_Rejected() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(2, 1, 10, 1.5, 0.2);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.inflight());
+
+        limiter.release(1_000_000);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    /**
+     * Проверяет адаптацию предела: при полной загрузке и стабильной задержке предел растёт,
+     * а при многократном росте задержки относительно базовой заметно снижается.
+     */
+    @Test
+    void release_LatencyGrowth_LimitDecreases() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(20, 5, 200, 1.5, 0.2);
+
+        saturate(limiter, 1_000_000, 200);
+        int grown = limiter.limit();
+        assertTrue(grown > 20, "Предел должен вырасти: " + grown);
+
+        saturate(limiter, 50_000_000, 50);
+        assertTrue(limiter.limit() < grown / 2, "Предел должен снизиться: " + grown + " -> " + limiter.limit());
+    }
+
+    private static void saturate(GradientConcurrencyLimiter limiter, long rttNanos, int requests) {
+        for (int i = 0; i < requests; i++) {
+            while (limiter.tryAcquire()) {
+                // занимаем все места, чтобы предел не считался недогруженным
+            }
+            limiter.release(rttNanos);
+        }
+        while (limiter.inflight() > 0) {
+            limiter.release(rttNanos);
+        }
+    }
+}
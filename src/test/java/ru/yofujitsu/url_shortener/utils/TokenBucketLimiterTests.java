@@ -0,0 +1,57 @@
+package ru.yofujitsu.url_shortener.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTests {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    /**
+     * Проверяет, что корзина выдаёт {@code burst} токенов подряд, затем отказывает со временем ожидания
+     * до следующего токена и пополняется со скоростью {@code ratePerSecond}; ключи не влияют друг на друга.
+     */
+    @Test
+    void tryAcquire_BurstExhausted_RejectedUntilRefill() {
+        AtomicLong now = new AtomicLong(0);
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, 3, Duration.ofMinutes(1), 100, now::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("a"));
+        }
+        assertEquals(SECOND / 2, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("b"));
+
+        now.addAndGet(SECOND / 2);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+
+        now.addAndGet(10 * SECOND);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("a"));
+        }
+        assertTrue(limiter.tryAcquire("a") > 0);
+    }
+
+    /**
+     * Проверяет, что запрос, отклонённый корзиной IP, не расходует токен корзины пользователя.
+     */
+    @Test
+    void tryAcquire_SecondKeyExhausted_FirstKeyNotCharged() {
+        AtomicLong now = new AtomicLong(0);
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 2, Duration.ofMinutes(1), 100, now::get);
+        limiter.tryAcquire("ip");
+        limiter.tryAcquire("ip");
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("user", "ip") > 0);
+        }
+        assertEquals(0, limiter.tryAcquire("user", "other-ip"));
+        assertEquals(0, limiter.tryAcquire("user", "third-ip"));
+        assertTrue(limiter.tryAcquire("user", "fourth-ip") > 0);
+    }
+}